@@ -0,0 +1,19 @@
+#!/bin/bash
+
+# Set class path with required libraries
+export SRC_DIR="src/main/java"
+export OUT_DIR="target/classes"
+
+# Create output directory if it doesn't exist
+mkdir -p $OUT_DIR
+
+# Compile all Java files
+echo "Compiling Java files..."
+find $SRC_DIR -name "*.java" -print | xargs javac -d $OUT_DIR
+
+# Run the performance gate
+echo "Running performance regression gate..."
+echo "Pass --update-baseline to record new baseline figures, --tolerance=0.25 to change the allowed slowdown"
+echo ""
+
+java -cp $OUT_DIR com.extraterrestrial.intelligence.PerformanceGate "$@"
@@ -0,0 +1,19 @@
+#!/bin/bash
+
+# Set class path with required libraries
+export SRC_DIR="src/main/java"
+export OUT_DIR="target/classes"
+
+# Create output directory if it doesn't exist
+mkdir -p $OUT_DIR
+
+# Compile all Java files (messages go to stderr, stdout carries the tagged output)
+echo "Compiling Java files..." >&2
+find $SRC_DIR -name "*.java" -print | xargs javac -d $OUT_DIR
+
+# Run the streaming tagger
+echo "Tagging, results on stdout or --output, progress on stderr..." >&2
+echo "Options: --input=path --output=path --format=text|conll|tsv|csv --output-format=tsv|conll --tagger=combined|quadgram|... --threads=N --chunk=256" >&2
+echo "" >&2
+
+java -cp $OUT_DIR com.extraterrestrial.intelligence.StreamingTagger "$@"
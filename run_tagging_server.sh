@@ -0,0 +1,19 @@
+#!/bin/bash
+
+# Set class path with required libraries
+export SRC_DIR="src/main/java"
+export OUT_DIR="target/classes"
+
+# Create output directory if it doesn't exist
+mkdir -p $OUT_DIR
+
+# Compile all Java files
+echo "Compiling Java files..."
+find $SRC_DIR -name "*.java" -print | xargs javac -d $OUT_DIR
+
+# Run the tagging server
+echo "Starting the tagging HTTP service..."
+echo "Options: --port=8080 --threads=N --semantic=path|none, or --load-test=CLIENTS --seconds=10 to measure it and exit"
+echo ""
+
+java -cp $OUT_DIR com.extraterrestrial.intelligence.TaggingServer "$@"
@@ -1,5 +1,7 @@
 package com.extraterrestrial.intelligence;
 
+import com.extraterrestrial.intelligence.metrics.ConsoleMetricsReporter;
+import com.extraterrestrial.intelligence.metrics.LatencyMetrics;
 import com.extraterrestrial.intelligence.repository.CSVDatasetRepository;
 import com.extraterrestrial.intelligence.repository.DatasetRepository;
 import com.extraterrestrial.intelligence.service.CombinedTaggerService;
@@ -13,6 +15,11 @@ public class CombinedTaggerEvaluation {
         System.out.println("Advanced N-Gram POS Tagger Evaluation with Combined Model");
         System.out.println("========================================================\n");
         
+        // Expose latency histograms over JMX when run with -Dtagger.metrics=true
+        if (LatencyMetrics.isEnabled()) {
+            LatencyMetrics.registerMBean();
+        }
+        
         // Load repository
         DatasetRepository repository = new CSVDatasetRepository();
         
@@ -21,5 +28,9 @@ public class CombinedTaggerEvaluation {
         
         // Run evaluation
         service.processAndEvaluate();
+        
+        if (LatencyMetrics.isEnabled()) {
+            new ConsoleMetricsReporter().report(LatencyMetrics.snapshots());
+        }
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.extraterrestrial.intelligence.data.TaggerWord;
 import com.extraterrestrial.intelligence.model.*;
 import com.extraterrestrial.intelligence.repository.CSVDatasetRepository;
 import com.extraterrestrial.intelligence.repository.DatasetRepository;
+import com.extraterrestrial.intelligence.util.Tokenizer;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -131,13 +132,7 @@ public class InteractiveTest {
     
     private void processInput(String input) {
         // Tokenize the input into words
-        String[] tokens = input.split("\\s+");
-        
-        // Create a TaggedSentence with empty tags
-        TaggedSentence sentence = new TaggedSentence();
-        for (String token : tokens) {
-            sentence.addWord(new TaggerWord(token, ""));
-        }
+        TaggedSentence sentence = Tokenizer.forCurrentThread().tokenize(input).toSentence();
         
         // Get predictions from all taggers
         System.out.println("\n=== Word-by-word POS Tags ===");
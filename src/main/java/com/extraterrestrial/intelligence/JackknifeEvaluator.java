@@ -2,12 +2,16 @@ package com.extraterrestrial.intelligence;
 
 import com.extraterrestrial.intelligence.data.TaggedSentence;
 import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.ConsoleMetricsReporter;
+import com.extraterrestrial.intelligence.metrics.LatencyMetrics;
+import com.extraterrestrial.intelligence.metrics.TaggingBatchEvent;
 import com.extraterrestrial.intelligence.model.*;
 import com.extraterrestrial.intelligence.repository.CSVDatasetRepository;
 import com.extraterrestrial.intelligence.repository.DatasetRepository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Evaluates the taggers using a jackknife procedure that systematically
@@ -15,10 +19,19 @@ import java.util.List;
  */
 public class JackknifeEvaluator {
 
+    // Compaction thresholds reported per fold
+    private static final int MIN_CONTEXT_COUNT = 2;
+    private static final double MIN_RELATIVE_ENTROPY = 0.5;
+
     public static void main(String[] args) {
         System.out.println("N-Gram POS Tagger Jackknife Evaluation");
         System.out.println("======================================\n");
         
+        // Expose latency histograms over JMX when run with -Dtagger.metrics=true
+        if (LatencyMetrics.isEnabled()) {
+            LatencyMetrics.registerMBean();
+        }
+        
         // Load dataset
         System.out.println("Loading dataset...");
         DatasetRepository repository = new CSVDatasetRepository();
@@ -84,6 +97,11 @@ public class JackknifeEvaluator {
         System.out.printf("Bigram Tagger:   %.2f%%\n", calculateAverage(bigramAccuracies) - defaultAvg);
         System.out.printf("Trigram Tagger:  %.2f%%\n", calculateAverage(trigramAccuracies) - defaultAvg);
         System.out.printf("Quadgram Tagger: %.2f%%\n", calculateAverage(quadgramAccuracies) - defaultAvg);
+        
+        if (LatencyMetrics.isEnabled()) {
+            System.out.println();
+            new ConsoleMetricsReporter().report(LatencyMetrics.snapshots());
+        }
     }
     
     private static void evaluateFold(
@@ -231,14 +249,91 @@ public class JackknifeEvaluator {
                100.0 * (quadImprovements - quadErrors) / totalWords, quadImprovements, quadErrors);
         System.out.println();
         
+        // Show which levels of the quadgram chain actually made the decisions
+        BackoffStatistics.print(quadgramTagger);
+        printContextFilter("Trigram", trigramBackoff.getContextTable());
+        printContextFilter("Quadgram", quadgramTagger.getContextTable());
+        
+        // Re-tag with the fast path lexicon, which must not change the quadgram's accuracy
+        FastPathLexicon lexicon = FastPathLexicon.build(unigramBackoff3, quadgramTagger, trainingSentences);
+        quadgramTagger.setFastPathLexicon(lexicon);
+        double fastPathAccuracy = calculateAccuracy(testSentences, tagTestSentences(quadgramTagger, testSentences));
+        quadgramTagger.setFastPathLexicon(null);
+        
+        Map<String, Long> lookups = lexicon.getCounters().snapshot();
+        System.out.printf("  Fast path lexicon: %d words, answered %d of %d lookups, accuracy %.2f%% (chain %.2f%%)\n",
+                lexicon.size(), lookups.get("hit"), lookups.get("hit") + lookups.get("miss"),
+                fastPathAccuracy, quadgramAccuracy);
+        
+        // Retrain the trigram and quadgram levels with quantized counts
+        long exactBytes = trigramBackoff.getContextTable().estimatedBytes()
+                + quadgramTagger.getContextTable().estimatedBytes();
+        for (int bits : new int[]{16, 8}) {
+            CountQuantizer quantizer = CountQuantizer.forBits(bits);
+            TriGramTagger quantizedTrigram = new TriGramTagger(bigramBackoff2);
+            quantizedTrigram.setCountQuantizer(quantizer);
+            quantizedTrigram.train(trainingSentences);
+            QuadGramTagger quantizedQuadgram = new QuadGramTagger(quantizedTrigram);
+            quantizedQuadgram.setCountQuantizer(quantizer);
+            quantizedQuadgram.train(trainingSentences);
+            
+            double quantizedAccuracy = calculateAccuracy(testSentences, tagTestSentences(quantizedQuadgram, testSentences));
+            long quantizedBytes = quantizedTrigram.getContextTable().estimatedBytes()
+                    + quantizedQuadgram.getContextTable().estimatedBytes();
+            System.out.printf("  Counts in %d bits: accuracy %.2f%% (exact %.2f%%), trigram and quadgram tables %d KB (exact %d KB)\n",
+                    bits, quantizedAccuracy, quadgramAccuracy, quantizedBytes / 1024, exactBytes / 1024);
+        }
+        
+        // Compact the chain's context tables, first by count, then against the backoff level,
+        // and report what each stage costs on this fold
+        CompactionResult quadByCount = quadgramTagger.compact(trainingSentences, MIN_CONTEXT_COUNT, 0);
+        CompactionResult triByCount = trigramBackoff.compact(trainingSentences, MIN_CONTEXT_COUNT, 0);
+        double countPrunedAccuracy = calculateAccuracy(testSentences, tagTestSentences(quadgramTagger, testSentences));
+        System.out.printf("  Compaction, count >= %d: accuracy %.2f%% (was %.2f%%)\n    %s\n    %s\n",
+                MIN_CONTEXT_COUNT, countPrunedAccuracy, quadgramAccuracy, quadByCount, triByCount);
+        
+        CompactionResult quadByEntropy = quadgramTagger.compact(trainingSentences, MIN_CONTEXT_COUNT, MIN_RELATIVE_ENTROPY);
+        CompactionResult triByEntropy = trigramBackoff.compact(trainingSentences, MIN_CONTEXT_COUNT, MIN_RELATIVE_ENTROPY);
+        double entropyPrunedAccuracy = calculateAccuracy(testSentences, tagTestSentences(quadgramTagger, testSentences));
+        System.out.printf("  Compaction, relative entropy >= %.2f: accuracy %.2f%%\n    %s\n    %s\n",
+                MIN_RELATIVE_ENTROPY, entropyPrunedAccuracy, quadByEntropy, triByEntropy);
+        
         // Calculate some statistics on tag frequencies in this fold
         calculateTagStats(testSentences);
     }
     
+    private static void printContextFilter(String name, ContextTable contextTable) {
+        if (!contextTable.hasFilter()) {
+            return;
+        }
+        
+        Map<String, Long> lookups = contextTable.getFilterCounters().snapshot();
+        long passed = lookups.get("hit") + lookups.get("false_positive");
+        long misses = lookups.get("filtered") + lookups.get("false_positive");
+        System.out.printf("  %s context filter: %d contexts in %d KB, filtered %d of %d misses, " +
+                        "false positive rate %.2f%% (expected %.2f%%), hits %d of %d passed\n",
+                name, contextTable.size(), contextTable.filterSizeInBytes() / 1024, lookups.get("filtered"), misses,
+                misses > 0 ? 100.0 * lookups.get("false_positive") / misses : 0,
+                100 * contextTable.expectedFilterFalsePositiveRate(), lookups.get("hit"), passed);
+    }
+    
     private static List<TaggedSentence> tagTestSentences(Tagger tagger, List<TaggedSentence> testSentences) {
+        TaggingBatchEvent batchEvent = new TaggingBatchEvent();
+        batchEvent.begin();
+        
         List<TaggedSentence> taggedSentences = new ArrayList<>();
+        long tokens = 0;
         for (TaggedSentence sentence : testSentences) {
             taggedSentences.add(tagger.tagSentence(sentence));
+            tokens += sentence.size();
+        }
+        
+        batchEvent.end();
+        if (batchEvent.shouldCommit()) {
+            batchEvent.tagger = tagger.getClass().getSimpleName();
+            batchEvent.sentences = testSentences.size();
+            batchEvent.tokens = tokens;
+            batchEvent.commit();
         }
         return taggedSentences;
     }
@@ -5,6 +5,7 @@ import com.extraterrestrial.intelligence.data.TaggerWord;
 import com.extraterrestrial.intelligence.model.*;
 import com.extraterrestrial.intelligence.repository.CSVDatasetRepository;
 import com.extraterrestrial.intelligence.repository.DatasetRepository;
+import com.extraterrestrial.intelligence.util.Tokenizer;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -157,42 +158,42 @@ public class MultiWordPrediction {
         System.out.println("\nPredictions for: \"" + text + "\"");
         System.out.println("-".repeat(40));
         
-        // Tokenize input
-        String[] tokens = text.toLowerCase().split("\\s+");
-        int numTokens = tokens.length;
+        // Tokenize input and read every context off it before showCompletions, which tokenizes
+        // the completions with this thread's tokenizer
+        Tokenizer tokens = Tokenizer.forCurrentThread().tokenize(text);
+        int numTokens = tokens.size();
+        String quadgramContext = numTokens >= 4 ? tokens.joinLowerCase(numTokens - 4, numTokens) : null;
+        String trigramContext = numTokens >= 3 ? tokens.joinLowerCase(numTokens - 3, numTokens) : null;
+        String bigramContext = numTokens >= 2 ? tokens.joinLowerCase(numTokens - 2, numTokens) : null;
+        String lastWord = numTokens >= 1 ? tokens.lowerCaseToken(numTokens - 1) : null;
         
         // Use appropriate n-gram model based on input length
-        if (numTokens >= 4) {
+        if (quadgramContext != null) {
             // Use quadgram model (4 previous words)
-            String context = tokens[numTokens-4] + " " + tokens[numTokens-3] + " " + 
-                    tokens[numTokens-2] + " " + tokens[numTokens-1];
-            List<String> predictions = getTopPredictions(context, quadgramWordMap, 5);
+            List<String> predictions = getTopPredictions(quadgramContext, quadgramWordMap, 5);
             System.out.println("4-gram predictions (based on last 4 words):");
-            showCompletions(text, predictions, tokens[numTokens-1]);
+            showCompletions(text, predictions, lastWord);
         }
         
-        if (numTokens >= 3) {
+        if (trigramContext != null) {
             // Use trigram model (3 previous words)
-            String context = tokens[numTokens-3] + " " + tokens[numTokens-2] + " " + tokens[numTokens-1];
-            List<String> predictions = getTopPredictions(context, trigramWordMap, 5);
+            List<String> predictions = getTopPredictions(trigramContext, trigramWordMap, 5);
             System.out.println("\n3-gram predictions (based on last 3 words):");
-            showCompletions(text, predictions, tokens[numTokens-1]);
+            showCompletions(text, predictions, lastWord);
         }
         
-        if (numTokens >= 2) {
+        if (bigramContext != null) {
             // Use bigram model (2 previous words)
-            String context = tokens[numTokens-2] + " " + tokens[numTokens-1];
-            List<String> predictions = getTopPredictions(context, bigramWordMap, 5);
+            List<String> predictions = getTopPredictions(bigramContext, bigramWordMap, 5);
             System.out.println("\n2-gram predictions (based on last 2 words):");
-            showCompletions(text, predictions, tokens[numTokens-1]);
+            showCompletions(text, predictions, lastWord);
         }
         
-        if (numTokens >= 1) {
+        if (lastWord != null) {
             // Use unigram model (1 previous word)
-            String context = tokens[numTokens-1];
-            List<String> predictions = getTopPredictions(context, unigramWordMap, 5);
+            List<String> predictions = getTopPredictions(lastWord, unigramWordMap, 5);
             System.out.println("\n1-gram predictions (based on last word):");
-            showCompletions(text, predictions, tokens[numTokens-1]);
+            showCompletions(text, predictions, lastWord);
         }
         
         // Generate longer phrases by chaining predictions
@@ -232,10 +233,7 @@ public class MultiWordPrediction {
             System.out.println((i+1) + ". " + completion);
             
             // Tag the completion to show POS tags
-            TaggedSentence taggedSentence = new TaggedSentence();
-            for (String word : (text + " " + nextWord).split("\\s+")) {
-                taggedSentence.addWord(new TaggerWord(word, ""));
-            }
+            TaggedSentence taggedSentence = Tokenizer.forCurrentThread().tokenize(completion).toSentence();
             
             TaggedSentence result = quadgramTagger.tagSentence(taggedSentence);
             String taggedText = result.getWords().stream()
@@ -249,20 +247,20 @@ public class MultiWordPrediction {
         List<String> phrases = new ArrayList<>();
         Set<String> seen = new HashSet<>();
         
-        String[] tokens = text.toLowerCase().split("\\s+");
+        Tokenizer tokens = Tokenizer.forCurrentThread().tokenize(text);
         String baseText = text;
         
         // Start with several possible next words
         List<String> nextWords = new ArrayList<>();
-        if (tokens.length >= 3) {
-            String context = tokens[tokens.length-3] + " " + tokens[tokens.length-2] + " " + tokens[tokens.length-1];
+        if (tokens.size() >= 3) {
+            String context = tokens.joinLowerCase(tokens.size() - 3, tokens.size());
             nextWords.addAll(getTopPredictions(context, trigramWordMap, 3));
         }
-        if (tokens.length >= 2) {
-            String context = tokens[tokens.length-2] + " " + tokens[tokens.length-1];
+        if (tokens.size() >= 2) {
+            String context = tokens.joinLowerCase(tokens.size() - 2, tokens.size());
             nextWords.addAll(getTopPredictions(context, bigramWordMap, 3));
         }
-        String context = tokens[tokens.length-1];
+        String context = tokens.lowerCaseToken(tokens.size() - 1);
         nextWords.addAll(getTopPredictions(context, unigramWordMap, 3));
         
         // Remove duplicates and limit
@@ -274,30 +272,29 @@ public class MultiWordPrediction {
             
             // Now iteratively add more words
             for (int i = 1; i < wordsToAdd; i++) {
-                String[] currentTokens = currentPhrase.toLowerCase().split("\\s+");
-                int len = currentTokens.length;
+                Tokenizer currentTokens = Tokenizer.forCurrentThread().tokenize(currentPhrase);
+                int len = currentTokens.size();
                 
                 // Try each n-gram model in turn, from highest to lowest
                 List<String> predictions = new ArrayList<>();
                 
                 if (len >= 4) {
-                    String ctx = currentTokens[len-4] + " " + currentTokens[len-3] + " " + 
-                            currentTokens[len-2] + " " + currentTokens[len-1];
+                    String ctx = currentTokens.joinLowerCase(len - 4, len);
                     predictions = getTopPredictions(ctx, quadgramWordMap, 1);
                 }
                 
                 if (predictions.isEmpty() && len >= 3) {
-                    String ctx = currentTokens[len-3] + " " + currentTokens[len-2] + " " + currentTokens[len-1];
+                    String ctx = currentTokens.joinLowerCase(len - 3, len);
                     predictions = getTopPredictions(ctx, trigramWordMap, 1);
                 }
                 
                 if (predictions.isEmpty() && len >= 2) {
-                    String ctx = currentTokens[len-2] + " " + currentTokens[len-1];
+                    String ctx = currentTokens.joinLowerCase(len - 2, len);
                     predictions = getTopPredictions(ctx, bigramWordMap, 1);
                 }
                 
                 if (predictions.isEmpty() && len >= 1) {
-                    String ctx = currentTokens[len-1];
+                    String ctx = currentTokens.lowerCaseToken(len - 1);
                     predictions = getTopPredictions(ctx, unigramWordMap, 1);
                 }
                 
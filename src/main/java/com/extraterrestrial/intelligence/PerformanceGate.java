@@ -0,0 +1,154 @@
+package com.extraterrestrial.intelligence;
+
+import com.extraterrestrial.intelligence.benchmark.BenchmarkCorpus;
+import com.extraterrestrial.intelligence.benchmark.BenchmarkResult;
+import com.extraterrestrial.intelligence.benchmark.PerformanceBaseline;
+import com.extraterrestrial.intelligence.benchmark.TaggerBenchmark;
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.model.*;
+import com.extraterrestrial.intelligence.repository.CSVDatasetRepository;
+import com.extraterrestrial.intelligence.repository.DatasetRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmarks every tagger in the backoff chain, writes machine-readable results and
+ * fails when any of them regresses beyond the tolerance recorded in the checked-in baseline.
+ *
+ * Options: --update-baseline, --tolerance=0.25, --baseline=path, --output=path, --corpus=path
+ */
+public class PerformanceGate {
+
+    public static final String BASELINE_PATH = "src/main/resources/benchmark/baseline.properties";
+    public static final String RESULTS_PATH = "target/benchmark/results.properties";
+    public static final double DEFAULT_TOLERANCE = 0.25;
+
+    private static final int WARMUP_PASSES = 5;
+    private static final int MEASURED_PASSES = 5;
+    // Each figure is the median of this many runs of the measured passes
+    private static final int TRIALS = 3;
+
+    public static void main(String[] args) {
+        String baselinePath = BASELINE_PATH;
+        String outputPath = RESULTS_PATH;
+        String corpusPath = BenchmarkCorpus.DEFAULT_CORPUS_PATH;
+        double tolerance = DEFAULT_TOLERANCE;
+        boolean updateBaseline = false;
+
+        for (String arg : args) {
+            if (arg.equals("--update-baseline")) {
+                updateBaseline = true;
+            } else if (arg.startsWith("--tolerance=")) {
+                tolerance = Double.parseDouble(arg.substring("--tolerance=".length()));
+            } else if (arg.startsWith("--baseline=")) {
+                baselinePath = arg.substring("--baseline=".length());
+            } else if (arg.startsWith("--output=")) {
+                outputPath = arg.substring("--output=".length());
+            } else if (arg.startsWith("--corpus=")) {
+                corpusPath = arg.substring("--corpus=".length());
+            }
+        }
+
+        try {
+            List<String> regressions = run(Paths.get(baselinePath), Paths.get(outputPath), corpusPath,
+                    tolerance, updateBaseline);
+            if (!regressions.isEmpty()) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Train the taggers, benchmark them and compare against the baseline
+     * @return The regressions found (empty when the gate passes or the baseline was updated)
+     */
+    public static List<String> run(Path baselinePath, Path outputPath, String corpusPath,
+                                   double tolerance, boolean updateBaseline) throws IOException {
+        System.out.println("Tagger Performance Gate");
+        System.out.println("=======================\n");
+
+        DatasetRepository repository = new CSVDatasetRepository();
+        List<TaggedSentence> trainingSentences = repository.loadSentences();
+        List<TaggedSentence> benchmarkSentences = BenchmarkCorpus.loadSentences(corpusPath);
+        System.out.println("Benchmarking on " + benchmarkSentences.size() + " sentences from " + corpusPath + "\n");
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        TaggerBenchmark benchmark = new TaggerBenchmark(WARMUP_PASSES, MEASURED_PASSES, TRIALS);
+        for (Map.Entry<String, Tagger> entry : trainChain(trainingSentences).entrySet()) {
+            BenchmarkResult result = benchmark.run(entry.getKey(), entry.getValue(), benchmarkSentences);
+            System.out.println(result);
+            results.add(result);
+        }
+
+        PerformanceBaseline baseline = Files.exists(baselinePath) ? PerformanceBaseline.load(baselinePath) : null;
+        Map<String, Double> toleranceOverrides = baseline != null
+                ? baseline.toleranceOverrides()
+                : new LinkedHashMap<>();
+        Map<String, Double> floors = baseline != null ? baseline.floors() : new LinkedHashMap<>();
+
+        PerformanceBaseline.write(outputPath, results, toleranceOverrides, floors);
+        System.out.println("\nResults written to " + outputPath);
+
+        if (updateBaseline) {
+            PerformanceBaseline.write(baselinePath, results, toleranceOverrides, floors);
+            System.out.println("Baseline updated: " + baselinePath);
+            return new ArrayList<>();
+        }
+
+        if (baseline == null) {
+            System.out.println("No baseline at " + baselinePath + " - run with --update-baseline to record one");
+            return new ArrayList<>();
+        }
+
+        List<String> regressions = baseline.findRegressions(results, tolerance);
+        if (regressions.isEmpty()) {
+            System.out.println("No regressions against " + baselinePath);
+        } else {
+            System.out.println("PERFORMANCE REGRESSIONS:");
+            for (String regression : regressions) {
+                System.out.println("  " + regression);
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Build and train the standard backoff chain, keyed by the names used in the baseline file
+     */
+    private static Map<String, Tagger> trainChain(List<TaggedSentence> trainingSentences) {
+        DefaultTagger defaultTagger = new DefaultTagger();
+        UniGramTagger unigramTagger = new UniGramTagger(defaultTagger);
+        unigramTagger.train(trainingSentences);
+        BiGramTagger bigramTagger = new BiGramTagger(unigramTagger);
+        bigramTagger.train(trainingSentences);
+        TriGramTagger trigramTagger = new TriGramTagger(bigramTagger);
+        trigramTagger.train(trainingSentences);
+        QuadGramTagger quadgramTagger = new QuadGramTagger(trigramTagger);
+        quadgramTagger.train(trainingSentences);
+        ViterbiTagger viterbiTagger = new ViterbiTagger(unigramTagger, bigramTagger);
+        viterbiTagger.buildTables();
+        BeamSearchTagger beamTagger = new BeamSearchTagger(unigramTagger, bigramTagger);
+        beamTagger.buildTables();
+
+        Map<String, Tagger> chain = new LinkedHashMap<>();
+        chain.put("default", defaultTagger);
+        chain.put("unigram", unigramTagger);
+        chain.put("bigram", bigramTagger);
+        chain.put("trigram", trigramTagger);
+        chain.put("quadgram", quadgramTagger);
+        chain.put("viterbi", viterbiTagger);
+        chain.put("beam", beamTagger);
+        return chain;
+    }
+}
@@ -0,0 +1,509 @@
+package com.extraterrestrial.intelligence;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.repository.CSVDatasetRepository;
+import com.extraterrestrial.intelligence.repository.DatasetRepository;
+import com.extraterrestrial.intelligence.service.CombinedTaggerService;
+import com.extraterrestrial.intelligence.service.DeadlineTagger;
+import com.extraterrestrial.intelligence.util.MappedLineReader;
+import com.extraterrestrial.intelligence.util.SentenceSegmenter;
+import com.extraterrestrial.intelligence.util.Tokenizer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batch tagger for shell pipelines: reads sentences from stdin or a file, tags them in parallel
+ * and writes them in input order.
+ *
+ * Input formats (--format=):
+ * <ul>
+ *   <li>text: one sentence per line, split into tokens by {@link Tokenizer}</li>
+ *   <li>document: running text, cut into sentences by {@link SentenceSegmenter} as it is read
+ *       and then tokenized like text</li>
+ *   <li>conll: one token per line, the word and optionally its gold tag in the first two
+ *       whitespace-separated columns, a blank line after each sentence, # comments</li>
+ *   <li>tsv: tab-separated word and gold tag per line as in {@code bigram.txt}; sentences end at
+ *       a blank line or the gold tag "."</li>
+ *   <li>csv: the dataset's "Sentence #,Word,POS,..." rows</li>
+ * </ul>
+ * Output formats (--output-format=): conll (word, gold tag if any, predicted tag, predicted
+ * named entity label if the model has them, blank line after each sentence) or tsv (word, gold,
+ * predicted, MATCH/MISMATCH as in {@code bigram.txt}, or word and predicted tag without gold
+ * tags).
+ *
+ * Other options: --input=path (memory-mapped; default stdin), --output=path (default stdout),
+ * --tagger=combined|quadgram|trigram|bigram|unigram|default, --threads=N (default the
+ * processors), --chunk=256 sentences per task. Progress and the summary go to stderr.
+ */
+public class StreamingTagger {
+
+    // Chunks tagged or being tagged ahead of the writer, per thread
+    private static final int CHUNKS_AHEAD_PER_THREAD = 4;
+    private static final int OUTPUT_BUFFER = 1 << 20;
+
+    private final DeadlineTagger tagger;
+    private final DeadlineTagger.Level level;
+    private final boolean conllOutput;
+
+    private final LongAdder sentences = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder goldTokens = new LongAdder();
+    private final LongAdder correctTokens = new LongAdder();
+
+    // First failure of a tagging task or of the output, which stops the run
+    private volatile Throwable failure;
+
+    public StreamingTagger(CombinedTaggerService taggerService, DeadlineTagger.Level level, boolean conllOutput) {
+        this.tagger = new DeadlineTagger(taggerService);
+        this.level = level;
+        this.conllOutput = conllOutput;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Dataset loading and training report on System.out, which must stay clean for the results
+        OutputStream stdout = new FileOutputStream(FileDescriptor.out);
+        System.setOut(System.err);
+
+        String inputPath = null;
+        String outputPath = null;
+        String format = "text";
+        String outputFormat = "tsv";
+        DeadlineTagger.Level level = DeadlineTagger.Level.COMBINED;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkSize = 256;
+
+        for (String arg : args) {
+            if (arg.startsWith("--input=")) {
+                inputPath = arg.substring("--input=".length());
+            } else if (arg.startsWith("--output=")) {
+                outputPath = arg.substring("--output=".length());
+            } else if (arg.startsWith("--format=")) {
+                format = arg.substring("--format=".length());
+            } else if (arg.startsWith("--output-format=")) {
+                outputFormat = arg.substring("--output-format=".length());
+            } else if (arg.startsWith("--tagger=")) {
+                level = DeadlineTagger.Level.valueOf(arg.substring("--tagger=".length()).toUpperCase(Locale.ROOT));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--chunk=")) {
+                chunkSize = Integer.parseInt(arg.substring("--chunk=".length()));
+            }
+        }
+        if (!outputFormat.equals("tsv") && !outputFormat.equals("conll")) {
+            throw new IllegalArgumentException("Unknown output format: " + outputFormat + ", use tsv or conll");
+        }
+
+        DatasetRepository repository = new CSVDatasetRepository();
+        CombinedTaggerService taggerService = new CombinedTaggerService(repository);
+        taggerService.trainTaggers(repository.loadSentences());
+        StreamingTagger streamingTagger = new StreamingTagger(taggerService, level, outputFormat.equals("conll"));
+
+        long start = System.nanoTime();
+        try (LineSource input = inputPath == null || inputPath.equals("-")
+                ? LineSource.of(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), OUTPUT_BUFFER))
+                : LineSource.of(new MappedLineReader(Paths.get(inputPath)));
+             Writer output = new BufferedWriter(new OutputStreamWriter(outputPath == null || outputPath.equals("-")
+                     ? stdout : Files.newOutputStream(Paths.get(outputPath)), StandardCharsets.UTF_8), OUTPUT_BUFFER)) {
+            streamingTagger.run(SentenceReader.forFormat(format, input), output, threads, chunkSize);
+        }
+        System.err.println(streamingTagger.summary(System.nanoTime() - start));
+    }
+
+    /**
+     * Tag every sentence of the reader on a pool of threads and write the results in input order
+     */
+    void run(SentenceReader reader, Writer output, int threads, int chunkSize)
+            throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(threads * CHUNKS_AHEAD_PER_THREAD);
+        Future<String> end = pool.submit(() -> null);
+
+        // The writer drains results in submission order while this thread reads ahead
+        Thread writer = new Thread(() -> writeInOrder(pending, end, output), "streaming-tagger-writer");
+        writer.start();
+        try {
+            List<TaggedSentence> chunk = new ArrayList<>(chunkSize);
+            TaggedSentence sentence;
+            while (failure == null && (sentence = reader.next()) != null) {
+                chunk.add(sentence);
+                if (chunk.size() == chunkSize) {
+                    List<TaggedSentence> full = chunk;
+                    pending.put(pool.submit(() -> tagChunk(full)));
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                List<TaggedSentence> last = chunk;
+                pending.put(pool.submit(() -> tagChunk(last)));
+            }
+        } finally {
+            pending.put(end);
+            writer.join();
+            pool.shutdown();
+        }
+        if (failure != null) {
+            throw new IOException("Tagging failed", failure);
+        }
+    }
+
+    /**
+     * Throughput and, with gold tags in the input, accuracy
+     */
+    public String summary(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        String summary = String.format("Tagged %d sentences, %d tokens in %.2f s (%.0f tokens/s)",
+                sentences.sum(), tokens.sum(), seconds, tokens.sum() / seconds);
+        long gold = goldTokens.sum();
+        if (gold > 0) {
+            summary += String.format(", accuracy %.2f%%", correctTokens.sum() * 100.0 / gold);
+        }
+        return summary;
+    }
+
+    private void writeInOrder(BlockingQueue<Future<String>> pending, Future<String> end, Writer output) {
+        try {
+            Future<String> next;
+            while ((next = pending.take()) != end) {
+                if (failure == null) {
+                    output.write(next.get());
+                }
+            }
+        } catch (ExecutionException e) {
+            failure = e.getCause();
+            drain(pending, end);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            drain(pending, end);
+        } catch (InterruptedException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Keep taking results after a failure so the reader is never left blocked on a full queue
+     */
+    private static void drain(BlockingQueue<Future<String>> pending, Future<String> end) {
+        try {
+            while (pending.take() != end) {
+                // Discard
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Tag a chunk and format it for the output
+     */
+    private String tagChunk(List<TaggedSentence> chunk) {
+        StringBuilder out = new StringBuilder(chunk.size() * 128);
+        long chunkTokens = 0;
+        long gold = 0;
+        long correct = 0;
+        for (TaggedSentence sentence : chunk) {
+            List<TaggerWord> words = sentence.getWords();
+
+            // The taggers never see the gold tags
+            List<TaggerWord> untagged = new ArrayList<>(words.size());
+            for (TaggerWord word : words) {
+                untagged.add(new TaggerWord(word.getWord(), ""));
+            }
+            List<TaggerWord> predicted = tagger.tagAt(level, new TaggedSentence(untagged)).getWords();
+
+            for (int i = 0; i < words.size(); i++) {
+                String goldTag = words.get(i).getTag();
+                String predictedTag = predicted.get(i).getTag();
+                out.append(words.get(i).getWord()).append('\t');
+                if (!goldTag.isEmpty()) {
+                    out.append(goldTag).append('\t');
+                    gold++;
+                }
+                out.append(predictedTag);
+                if (conllOutput && !predicted.get(i).getEntity().isEmpty()) {
+                    out.append('\t').append(predicted.get(i).getEntity());
+                }
+                if (!goldTag.isEmpty()) {
+                    boolean match = goldTag.equals(predictedTag);
+                    if (match) {
+                        correct++;
+                    }
+                    if (!conllOutput) {
+                        out.append(match ? "\tMATCH" : "\tMISMATCH");
+                    }
+                }
+                out.append('\n');
+            }
+            if (conllOutput) {
+                out.append('\n');
+            }
+            chunkTokens += words.size();
+        }
+        sentences.add(chunk.size());
+        tokens.add(chunkTokens);
+        goldTokens.add(gold);
+        correctTokens.add(correct);
+        return out.toString();
+    }
+
+    /**
+     * Lines from stdin or a memory-mapped file
+     */
+    interface LineSource extends AutoCloseable {
+        String readLine() throws IOException;
+
+        @Override
+        void close() throws IOException;
+
+        static LineSource of(BufferedReader reader) {
+            return new LineSource() {
+                @Override
+                public String readLine() throws IOException {
+                    return reader.readLine();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    reader.close();
+                }
+            };
+        }
+
+        static LineSource of(MappedLineReader reader) {
+            return new LineSource() {
+                @Override
+                public String readLine() throws IOException {
+                    return reader.readLine();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    reader.close();
+                }
+            };
+        }
+    }
+
+    /**
+     * Cuts lines into sentences; gold tags are kept in the words' tags, empty when absent
+     */
+    abstract static class SentenceReader {
+
+        final LineSource lines;
+
+        SentenceReader(LineSource lines) {
+            this.lines = lines;
+        }
+
+        /**
+         * The next sentence, or null at the end of the input
+         */
+        abstract TaggedSentence next() throws IOException;
+
+        static SentenceReader forFormat(String format, LineSource lines) {
+            switch (format) {
+                case "text":
+                    return new TextReader(lines);
+                case "document":
+                    return new DocumentReader(lines);
+                case "conll":
+                    return new ColumnReader(lines, false);
+                case "tsv":
+                    return new ColumnReader(lines, true);
+                case "csv":
+                    return new CsvReader(lines);
+                default:
+                    throw new IllegalArgumentException("Unknown input format: " + format + ", use text, document, conll, tsv or csv");
+            }
+        }
+    }
+
+    private static final class TextReader extends SentenceReader {
+
+        TextReader(LineSource lines) {
+            super(lines);
+        }
+
+        private final Tokenizer tokenizer = new Tokenizer();
+
+        @Override
+        TaggedSentence next() throws IOException {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (tokenizer.tokenize(line).size() > 0) {
+                    return tokenizer.toSentence();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Running text whose sentences span or share lines; each sentence is tagged as soon as the
+     * segmenter completes it
+     */
+    private static final class DocumentReader extends SentenceReader {
+
+        private final SentenceSegmenter segmenter;
+        private final Tokenizer tokenizer = new Tokenizer();
+
+        DocumentReader(LineSource lines) {
+            super(lines);
+            this.segmenter = new SentenceSegmenter(new LineSourceReader(lines));
+        }
+
+        @Override
+        TaggedSentence next() throws IOException {
+            String text;
+            while ((text = segmenter.next()) != null) {
+                if (tokenizer.tokenize(text).size() > 0) {
+                    return tokenizer.toSentence();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The lines of a source as a character stream, each followed by a line end
+     */
+    private static final class LineSourceReader extends Reader {
+
+        private final LineSource lines;
+        private String line = "";
+        private int position;
+        private boolean lineEndPending;
+
+        LineSourceReader(LineSource lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == line.length() && !lineEndPending) {
+                line = lines.readLine();
+                position = 0;
+                if (line == null) {
+                    line = "";
+                    return -1;
+                }
+                lineEndPending = true;
+            }
+            if (position == line.length()) {
+                buffer[offset] = '\n';
+                lineEndPending = false;
+                return 1;
+            }
+            int count = Math.min(length, line.length() - position);
+            line.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            lines.close();
+        }
+    }
+
+    /**
+     * Token-per-line input: tab-separated with "." ending a sentence (tsv), or
+     * whitespace-separated with blank lines between sentences (conll)
+     */
+    private static final class ColumnReader extends SentenceReader {
+
+        private final boolean tabSeparated;
+
+        ColumnReader(LineSource lines, boolean tabSeparated) {
+            super(lines);
+            this.tabSeparated = tabSeparated;
+        }
+
+        @Override
+        TaggedSentence next() throws IOException {
+            TaggedSentence sentence = new TaggedSentence();
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    if (sentence.size() > 0) {
+                        return sentence;
+                    }
+                    continue;
+                }
+                if (!tabSeparated && line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = tabSeparated ? line.split("\t", 3) : line.trim().split("\\s+", 3);
+                String gold = columns.length > 1 ? columns[1] : "";
+                sentence.addWord(new TaggerWord(columns[0], gold));
+                if (tabSeparated && gold.equals(".")) {
+                    return sentence;
+                }
+            }
+            return sentence.size() > 0 ? sentence : null;
+        }
+    }
+
+    private static final class CsvReader extends SentenceReader {
+
+        private String pendingId;
+        private TaggerWord pendingWord;
+
+        CsvReader(LineSource lines) {
+            super(lines);
+        }
+
+        @Override
+        TaggedSentence next() throws IOException {
+            TaggedSentence sentence = new TaggedSentence();
+            String sentenceId = pendingId;
+            if (pendingWord != null) {
+                sentence.addWord(pendingWord);
+                pendingWord = null;
+            }
+            String line;
+            while ((line = lines.readLine()) != null) {
+                String[] parts = line.split(",", 4);
+                if (parts.length < 3 || parts[0].startsWith("Sentence #")) {
+                    continue; // Header or invalid line
+                }
+                String id = parts[0].trim();
+                TaggerWord word = new TaggerWord(parts[1].trim(), parts[2].trim());
+                if (sentenceId != null && !id.equals(sentenceId) && sentence.size() > 0) {
+                    pendingId = id;
+                    pendingWord = word;
+                    return sentence;
+                }
+                sentenceId = id;
+                sentence.addWord(word);
+            }
+            pendingId = null;
+            return sentence.size() > 0 ? sentence : null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.extraterrestrial.intelligence;
+
+import com.extraterrestrial.intelligence.benchmark.BenchmarkCorpus;
+import com.extraterrestrial.intelligence.benchmark.HttpLoadGenerator;
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.model.SemanticModel;
+import com.extraterrestrial.intelligence.repository.CSVDatasetRepository;
+import com.extraterrestrial.intelligence.repository.DatasetRepository;
+import com.extraterrestrial.intelligence.service.CombinedTaggerService;
+import com.extraterrestrial.intelligence.service.MicroBatchScheduler;
+import com.extraterrestrial.intelligence.service.OverloadPolicy;
+import com.extraterrestrial.intelligence.service.TaggingHttpServer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Trains the combined tagger once and serves it over HTTP, see {@link TaggingHttpServer}.
+ *
+ * Options: --port=8080, --threads=N, --semantic=path (CSV for /predict, "none" to skip),
+ * --batch-size=N and --batch-wait-us=200 to coalesce /tag requests with a {@link MicroBatchScheduler},
+ * --overload=block|reject|degrade and --queue-capacity=1024 for what its bounded queue does when
+ * full (either option alone queues /tag requests without coalescing them),
+ * --load-test=clients to measure the server with {@link HttpLoadGenerator} and exit,
+ * --seconds=10 for the length of that measurement
+ */
+public class TaggingServer {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 8080;
+        int threads = TaggingHttpServer.defaultThreads();
+        String semanticPath = CSVDatasetRepository.CLEANED_CSV_FILE_PATH;
+        int batchSize = Integer.getInteger(MicroBatchScheduler.MAX_BATCH_SIZE_PROPERTY, 0);
+        int batchWaitMicros = Integer.getInteger(MicroBatchScheduler.MAX_WAIT_PROPERTY,
+                MicroBatchScheduler.DEFAULT_MAX_WAIT_MICROS);
+        int queueCapacity = Integer.getInteger(MicroBatchScheduler.QUEUE_CAPACITY_PROPERTY,
+                MicroBatchScheduler.DEFAULT_QUEUE_CAPACITY);
+        OverloadPolicy overloadPolicy = null;
+        int loadClients = 0;
+        int seconds = 10;
+
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--semantic=")) {
+                semanticPath = arg.substring("--semantic=".length());
+            } else if (arg.startsWith("--batch-size=")) {
+                batchSize = Integer.parseInt(arg.substring("--batch-size=".length()));
+            } else if (arg.startsWith("--batch-wait-us=")) {
+                batchWaitMicros = Integer.parseInt(arg.substring("--batch-wait-us=".length()));
+            } else if (arg.startsWith("--queue-capacity=")) {
+                queueCapacity = Integer.parseInt(arg.substring("--queue-capacity=".length()));
+                if (overloadPolicy == null) {
+                    overloadPolicy = OverloadPolicy.BLOCK;
+                }
+            } else if (arg.startsWith("--overload=")) {
+                overloadPolicy = OverloadPolicy.parse(arg.substring("--overload=".length()));
+            } else if (arg.startsWith("--load-test=")) {
+                loadClients = Integer.parseInt(arg.substring("--load-test=".length()));
+            } else if (arg.startsWith("--seconds=")) {
+                seconds = Integer.parseInt(arg.substring("--seconds=".length()));
+            }
+        }
+
+        System.out.println("Loading and training taggers...");
+        DatasetRepository repository = new CSVDatasetRepository();
+        CombinedTaggerService taggerService = new CombinedTaggerService(repository);
+        List<TaggedSentence> trainingSentences = repository.loadSentences();
+        taggerService.trainTaggers(trainingSentences);
+
+        SemanticModel semanticModel = null;
+        if (!semanticPath.equals("none")) {
+            semanticModel = new SemanticModel();
+            semanticModel.loadDataset(semanticPath);
+        }
+
+        MicroBatchScheduler batchScheduler = null;
+        if (batchSize > 0 || overloadPolicy != null) {
+            batchScheduler = MicroBatchScheduler.forService(taggerService, Math.max(batchSize, 1), batchWaitMicros,
+                    queueCapacity, overloadPolicy != null ? overloadPolicy : OverloadPolicy.BLOCK);
+        }
+        TaggingHttpServer server = new TaggingHttpServer(taggerService, semanticModel, port, threads, batchScheduler);
+        server.getDeadlineTagger().calibrate(trainingSentences.subList(0, Math.min(500, trainingSentences.size())));
+        server.start();
+        System.out.println("Serving " + taggerService.getModelRegistry().current() + " on http://localhost:"
+                + server.getPort() + " with " + threads + " threads");
+
+        if (loadClients > 0) {
+            List<TaggedSentence> sentences = BenchmarkCorpus.loadSentences(BenchmarkCorpus.DEFAULT_CORPUS_PATH);
+            HttpLoadGenerator generator = new HttpLoadGenerator("http://localhost:" + server.getPort(), loadClients);
+            System.out.println(generator.run(sentences, 3, seconds));
+            System.out.println("Rejected connections: " + server.getRejectedConnections());
+            server.close();
+            if (batchScheduler != null) {
+                batchScheduler.close();
+                System.out.println("Batching: " + batchScheduler);
+            }
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    }
+}
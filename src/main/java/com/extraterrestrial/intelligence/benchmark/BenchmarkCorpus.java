@@ -0,0 +1,53 @@
+package com.extraterrestrial.intelligence.benchmark;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads running text for benchmarking from the tab-separated result files
+ * (word, gold tag, predicted tag, MATCH/MISMATCH), e.g. {@code bigram.txt}
+ */
+public class BenchmarkCorpus {
+
+    public static final String DEFAULT_CORPUS_PATH = "src/main/resources/bigram.txt";
+
+    /**
+     * Read the file and cut it into sentences at sentence-final punctuation.
+     * The dataset CSV holds one-word sentences, so this is what exercises the higher-order contexts.
+     */
+    public static List<TaggedSentence> loadSentences(String path) throws IOException {
+        List<TaggedSentence> sentences = new ArrayList<>();
+        TaggedSentence currentSentence = new TaggedSentence();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length < 2) {
+                    continue; // Skip invalid lines
+                }
+
+                currentSentence.addWord(new TaggerWord(parts[0], parts[1]));
+
+                // Gold tag "." marks the end of a sentence
+                if (parts[1].equals(".")) {
+                    sentences.add(currentSentence);
+                    currentSentence = new TaggedSentence();
+                }
+            }
+        }
+
+        // Add the last sentence
+        if (currentSentence.size() > 0) {
+            sentences.add(currentSentence);
+        }
+
+        return sentences;
+    }
+}
@@ -0,0 +1,131 @@
+package com.extraterrestrial.intelligence.benchmark;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Machine-readable performance figures for a single tagger run
+ */
+public class BenchmarkResult {
+
+    // Metric names as they appear in result and baseline files
+    public static final String THROUGHPUT = "throughput_tokens_per_sec";
+    public static final String P50_LATENCY = "p50_latency_micros";
+    public static final String P99_LATENCY = "p99_latency_micros";
+    public static final String ALLOCATION = "allocated_bytes_per_sentence";
+    public static final String PEAK_HEAP = "peak_heap_bytes";
+
+    private final String taggerName;
+    private final int sentences;
+    private final long tokens;
+    private final double throughputTokensPerSec;
+    private final double p50LatencyMicros;
+    private final double p99LatencyMicros;
+    private final double allocatedBytesPerSentence;
+    private final long peakHeapBytes;
+
+    public BenchmarkResult(String taggerName, int sentences, long tokens,
+                           double throughputTokensPerSec, double p50LatencyMicros, double p99LatencyMicros,
+                           double allocatedBytesPerSentence, long peakHeapBytes) {
+        this.taggerName = taggerName;
+        this.sentences = sentences;
+        this.tokens = tokens;
+        this.throughputTokensPerSec = throughputTokensPerSec;
+        this.p50LatencyMicros = p50LatencyMicros;
+        this.p99LatencyMicros = p99LatencyMicros;
+        this.allocatedBytesPerSentence = allocatedBytesPerSentence;
+        this.peakHeapBytes = peakHeapBytes;
+    }
+
+    public String getTaggerName() {
+        return taggerName;
+    }
+
+    public int getSentences() {
+        return sentences;
+    }
+
+    public long getTokens() {
+        return tokens;
+    }
+
+    public double getThroughputTokensPerSec() {
+        return throughputTokensPerSec;
+    }
+
+    public double getP50LatencyMicros() {
+        return p50LatencyMicros;
+    }
+
+    public double getP99LatencyMicros() {
+        return p99LatencyMicros;
+    }
+
+    public double getAllocatedBytesPerSentence() {
+        return allocatedBytesPerSentence;
+    }
+
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    /**
+     * The gated metrics keyed by metric name, in a stable order
+     */
+    public Map<String, Double> metrics() {
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        metrics.put(THROUGHPUT, throughputTokensPerSec);
+        metrics.put(P50_LATENCY, p50LatencyMicros);
+        metrics.put(P99_LATENCY, p99LatencyMicros);
+        metrics.put(ALLOCATION, allocatedBytesPerSentence);
+        metrics.put(PEAK_HEAP, (double) peakHeapBytes);
+        return metrics;
+    }
+
+    /**
+     * Each metric's median over several runs of the same tagger, taken metric by metric
+     */
+    public static BenchmarkResult median(List<BenchmarkResult> results) {
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        double[] throughput = new double[results.size()];
+        double[] p50 = new double[results.size()];
+        double[] p99 = new double[results.size()];
+        double[] allocation = new double[results.size()];
+        double[] peakHeap = new double[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            BenchmarkResult result = results.get(i);
+            throughput[i] = result.throughputTokensPerSec;
+            p50[i] = result.p50LatencyMicros;
+            p99[i] = result.p99LatencyMicros;
+            allocation[i] = result.allocatedBytesPerSentence;
+            peakHeap[i] = result.peakHeapBytes;
+        }
+        BenchmarkResult first = results.get(0);
+        return new BenchmarkResult(first.taggerName, first.sentences, first.tokens, median(throughput),
+                median(p50), median(p99), median(allocation), (long) median(peakHeap));
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    /**
+     * Whether a larger value of the metric is an improvement (throughput) or a regression (everything else)
+     */
+    public static boolean higherIsBetter(String metric) {
+        return THROUGHPUT.equals(metric);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-10s %8.0f tok/s  p50 %8.1fus  p99 %8.1fus  %10.0f B/sent  peak heap %6.1f MB",
+                taggerName, throughputTokensPerSec, p50LatencyMicros, p99LatencyMicros,
+                allocatedBytesPerSentence, peakHeapBytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,163 @@
+package com.extraterrestrial.intelligence.benchmark;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.HistogramSnapshot;
+import com.extraterrestrial.intelligence.metrics.LatencyHistogram;
+import com.extraterrestrial.intelligence.util.Json;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for the tagging HTTP service.
+ *
+ * Each client thread sends POST /tag requests one after another, cycling through the corpus
+ * sentences, for a warm-up period and then a measured one. Throughput and the latency
+ * distribution come from the measured period only.
+ *
+ * Options: --url=http://localhost:8080, --clients=8, --warmup=3, --seconds=10, --corpus=path
+ */
+public class HttpLoadGenerator {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final URI tagUri;
+    private final int clients;
+
+    public HttpLoadGenerator(String baseUrl, int clients) {
+        this.tagUri = URI.create(baseUrl + "/tag");
+        this.clients = clients;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:8080";
+        int clients = 8;
+        int warmupSeconds = 3;
+        int seconds = 10;
+        String corpusPath = BenchmarkCorpus.DEFAULT_CORPUS_PATH;
+
+        for (String arg : args) {
+            if (arg.startsWith("--url=")) {
+                url = arg.substring("--url=".length());
+            } else if (arg.startsWith("--clients=")) {
+                clients = Integer.parseInt(arg.substring("--clients=".length()));
+            } else if (arg.startsWith("--warmup=")) {
+                warmupSeconds = Integer.parseInt(arg.substring("--warmup=".length()));
+            } else if (arg.startsWith("--seconds=")) {
+                seconds = Integer.parseInt(arg.substring("--seconds=".length()));
+            } else if (arg.startsWith("--corpus=")) {
+                corpusPath = arg.substring("--corpus=".length());
+            }
+        }
+
+        HttpLoadGenerator generator = new HttpLoadGenerator(url, clients);
+        System.out.println(generator.run(BenchmarkCorpus.loadSentences(corpusPath), warmupSeconds, seconds));
+    }
+
+    /**
+     * Drive the service with the corpus sentences
+     * @return Request rate and latency of the measured period
+     */
+    public Result run(List<TaggedSentence> sentences, int warmupSeconds, int seconds) throws InterruptedException {
+        List<String> bodies = new ArrayList<>();
+        for (TaggedSentence sentence : sentences) {
+            StringJoiner text = new StringJoiner(" ");
+            for (TaggerWord word : sentence.getWords()) {
+                text.add(word.getWord());
+            }
+            bodies.add("{\"text\":" + Json.quote(text.toString()) + "}");
+        }
+
+        LatencyHistogram latency = new LatencyHistogram("HttpLoadGenerator.tag");
+        AtomicLong errors = new AtomicLong();
+        long measureStart = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+        long end = measureStart + seconds * 1_000_000_000L;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int offset = c * bodies.size() / clients;
+            threads.add(new Thread(() -> {
+                for (int i = offset; ; i++) {
+                    long start = System.nanoTime();
+                    if (start >= end) {
+                        return;
+                    }
+                    boolean ok = send(bodies.get(i % bodies.size()));
+                    if (start >= measureStart) {
+                        latency.record(System.nanoTime() - start);
+                        if (!ok) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            }, "load-client-" + c));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new Result(clients, seconds, latency.snapshot(), errors.get());
+    }
+
+    private boolean send(String body) {
+        HttpRequest request = HttpRequest.newBuilder(tagUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Outcome of a load run
+     */
+    public static class Result {
+        private final int clients;
+        private final int seconds;
+        private final HistogramSnapshot latency;
+        private final long errors;
+
+        Result(int clients, int seconds, HistogramSnapshot latency, long errors) {
+            this.clients = clients;
+            this.seconds = seconds;
+            this.latency = latency;
+            this.errors = errors;
+        }
+
+        public double getRequestsPerSecond() {
+            return (double) latency.getCount() / seconds;
+        }
+
+        public HistogramSnapshot getLatency() {
+            return latency;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d clients, %ds: %.0f requests/s, %d errors, latency ms p50 %.2f p90 %.2f " +
+                            "p99 %.2f p99.9 %.2f max %.2f",
+                    clients, seconds, getRequestsPerSecond(), errors, latency.getP50() / 1e6,
+                    latency.getP90() / 1e6, latency.getP99() / 1e6, latency.getP999() / 1e6, latency.getMax() / 1e6);
+        }
+    }
+}
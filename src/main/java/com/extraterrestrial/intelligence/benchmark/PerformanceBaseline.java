@@ -0,0 +1,150 @@
+package com.extraterrestrial.intelligence.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Checked-in performance baseline and the comparison that gates regressions against it.
+ *
+ * Baselines are plain properties files with one {@code <tagger>.<metric>=<value>} line per figure.
+ * The allowed relative slowdown comes from the caller; a {@code tolerance.<metric>} entry
+ * overrides it for a single metric (e.g. a looser bound for noisy p99 latencies). A
+ * {@code floor.<metric>} entry is the absolute change below which a metric never counts as
+ * regressed, so sub-microsecond latencies do not fail the gate on timer resolution alone.
+ */
+public class PerformanceBaseline {
+
+    public static final String TOLERANCE_KEY = "tolerance";
+    public static final String FLOOR_KEY = "floor";
+
+    private final Properties values;
+
+    public PerformanceBaseline(Properties values) {
+        this.values = values;
+    }
+
+    public static PerformanceBaseline load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return new PerformanceBaseline(properties);
+    }
+
+    /**
+     * Write results in the baseline format
+     * @param toleranceOverrides Per-metric tolerances to keep, keyed by metric name
+     * @param floors Per-metric absolute floors to keep, keyed by metric name
+     */
+    public static void write(Path path, List<BenchmarkResult> results,
+                             Map<String, Double> toleranceOverrides, Map<String, Double> floors) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("# Tagger performance figures (see PerformanceGate)\n");
+            for (Map.Entry<String, Double> override : toleranceOverrides.entrySet()) {
+                writer.write(TOLERANCE_KEY + "." + override.getKey() + "=" + override.getValue() + "\n");
+            }
+            for (Map.Entry<String, Double> floor : floors.entrySet()) {
+                writer.write(FLOOR_KEY + "." + floor.getKey() + "=" + floor.getValue() + "\n");
+            }
+            for (BenchmarkResult result : results) {
+                for (Map.Entry<String, Double> metric : result.metrics().entrySet()) {
+                    writer.write(key(result.getTaggerName(), metric.getKey()) + "="
+                            + String.format(Locale.ROOT, "%.1f", metric.getValue()) + "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-metric tolerance entries, so they survive a baseline update
+     */
+    public Map<String, Double> toleranceOverrides() {
+        return entries(TOLERANCE_KEY);
+    }
+
+    /**
+     * Per-metric absolute floors, so they survive a baseline update
+     */
+    public Map<String, Double> floors() {
+        return entries(FLOOR_KEY);
+    }
+
+    private Map<String, Double> entries(String kind) {
+        Map<String, Double> entries = new TreeMap<>();
+        String prefix = kind + ".";
+        for (String name : values.stringPropertyNames()) {
+            if (name.startsWith(prefix)) {
+                entries.put(name.substring(prefix.length()), Double.parseDouble(values.getProperty(name).trim()));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Tolerance for a metric, falling back to the given default
+     */
+    public double toleranceFor(String metric, double defaultTolerance) {
+        String specific = values.getProperty(TOLERANCE_KEY + "." + metric);
+        return specific != null ? Double.parseDouble(specific.trim()) : defaultTolerance;
+    }
+
+    /**
+     * Absolute floor for a metric, 0 if none is recorded
+     */
+    public double floorFor(String metric) {
+        String floor = values.getProperty(FLOOR_KEY + "." + metric);
+        return floor != null ? Double.parseDouble(floor.trim()) : 0;
+    }
+
+    /**
+     * Compare results against the baseline
+     * @param results Freshly measured results
+     * @param defaultTolerance Relative tolerance used for metrics without an override
+     * @return One human-readable line per metric that regressed beyond its tolerance
+     */
+    public List<String> findRegressions(List<BenchmarkResult> results, double defaultTolerance) {
+        List<String> regressions = new ArrayList<>();
+
+        for (BenchmarkResult result : results) {
+            for (Map.Entry<String, Double> metric : result.metrics().entrySet()) {
+                String baselineValue = values.getProperty(key(result.getTaggerName(), metric.getKey()));
+                if (baselineValue == null) {
+                    continue; // Nothing recorded for this tagger/metric yet
+                }
+
+                double expected = Double.parseDouble(baselineValue.trim());
+                double actual = metric.getValue();
+                double tolerance = toleranceFor(metric.getKey(), defaultTolerance);
+
+                boolean regressed = (BenchmarkResult.higherIsBetter(metric.getKey())
+                        ? actual < expected * (1 - tolerance)
+                        : actual > expected * (1 + tolerance))
+                        && Math.abs(actual - expected) > floorFor(metric.getKey());
+
+                if (regressed) {
+                    regressions.add(String.format("%s %s: %.1f vs baseline %.1f (tolerance %.0f%%)",
+                            result.getTaggerName(), metric.getKey(), actual, expected, tolerance * 100));
+                }
+            }
+        }
+
+        return regressions;
+    }
+
+    private static String key(String taggerName, String metric) {
+        return taggerName + "." + metric;
+    }
+}
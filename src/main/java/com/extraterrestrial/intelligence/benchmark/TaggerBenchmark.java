@@ -0,0 +1,135 @@
+package com.extraterrestrial.intelligence.benchmark;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.model.Tagger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures throughput, per-sentence latency percentiles, allocation and peak heap of a tagger.
+ * With several trials each figure is the median over the trials, so one GC pause or scheduler
+ * hiccup in a trial does not move the result.
+ */
+public class TaggerBenchmark {
+
+    private final int warmupPasses;
+    private final int measuredPasses;
+    private final int trials;
+
+    public TaggerBenchmark(int warmupPasses, int measuredPasses) {
+        this(warmupPasses, measuredPasses, 1);
+    }
+
+    /**
+     * @param trials Number of times the measured passes are repeated
+     */
+    public TaggerBenchmark(int warmupPasses, int measuredPasses, int trials) {
+        this.warmupPasses = warmupPasses;
+        this.measuredPasses = Math.max(1, measuredPasses);
+        this.trials = Math.max(1, trials);
+    }
+
+    /**
+     * Run the benchmark for one tagger over the given (already trained against) sentences
+     */
+    public BenchmarkResult run(String taggerName, Tagger tagger, List<TaggedSentence> sentences) {
+        // Warm up so the JIT has compiled the hot path before we measure
+        for (int pass = 0; pass < warmupPasses; pass++) {
+            for (TaggedSentence sentence : sentences) {
+                tagger.tagSentence(sentence);
+            }
+        }
+
+        List<BenchmarkResult> results = new ArrayList<>(trials);
+        for (int trial = 0; trial < trials; trial++) {
+            results.add(measure(taggerName, tagger, sentences));
+        }
+        return BenchmarkResult.median(results);
+    }
+
+    private BenchmarkResult measure(String taggerName, Tagger tagger, List<TaggedSentence> sentences) {
+        long tokensPerPass = 0;
+        for (TaggedSentence sentence : sentences) {
+            tokensPerPass += sentence.size();
+        }
+
+        int totalSentences = sentences.size() * measuredPasses;
+        long[] latencies = new long[totalSentences];
+
+        System.gc();
+        resetHeapPeaks();
+
+        long allocatedBefore = currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        int index = 0;
+        for (int pass = 0; pass < measuredPasses; pass++) {
+            for (TaggedSentence sentence : sentences) {
+                long sentenceStart = System.nanoTime();
+                tagger.tagSentence(sentence);
+                latencies[index++] = System.nanoTime() - sentenceStart;
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        long allocatedAfter = currentThreadAllocatedBytes();
+        long peakHeap = heapPeaks();
+
+        Arrays.sort(latencies);
+        long totalTokens = tokensPerPass * measuredPasses;
+        double throughput = elapsedNanos > 0 ? totalTokens / (elapsedNanos / 1e9) : 0;
+        double allocationPerSentence = allocatedBefore >= 0 && totalSentences > 0
+                ? (double) (allocatedAfter - allocatedBefore) / totalSentences
+                : 0;
+
+        return new BenchmarkResult(taggerName, totalSentences, totalTokens, throughput,
+                percentile(latencies, 0.50) / 1000.0, percentile(latencies, 0.99) / 1000.0,
+                allocationPerSentence, peakHeap);
+    }
+
+    private static long percentile(long[] sortedValues, double fraction) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, Math.min(rank, sortedValues.length - 1))];
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread, or -1 if the JVM cannot report it
+     */
+    private static long currentThreadAllocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void resetHeapPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long heapPeaks() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -3,10 +3,17 @@ package com.extraterrestrial.intelligence.data;
 public class TaggerWord {
     private String word;
     private String tag;
+    // Named entity label (e.g. "O", "B-geo"), empty when unknown
+    private String entity;
 
     public TaggerWord(String word, String tag) {
+        this(word, tag, "");
+    }
+
+    public TaggerWord(String word, String tag, String entity) {
         this.word = word;
         this.tag = tag;
+        this.entity = entity;
     }
 
     public String getWord() {
@@ -24,6 +31,14 @@ public class TaggerWord {
         this.tag = tag;
     }
 
+    public String getEntity() {
+        return entity;
+    }
+
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+
     public String toString() {
         return word + "/" + tag;
     }
@@ -5,6 +5,7 @@ import com.extraterrestrial.intelligence.data.TaggerWord;
 import com.extraterrestrial.intelligence.model.*;
 import com.extraterrestrial.intelligence.repository.CSVDatasetRepository;
 import com.extraterrestrial.intelligence.repository.DatasetRepository;
+import com.extraterrestrial.intelligence.util.Tokenizer;
 
 import javax.swing.*;
 import javax.swing.border.*;
@@ -48,7 +49,10 @@ public class ModernPredictiveEditor extends JFrame {
     private Tagger unigramTagger;
     private Tagger bigramTagger;
     private Tagger trigramTagger;
-    private Tagger quadgramTagger;
+    private QuadGramTagger quadgramTagger;
+    
+    // Best tags of the analyzed sentence with their probabilities, reused by every analysis
+    private final TagScores tagScores = new TagScores(3);
     
     // Tag descriptions
     private static final Map<String, String> POS_TAG_DESCRIPTIONS = new HashMap<>() {{
@@ -485,8 +489,6 @@ public class ModernPredictiveEditor extends JFrame {
             suggestionPanel.setLayout(new BoxLayout(suggestionPanel, BoxLayout.Y_AXIS));
             
             // Add section headers and predictions for different n-gram models
-            String[] tokens = text.toLowerCase().split("\\s+");
-            int numTokens = tokens.length;
             int buttonIndex = 0;
             
             // Add a header for complete phrases
@@ -520,6 +522,10 @@ public class ModernPredictiveEditor extends JFrame {
             
             suggestionPanel.add(Box.createVerticalStrut(10));
             
+            // Tokenized after the phrases, which reuse this thread's tokenizer
+            Tokenizer tokens = Tokenizer.forCurrentThread().tokenize(text);
+            int numTokens = tokens.size();
+            
             // Add headers and predictions for different n-gram levels
             if (numTokens >= 1) {
                 // Header for next word predictions
@@ -535,8 +541,7 @@ public class ModernPredictiveEditor extends JFrame {
                 
                 // 4-gram (highest priority)
                 if (numTokens >= 4) {
-                    String context = tokens[numTokens-4] + " " + tokens[numTokens-3] + " " + 
-                            tokens[numTokens-2] + " " + tokens[numTokens-1];
+                    String context = tokens.joinLowerCase(numTokens - 4, numTokens);
                     List<String> quadPredictions = getTopPredictions(context, quadgramWordMap, 2);
                     for (String word : quadPredictions) {
                         allPredictions.put(word, "4-gram");
@@ -545,7 +550,7 @@ public class ModernPredictiveEditor extends JFrame {
                 
                 // 3-gram
                 if (numTokens >= 3) {
-                    String context = tokens[numTokens-3] + " " + tokens[numTokens-2] + " " + tokens[numTokens-1];
+                    String context = tokens.joinLowerCase(numTokens - 3, numTokens);
                     List<String> triPredictions = getTopPredictions(context, trigramWordMap, 2);
                     for (String word : triPredictions) {
                         allPredictions.putIfAbsent(word, "3-gram");
@@ -554,7 +559,7 @@ public class ModernPredictiveEditor extends JFrame {
                 
                 // 2-gram
                 if (numTokens >= 2) {
-                    String context = tokens[numTokens-2] + " " + tokens[numTokens-1];
+                    String context = tokens.joinLowerCase(numTokens - 2, numTokens);
                     List<String> biPredictions = getTopPredictions(context, bigramWordMap, 2);
                     for (String word : biPredictions) {
                         allPredictions.putIfAbsent(word, "2-gram");
@@ -562,7 +567,7 @@ public class ModernPredictiveEditor extends JFrame {
                 }
                 
                 // 1-gram (lowest priority)
-                String context = tokens[numTokens-1];
+                String context = tokens.lowerCaseToken(numTokens - 1);
                 List<String> uniPredictions = getTopPredictions(context, unigramWordMap, 2);
                 for (String word : uniPredictions) {
                     allPredictions.putIfAbsent(word, "1-gram");
@@ -623,18 +628,14 @@ public class ModernPredictiveEditor extends JFrame {
             doc.insertString(0, "POS Tagging Analysis\n\n", analysisPane.getStyle("heading"));
             
             // Tokenize text
-            String[] tokens = text.split("\\s+");
-            TaggedSentence sentence = new TaggedSentence();
-            for (String token : tokens) {
-                sentence.addWord(new TaggerWord(token, ""));
-            }
+            TaggedSentence sentence = Tokenizer.forCurrentThread().tokenize(text).toSentence();
             
-            // Tag the sentence with all taggers
-            List<TaggerWord> words = sentence.getWords();
+            // Tag the sentence once, with the probabilities of the best tags of every word
+            List<TaggerWord> words = quadgramTagger.tagSentence(sentence, tagScores).getWords();
             
             // Create a table header
-            doc.insertString(doc.getLength(), String.format("%-15s %-8s %-8s %-8s %-8s %-30s\n", 
-                    "Word", "1-gram", "2-gram", "3-gram", "4-gram", "Description"), 
+            doc.insertString(doc.getLength(), String.format("%-15s %-8s %-6s %-22s %-30s\n", 
+                    "Word", "Tag", "Conf", "Alternatives", "Description"), 
                     analysisPane.getStyle("heading"));
             doc.insertString(doc.getLength(), "-".repeat(80) + "\n", 
                     analysisPane.getStyle("regular"));
@@ -642,29 +643,28 @@ public class ModernPredictiveEditor extends JFrame {
             // Process each word
             for (int i = 0; i < words.size(); i++) {
                 String word = words.get(i).getWord();
+                String tag = words.get(i).getTag();
                 
-                String unigramTag = unigramTagger.predict(words, i);
-                String bigramTag = bigramTagger.predict(words, i);
-                String trigramTag = trigramTagger.predict(words, i);
-                String quadgramTag = quadgramTagger.predict(words, i);
-                
-                // Set the tag for subsequent predictions
-                words.get(i).setTag(quadgramTag);
+                // The other likely tags, most probable first
+                StringBuilder alternatives = new StringBuilder();
+                for (int rank = 0; rank < tagScores.candidates(i); rank++) {
+                    if (!tagScores.tag(i, rank).equals(tag)) {
+                        alternatives.append(String.format("%s %.2f  ", tagScores.tag(i, rank), tagScores.score(i, rank)));
+                    }
+                }
                 
-                String description = POS_TAG_DESCRIPTIONS.getOrDefault(quadgramTag, "");
+                String description = POS_TAG_DESCRIPTIONS.getOrDefault(tag, "");
                 
                 // Insert word
                 doc.insertString(doc.getLength(), String.format("%-15s ", word), 
                         analysisPane.getStyle("word"));
                 
-                // Insert tags
-                doc.insertString(doc.getLength(), String.format("%-8s ", unigramTag), 
-                        analysisPane.getStyle("tag"));
-                doc.insertString(doc.getLength(), String.format("%-8s ", bigramTag), 
+                // Insert the tag, its probability and the alternatives
+                doc.insertString(doc.getLength(), String.format("%-8s ", tag), 
                         analysisPane.getStyle("tag"));
-                doc.insertString(doc.getLength(), String.format("%-8s ", trigramTag), 
-                        analysisPane.getStyle("tag"));
-                doc.insertString(doc.getLength(), String.format("%-8s ", quadgramTag), 
+                doc.insertString(doc.getLength(), String.format("%-6.2f ", tagScores.scoreOf(i, tag)), 
+                        analysisPane.getStyle("regular"));
+                doc.insertString(doc.getLength(), String.format("%-22s ", alternatives.toString().trim()), 
                         analysisPane.getStyle("tag"));
                 
                 // Insert description
@@ -802,8 +802,8 @@ public class ModernPredictiveEditor extends JFrame {
         List<String> phrases = new ArrayList<>();
         Set<String> seen = new HashSet<>();
         
-        String[] tokens = text.toLowerCase().split("\\s+");
-        if (tokens.length == 0) {
+        Tokenizer tokens = Tokenizer.forCurrentThread().tokenize(text);
+        if (tokens.size() == 0) {
             return phrases;
         }
         
@@ -812,16 +812,16 @@ public class ModernPredictiveEditor extends JFrame {
         
         // Start with several possible next words
         List<String> nextWords = new ArrayList<>();
-        if (tokens.length >= 3) {
-            String context = tokens[tokens.length-3] + " " + tokens[tokens.length-2] + " " + tokens[tokens.length-1];
+        if (tokens.size() >= 3) {
+            String context = tokens.joinLowerCase(tokens.size() - 3, tokens.size());
             nextWords.addAll(getTopPredictions(context, trigramWordMap, 3));
         }
-        if (tokens.length >= 2) {
-            String context = tokens[tokens.length-2] + " " + tokens[tokens.length-1];
+        if (tokens.size() >= 2) {
+            String context = tokens.joinLowerCase(tokens.size() - 2, tokens.size());
             nextWords.addAll(getTopPredictions(context, bigramWordMap, 3));
         }
         
-        String context = tokens[tokens.length-1];
+        String context = tokens.lowerCaseToken(tokens.size() - 1);
         nextWords.addAll(getTopPredictions(context, unigramWordMap, 3));
         
         // Remove duplicates and limit
@@ -833,30 +833,29 @@ public class ModernPredictiveEditor extends JFrame {
             
             // Now iteratively add more words
             for (int i = 1; i < wordsToAdd; i++) {
-                String[] currentTokens = currentPhrase.toLowerCase().split("\\s+");
-                int len = currentTokens.length;
+                Tokenizer currentTokens = Tokenizer.forCurrentThread().tokenize(currentPhrase);
+                int len = currentTokens.size();
                 
                 // Try each n-gram model in turn, from highest to lowest
                 List<String> predictions = new ArrayList<>();
                 
                 if (len >= 4) {
-                    String ctx = currentTokens[len-4] + " " + currentTokens[len-3] + " " + 
-                            currentTokens[len-2] + " " + currentTokens[len-1];
+                    String ctx = currentTokens.joinLowerCase(len - 4, len);
                     predictions = getTopPredictions(ctx, quadgramWordMap, 1);
                 }
                 
                 if (predictions.isEmpty() && len >= 3) {
-                    String ctx = currentTokens[len-3] + " " + currentTokens[len-2] + " " + currentTokens[len-1];
+                    String ctx = currentTokens.joinLowerCase(len - 3, len);
                     predictions = getTopPredictions(ctx, trigramWordMap, 1);
                 }
                 
                 if (predictions.isEmpty() && len >= 2) {
-                    String ctx = currentTokens[len-2] + " " + currentTokens[len-1];
+                    String ctx = currentTokens.joinLowerCase(len - 2, len);
                     predictions = getTopPredictions(ctx, bigramWordMap, 1);
                 }
                 
                 if (predictions.isEmpty() && len >= 1) {
-                    String ctx = currentTokens[len-1];
+                    String ctx = currentTokens.lowerCaseToken(len - 1);
                     predictions = getTopPredictions(ctx, unigramWordMap, 1);
                 }
                 
@@ -5,6 +5,7 @@ import com.extraterrestrial.intelligence.data.TaggerWord;
 import com.extraterrestrial.intelligence.model.*;
 import com.extraterrestrial.intelligence.repository.CSVDatasetRepository;
 import com.extraterrestrial.intelligence.repository.DatasetRepository;
+import com.extraterrestrial.intelligence.util.Tokenizer;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
@@ -348,14 +349,7 @@ public class PredictiveEditor extends JFrame {
         }
         
         // Tokenize the text
-        String[] tokens = text.split("\\s+");
-        List<String> words = new ArrayList<>(Arrays.asList(tokens));
-        
-        // Create a TaggedSentence
-        TaggedSentence sentence = new TaggedSentence();
-        for (String word : words) {
-            sentence.addWord(new TaggerWord(word, ""));
-        }
+        TaggedSentence sentence = Tokenizer.forCurrentThread().tokenize(text).toSentence();
         
         // Analyze with all taggers
         StringBuilder result = new StringBuilder();
@@ -1,6 +1,7 @@
 package com.extraterrestrial.intelligence.gui;
 
 import com.extraterrestrial.intelligence.model.SemanticModel;
+import com.extraterrestrial.intelligence.util.Tokenizer;
 
 import javax.swing.*;
 import javax.swing.border.Border;
@@ -482,7 +483,7 @@ public class SmartEditor extends JFrame {
         }
         
         // Get the current text and tokenize it
-        String[] tokens = text.split("\\s+");
+        Tokenizer tokens = Tokenizer.forCurrentThread().tokenize(text);
         
         // Update status pane with analysis
         StyledDocument doc = statusPane.getStyledDocument();
@@ -491,13 +492,13 @@ public class SmartEditor extends JFrame {
             doc.insertString(0, "Text Analysis\n\n", doc.getStyle("heading"));
             
             doc.insertString(doc.getLength(), "Words: ", doc.getStyle("emphasis"));
-            doc.insertString(doc.getLength(), tokens.length + "\n", doc.getStyle("regular"));
+            doc.insertString(doc.getLength(), tokens.size() + "\n", doc.getStyle("regular"));
             
             // Analyze word by word
             doc.insertString(doc.getLength(), "\nWord-by-word analysis:\n", doc.getStyle("heading"));
             
-            for (String token : tokens) {
-                doc.insertString(doc.getLength(), token + ": ", doc.getStyle("emphasis"));
+            for (int i = 0; i < tokens.size(); i++) {
+                doc.insertString(doc.getLength(), tokens.token(i) + ": ", doc.getStyle("emphasis"));
                 
                 // Get POS tag if available
                 String pos = "Unknown";
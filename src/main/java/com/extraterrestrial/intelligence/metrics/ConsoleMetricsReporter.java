@@ -0,0 +1,19 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import java.util.List;
+
+/**
+ * Prints latency snapshots to standard output
+ */
+public class ConsoleMetricsReporter implements MetricsReporter {
+
+    @Override
+    public void report(List<HistogramSnapshot> snapshots) {
+        System.out.println("=== Latency metrics ===");
+        for (HistogramSnapshot snapshot : snapshots) {
+            if (snapshot.getCount() > 0) {
+                System.out.println(snapshot);
+            }
+        }
+    }
+}
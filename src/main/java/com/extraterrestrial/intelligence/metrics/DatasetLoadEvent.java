@@ -0,0 +1,26 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering the load of a tagged dataset from disk
+ */
+@Name("com.extraterrestrial.intelligence.DatasetLoad")
+@Label("Dataset Load")
+@Category({"N-Gram POS Tagger", "Model"})
+@Description("Reading and parsing a tagged dataset file")
+public class DatasetLoadEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Sentences")
+    public int sentences;
+
+    @Label("Tokens")
+    public long tokens;
+}
@@ -0,0 +1,68 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-overhead counters for the decision branches of a tagger's predict method.
+ *
+ * Branches are registered once by name and then addressed by their index, so counting a
+ * decision is a single striped {@link LongAdder} increment that is safe from any thread.
+ */
+public class DecisionCounters {
+
+    private final String owner;
+    private final String[] branches;
+    private final LongAdder[] counters;
+
+    public DecisionCounters(String owner, String... branches) {
+        this.owner = owner;
+        this.branches = branches.clone();
+        this.counters = new LongAdder[branches.length];
+        for (int i = 0; i < branches.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Count one decision taken through the given branch
+     * @param branch Index of the branch in the names passed to the constructor
+     */
+    public void increment(int branch) {
+        counters[branch].increment();
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Total number of decisions counted across all branches
+     */
+    public long total() {
+        long total = 0;
+        for (LongAdder counter : counters) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Current count per branch, in registration order.
+     * Counts are read without stopping writers, so concurrent increments may or may not be included.
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        for (int i = 0; i < branches.length; i++) {
+            snapshot.put(branches[i], counters[i].sum());
+        }
+        return snapshot;
+    }
+
+    public void reset() {
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.extraterrestrial.intelligence.metrics;
+
+/**
+ * Point-in-time view of a {@link LatencyHistogram}; all latencies are in nanoseconds
+ */
+public class HistogramSnapshot {
+
+    private final String name;
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    public HistogramSnapshot(String name, long count, double mean, long p50, long p90, long p99, long p999, long max) {
+        this.name = name;
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-40s n=%-9d mean %9.1fus  p50 %9.1fus  p90 %9.1fus  p99 %9.1fus  p99.9 %9.1fus  max %9.1fus",
+                name, count, mean / 1000.0, p50 / 1000.0, p90 / 1000.0, p99 / 1000.0, p999 / 1000.0, max / 1000.0);
+    }
+}
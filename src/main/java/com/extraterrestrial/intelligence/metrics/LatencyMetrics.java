@@ -0,0 +1,122 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of per-operation latency histograms for the tagging and prediction calls.
+ *
+ * Instrumentation is off by default. Call sites take a timestamp with {@link #start()}, which
+ * costs a single volatile read and returns 0 while disabled, and hand it to
+ * {@link LatencyHistogram#recordSince(long)}, which then records nothing.
+ * Enable with {@code -Dtagger.metrics=true}, {@link #setEnabled(boolean)} or through JMX.
+ */
+public class LatencyMetrics {
+
+    public static final String ENABLED_PROPERTY = "tagger.metrics";
+    public static final String OBJECT_NAME = "com.extraterrestrial.intelligence:type=LatencyMetrics";
+
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final ConcurrentMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService reporterExecutor;
+
+    private LatencyMetrics() {}
+
+    /**
+     * Timestamp for the start of an instrumented call
+     * @return System.nanoTime(), or 0 when metrics are disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * The histogram for an operation, created on first use.
+     * Call sites look this up once and keep the reference.
+     */
+    public static LatencyHistogram histogram(String operation) {
+        return HISTOGRAMS.computeIfAbsent(operation, LatencyHistogram::new);
+    }
+
+    /**
+     * The histogram for an operation if one has been registered
+     * @return The histogram, or null for an unknown operation
+     */
+    public static LatencyHistogram find(String operation) {
+        return HISTOGRAMS.get(operation);
+    }
+
+    /**
+     * Snapshots of all registered histograms, sorted by operation name
+     */
+    public static List<HistogramSnapshot> snapshots() {
+        List<HistogramSnapshot> snapshots = new ArrayList<>();
+        for (LatencyHistogram histogram : HISTOGRAMS.values()) {
+            snapshots.add(histogram.snapshot());
+        }
+        snapshots.sort(Comparator.comparing(HistogramSnapshot::getName));
+        return snapshots;
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Register the {@link LatencyMetricsMBean} with the platform MBean server (idempotent)
+     */
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new StandardMBean(new LatencyMetricsMBeanImpl(), LatencyMetricsMBean.class), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Error registering latency metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hand snapshots to a reporter at a fixed rate on a daemon thread, replacing any previous reporter
+     */
+    public static synchronized void startReporting(MetricsReporter reporter, long period, TimeUnit unit) {
+        stopReporting();
+        reporterExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "latency-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporterExecutor.scheduleAtFixedRate(() -> reporter.report(snapshots()), period, period, unit);
+    }
+
+    public static synchronized void stopReporting() {
+        if (reporterExecutor != null) {
+            reporterExecutor.shutdownNow();
+            reporterExecutor = null;
+        }
+    }
+}
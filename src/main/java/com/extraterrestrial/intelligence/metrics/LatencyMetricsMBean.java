@@ -0,0 +1,31 @@
+package com.extraterrestrial.intelligence.metrics;
+
+/**
+ * JMX view of the latency histograms; latencies are reported in microseconds
+ */
+public interface LatencyMetricsMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Names of the instrumented operations, e.g. "QuadGramTagger.tagSentence"
+     */
+    String[] getOperations();
+
+    long getCount(String operation);
+
+    double getMeanMicros(String operation);
+
+    double getPercentileMicros(String operation, double percentile);
+
+    double getMaxMicros(String operation);
+
+    /**
+     * One summary line per operation
+     */
+    String[] getSummary();
+
+    void reset();
+}
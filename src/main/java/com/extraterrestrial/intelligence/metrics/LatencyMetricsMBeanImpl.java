@@ -0,0 +1,74 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import java.util.List;
+
+/**
+ * Exposes {@link LatencyMetrics} through JMX
+ */
+class LatencyMetricsMBeanImpl implements LatencyMetricsMBean {
+
+    @Override
+    public boolean isEnabled() {
+        return LatencyMetrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        LatencyMetrics.setEnabled(enabled);
+    }
+
+    @Override
+    public String[] getOperations() {
+        List<HistogramSnapshot> snapshots = LatencyMetrics.snapshots();
+        String[] operations = new String[snapshots.size()];
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = snapshots.get(i).getName();
+        }
+        return operations;
+    }
+
+    @Override
+    public long getCount(String operation) {
+        return histogram(operation).getCount();
+    }
+
+    @Override
+    public double getMeanMicros(String operation) {
+        return histogram(operation).snapshot().getMean() / 1000.0;
+    }
+
+    @Override
+    public double getPercentileMicros(String operation, double percentile) {
+        // Accept both 99 and 0.99
+        double fraction = percentile > 1 ? percentile / 100.0 : percentile;
+        return histogram(operation).valueAtPercentile(fraction) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros(String operation) {
+        return histogram(operation).snapshot().getMax() / 1000.0;
+    }
+
+    @Override
+    public String[] getSummary() {
+        List<HistogramSnapshot> snapshots = LatencyMetrics.snapshots();
+        String[] summary = new String[snapshots.size()];
+        for (int i = 0; i < summary.length; i++) {
+            summary[i] = snapshots.get(i).toString();
+        }
+        return summary;
+    }
+
+    @Override
+    public void reset() {
+        LatencyMetrics.reset();
+    }
+
+    private static LatencyHistogram histogram(String operation) {
+        LatencyHistogram histogram = LatencyMetrics.find(operation);
+        if (histogram == null) {
+            throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+        return histogram;
+    }
+}
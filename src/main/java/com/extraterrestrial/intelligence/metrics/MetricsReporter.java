@@ -0,0 +1,14 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import java.util.List;
+
+/**
+ * Receives periodic latency snapshots, e.g. to print them or push them to a monitoring system
+ */
+public interface MetricsReporter {
+
+    /**
+     * @param snapshots One snapshot per instrumented operation, sorted by name
+     */
+    void report(List<HistogramSnapshot> snapshots);
+}
@@ -0,0 +1,27 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering the load, warm-up and swap of a model generation
+ */
+@Name("com.extraterrestrial.intelligence.ModelSwap")
+@Label("Model Swap")
+@Category({"N-Gram POS Tagger", "Model"})
+@Description("Loading a model generation off the serving path and making it current")
+public class ModelSwapEvent extends Event {
+
+    @Label("Generation")
+    public long generation;
+
+    @Label("Previous Generation")
+    @Description("The generation that was replaced, 0 if there was none")
+    public long previousGeneration;
+
+    @Label("Warm-up Sentences")
+    public int warmupSentences;
+}
@@ -0,0 +1,29 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering SemanticModel.buildModels
+ */
+@Name("com.extraterrestrial.intelligence.SemanticModelBuild")
+@Label("Semantic Model Build")
+@Category({"N-Gram POS Tagger", "Model"})
+@Description("Building the word relationship and n-gram prediction models")
+public class SemanticModelBuildEvent extends Event {
+
+    @Label("Sentences")
+    public int sentences;
+
+    @Label("Unigram Keys")
+    public int unigramKeys;
+
+    @Label("Bigram Keys")
+    public int bigramKeys;
+
+    @Label("Trigram Keys")
+    public int trigramKeys;
+}
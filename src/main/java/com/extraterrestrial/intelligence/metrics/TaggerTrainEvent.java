@@ -0,0 +1,27 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering one tagger's train call
+ */
+@Name("com.extraterrestrial.intelligence.TaggerTrain")
+@Label("Tagger Training")
+@Category({"N-Gram POS Tagger", "Model"})
+@Description("Counting the training sentences into a tagger's frequency tables")
+public class TaggerTrainEvent extends Event {
+
+    @Label("Tagger")
+    public String tagger;
+
+    @Label("Sentences")
+    public int sentences;
+
+    @Label("Contexts")
+    @Description("Distinct contexts (or words, for the unigram tagger) in the trained table")
+    public int contexts;
+}
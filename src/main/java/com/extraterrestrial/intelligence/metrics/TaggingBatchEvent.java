@@ -0,0 +1,26 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering the tagging of a batch of sentences
+ */
+@Name("com.extraterrestrial.intelligence.TaggingBatch")
+@Label("Tagging Batch")
+@Category({"N-Gram POS Tagger", "Tagging"})
+@Description("Tagging a batch of sentences, e.g. one evaluation fold")
+public class TaggingBatchEvent extends Event {
+
+    @Label("Tagger")
+    public String tagger;
+
+    @Label("Sentences")
+    public int sentences;
+
+    @Label("Tokens")
+    public long tokens;
+}
@@ -2,11 +2,22 @@ package com.extraterrestrial.intelligence.model;
 
 import com.extraterrestrial.intelligence.data.TaggedSentence;
 import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.DecisionCounters;
+import com.extraterrestrial.intelligence.metrics.LatencyHistogram;
+import com.extraterrestrial.intelligence.metrics.LatencyMetrics;
+import com.extraterrestrial.intelligence.metrics.TaggerTrainEvent;
+import com.extraterrestrial.intelligence.metrics.TaggingBatchEvent;
+import com.extraterrestrial.intelligence.util.WordShapeUtil;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Abstract base class for all n-gram taggers
@@ -15,12 +26,150 @@ public abstract class AbstractNGramTagger implements Tagger {
     
     protected Tagger backoffTagger;
     
+    // Counts which branch of predict produced each decision
+    protected final DecisionCounters decisionCounters;
+    
+    // Per-call latency of tagSentence, recorded only while LatencyMetrics is enabled
+    private final LatencyHistogram tagSentenceLatency;
+    
+    // Optional dictionary of unambiguous words consulted before predict, with the chain
+    // version it was attached at
+    private final AtomicReference<AttachedLexicon> fastPath = new AtomicReference<>();
+    
+    // Bumped whenever train, update or compact change this level's counts
+    private final AtomicLong countsVersion = new AtomicLong();
+    
+    // Mass the higher levels leave below which the lower levels are not looked up for scores
+    private static final double NEGLIGIBLE_MASS = 1e-3;
+    
+    // The n-gram levels of the chain whose distributions are mixed into scores, this one first
+    private final List<AbstractNGramTagger> scoringLevels = new ArrayList<>();
+    
+    // Optional entity tagger that labels the words once their POS tags are final
+    private volatile EntityTagger entityTagger;
+    
+    // Storage of the trained context counts; null keeps them exact
+    private CountQuantizer countQuantizer = CountQuantizer.fromSystemProperty();
+    
     public AbstractNGramTagger(Tagger backoffTagger) {
+        this(backoffTagger, new String[0]);
+    }
+    
+    /**
+     * @param backoffTagger The tagger to fall back to
+     * @param decisionBranches Names of the decision branches counted by predict, indexed by the subclass
+     */
+    protected AbstractNGramTagger(Tagger backoffTagger, String... decisionBranches) {
         this.backoffTagger = backoffTagger;
+        this.decisionCounters = new DecisionCounters(getClass().getSimpleName(), decisionBranches);
+        this.tagSentenceLatency = LatencyMetrics.histogram(getClass().getSimpleName() + ".tagSentence");
+        for (Tagger tagger = this; tagger != null; tagger = tagger.getBackoffTagger()) {
+            if (tagger instanceof AbstractNGramTagger) {
+                scoringLevels.add((AbstractNGramTagger) tagger);
+            }
+        }
+    }
+    
+    @Override
+    public Tagger getBackoffTagger() {
+        return backoffTagger;
+    }
+    
+    @Override
+    public DecisionCounters getDecisionCounters() {
+        return decisionCounters;
+    }
+    
+    /**
+     * The attached lexicon, or null if none is attached or the chain's counts changed since
+     */
+    public FastPathLexicon getFastPathLexicon() {
+        AttachedLexicon attached = fastPath.get();
+        if (attached == null) {
+            return null;
+        }
+        if (attached.chainVersion != chainVersion()) {
+            // Its words were only checked against the old counts
+            fastPath.compareAndSet(attached, null);
+            return null;
+        }
+        return attached.lexicon;
+    }
+    
+    /**
+     * Tag the words of a lexicon directly in tagSentence, without entering predict.
+     * The lexicon is dropped as soon as train, update or compact changes the counts of any
+     * n-gram level of this tagger's chain, and has to be rebuilt and attached again.
+     * @param fastPathLexicon A lexicon built for this tagger from its current counts, or null
+     *                        to disable the fast path
+     */
+    public void setFastPathLexicon(FastPathLexicon fastPathLexicon) {
+        fastPath.set(fastPathLexicon != null ? new AttachedLexicon(fastPathLexicon, chainVersion()) : null);
+    }
+    
+    /**
+     * Record that this level's counts changed, which drops the fast-path lexicons of the
+     * taggers whose chain includes it
+     */
+    protected void countsChanged() {
+        countsVersion.incrementAndGet();
+    }
+    
+    // Sum of the counts versions of the chain's n-gram levels, which only grows
+    private long chainVersion() {
+        long version = 0;
+        for (AbstractNGramTagger level : scoringLevels) {
+            version += level.countsVersion.get();
+        }
+        return version;
+    }
+    
+    public EntityTagger getEntityTagger() {
+        return entityTagger;
+    }
+    
+    /**
+     * Label named entities in tagSentence, from the POS tags after post-processing
+     * @param entityTagger A trained entity tagger, or null to leave the labels empty
+     */
+    public void setEntityTagger(EntityTagger entityTagger) {
+        this.entityTagger = entityTagger;
+    }
+    
+    public CountQuantizer getCountQuantizer() {
+        return countQuantizer;
+    }
+    
+    /**
+     * Store the context counts of the next training run as quantized codes.
+     * Defaults to {@code -Dtagger.countBits}.
+     * @param countQuantizer The quantizer, or null for exact counts
+     */
+    public void setCountQuantizer(CountQuantizer countQuantizer) {
+        this.countQuantizer = countQuantizer;
+    }
+    
+    /**
+     * Count a decision branch and return its tag, so each return in predict stays a one-liner
+     */
+    protected String decide(int branch, String tag) {
+        decisionCounters.increment(branch);
+        return tag;
     }
     
     @Override
     public TaggedSentence tagSentence(TaggedSentence sentence) {
+        return tagSentence(sentence, null);
+    }
+    
+    /**
+     * Tag a sentence as {@link #tagSentence(TaggedSentence)} does, and record the n best tags of
+     * every word with their probabilities, from the distributions of the chain's contexts at the
+     * point each tag is chosen
+     * @param scores Buffer to fill, replacing its previous sentence; null to only tag
+     */
+    public TaggedSentence tagSentence(TaggedSentence sentence, TagScores scores) {
+        long start = LatencyMetrics.start();
         List<TaggerWord> originalWords = sentence.getWords();
         List<TaggerWord> taggedWords = new ArrayList<>();
         
@@ -34,18 +183,41 @@ public abstract class AbstractNGramTagger implements Tagger {
         // First pass: Special case handling for known patterns
         preprocessSpecialCases(workingCopy);
         
+        FastPathLexicon lexicon = getFastPathLexicon();
+        
+        if (scores != null) {
+            scores.reset(originalWords.size());
+        }
+        
         // Second pass: Process each word in sequence, using previously assigned tags
         for (int i = 0; i < originalWords.size(); i++) {
             // Special handling for punctuation, numbers, and other special cases
             if (isSpecialCase(workingCopy.get(i).getWord())) {
                 String specialCaseTag = getSpecialCaseTag(workingCopy.get(i).getWord());
+                if (scores != null) {
+                    // Rule-based, so certain
+                    scores.score(i, null, 0, specialCaseTag);
+                }
                 workingCopy.set(i, new TaggerWord(originalWords.get(i).getWord(), specialCaseTag));
                 taggedWords.add(new TaggerWord(originalWords.get(i).getWord(), specialCaseTag));
                 continue;
             }
             
+            // Unambiguous words skip the chain, unless preprocessing already tagged them
+            String predictedTag = null;
+            if (lexicon != null && workingCopy.get(i).getTag().isEmpty()) {
+                predictedTag = lexicon.lookup(workingCopy.get(i).getWord(), i);
+            }
+            
             // Use the normal prediction mechanism for regular words
-            String predictedTag = predict(workingCopy, i);
+            if (predictedTag == null) {
+                predictedTag = predict(workingCopy, i);
+            }
+            
+            // Score while the working copy still holds the context the tag was chosen in
+            if (scores != null) {
+                score(scores, workingCopy, i, predictedTag);
+            }
             
             // Update the working copy with the predicted tag
             workingCopy.set(i, new TaggerWord(originalWords.get(i).getWord(), predictedTag));
@@ -57,9 +229,59 @@ public abstract class AbstractNGramTagger implements Tagger {
         // Final pass: Apply post-processing rules to fix common patterns and ensure consistency
         postprocessTags(taggedWords);
         
+        // Label entities from the final tags, so a rule that retags a word also informs its label
+        EntityTagger entities = entityTagger;
+        if (entities != null) {
+            String previousEntity = "";
+            for (TaggerWord word : taggedWords) {
+                previousEntity = entities.predict(word.getWord(), WordShapeUtil.getWordShape(word.getWord()),
+                        word.getTag(), previousEntity);
+                word.setEntity(previousEntity);
+            }
+        }
+        
+        // Words a rule retagged are rescored around their final tag; the working copy still
+        // holds the tags their contexts were looked up with
+        if (scores != null) {
+            for (int i = 0; i < taggedWords.size(); i++) {
+                String finalTag = taggedWords.get(i).getTag();
+                if (!finalTag.equals(workingCopy.get(i).getTag())) {
+                    score(scores, workingCopy, i, finalTag);
+                }
+            }
+        }
+        
+        tagSentenceLatency.recordSince(start);
         return new TaggedSentence(taggedWords);
     }
     
+    /**
+     * Score a word from the distributions of its context, highest level first, until the levels
+     * below could no longer change the result
+     */
+    private void score(TagScores scores, List<TaggerWord> sentence, int position, String chosenTag) {
+        TagDistribution[] distributions = scores.levelBuffer(scoringLevels.size());
+        int found = 0;
+        while (found < scoringLevels.size() && scores.remainingMass(distributions, found) >= NEGLIGIBLE_MASS) {
+            distributions[found] = scoringLevels.get(found).contextDistribution(sentence, position);
+            found++;
+        }
+        scores.score(position, distributions, found, chosenTag);
+    }
+    
+    /**
+     * Finish and commit the Flight Recorder event begun at the start of train
+     */
+    protected void commitTrainEvent(TaggerTrainEvent event, int sentences, int contexts) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.tagger = getClass().getSimpleName();
+            event.sentences = sentences;
+            event.contexts = contexts;
+            event.commit();
+        }
+    }
+    
     /**
      * Pre-process special cases in the sentence
      */
@@ -123,6 +345,9 @@ public abstract class AbstractNGramTagger implements Tagger {
         int totalWords = 0;
         int correctPredictions = 0;
         
+        TaggingBatchEvent batchEvent = new TaggingBatchEvent();
+        batchEvent.begin();
+        
         for (TaggedSentence sentence : testSentences) {
             // Tag the entire sentence using the tagger's tagSentence method
             // This ensures we're using the predicted tags for context
@@ -142,14 +367,233 @@ public abstract class AbstractNGramTagger implements Tagger {
             }
         }
         
+        batchEvent.end();
+        if (batchEvent.shouldCommit()) {
+            batchEvent.tagger = getClass().getSimpleName();
+            batchEvent.sentences = testSentences.size();
+            batchEvent.tokens = totalWords;
+            batchEvent.commit();
+        }
+        
         return totalWords > 0 ? (double) correctPredictions / totalWords * 100 : 0;
     }
     
     /**
-     * Get the context (previous n-1 words and tags) for a given position
+     * Count the context of every word of the training sentences
+     */
+    protected ContextTable countContexts(List<TaggedSentence> trainingSentences) {
+        return countContexts(trainingSentences, 0);
+    }
+    
+    /**
+     * Count the context of every word of the training sentences into a table with a miss filter
+     * @param filterBitsPerKey Size of the filter in bits per context, or 0 for none
+     */
+    protected ContextTable countContexts(List<TaggedSentence> trainingSentences, int filterBitsPerKey) {
+        ContextTable.Builder builder = new ContextTable.Builder();
+        for (TaggedSentence sentence : trainingSentences) {
+            List<TaggerWord> words = sentence.getWords();
+            for (int i = 0; i < words.size(); i++) {
+                builder.add(contextKey(words, i), words.get(i).getTag());
+            }
+        }
+        ContextTable contextTable = builder.build(filterBitsPerKey);
+        return countQuantizer != null ? contextTable.quantize(countQuantizer) : contextTable;
+    }
+    
+    /**
+     * Add the counts of one sentence to the trained model, without retraining
+     */
+    public void update(TaggedSentence sentence) {
+        updateBatch(Collections.singletonList(sentence));
+    }
+    
+    /**
+     * Add the counts of sentences to the trained model, without retraining. Like train, this
+     * only updates this tagger; {@link #updateChain} updates every level of a chain.
+     * Safe to call from several threads while others tag, but not during train or compact.
+     */
+    public void updateBatch(List<TaggedSentence> sentences) {
+        ContextTable contextTable = getContextTable();
+        if (contextTable == null) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " has no context table");
+        }
+        for (TaggedSentence sentence : sentences) {
+            List<TaggerWord> words = sentence.getWords();
+            for (int i = 0; i < words.size(); i++) {
+                contextTable.add(contextKey(words, i), words.get(i).getTag());
+            }
+        }
+        countsChanged();
+    }
+    
+    /**
+     * Add sentences to every n-gram tagger of a backoff chain
+     * @param topTagger The highest-order tagger of the chain
+     */
+    public static void updateChain(Tagger topTagger, List<TaggedSentence> sentences) {
+        for (Tagger tagger = topTagger; tagger != null; tagger = tagger.getBackoffTagger()) {
+            if (tagger instanceof AbstractNGramTagger) {
+                ((AbstractNGramTagger) tagger).updateBatch(sentences);
+            }
+        }
+    }
+    
+    /**
+     * The trained context counts
+     * @return The table, or null for taggers that do not keep one
+     */
+    public ContextTable getContextTable() {
+        return null;
+    }
+    
+    /**
+     * Replace the context counts, e.g. with a compacted table
+     */
+    protected void setContextTable(ContextTable contextTable) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " has no context table");
+    }
+    
+    /**
+     * The counts predict consults at a position: the distribution of its context
+     * @return The distribution, or null if the context was never seen or the tagger keeps no counts
+     */
+    TagDistribution contextDistribution(List<TaggerWord> sentence, int position) {
+        ContextTable table = getContextTable();
+        return table != null ? table.get(contextKey(sentence, position)) : null;
+    }
+    
+    /**
+     * Whether predict can ever use a context with this distribution; contexts it would
+     * ignore are dropped by {@link #compact}
+     */
+    protected boolean isUsableContext(TagDistribution tagDistribution) {
+        return true;
+    }
+    
+    /**
+     * Post-training compaction of the context table.
+     *
+     * Drops the contexts seen fewer than minCount times, and those whose distribution adds
+     * nothing over the backoff level: the backoff tagger's distributions at the same training
+     * positions are averaged per context, and a context goes if its count-weighted relative
+     * entropy (KL divergence, in nats) to that average is below minRelativeEntropy.
+     * Contexts whose backoff context is missing are never dropped as redundant.
+     * Must not run concurrently with {@link #update} on the same tagger.
+     *
+     * @param trainingSentences The sentences the tagger was trained on
+     * @param minCount Minimum number of occurrences of a context
+     * @param minRelativeEntropy Minimum weighted relative entropy to the backoff, or 0 to keep redundant contexts
+     * @return What was removed
+     */
+    public CompactionResult compact(List<TaggedSentence> trainingSentences, int minCount, double minRelativeEntropy) {
+        ContextTable table = getContextTable();
+        if (table == null) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " has no context table");
+        }
+        AbstractNGramTagger backoffLevel = backoffTagger instanceof AbstractNGramTagger
+                ? (AbstractNGramTagger) backoffTagger : null;
+        ContextTable backoffTable = backoffLevel != null ? backoffLevel.getContextTable() : null;
+        
+        // Sum of the backoff's normalized distributions over each context's occurrences, keyed
+        // by the context's distribution, which is unique to it while no update runs
+        Map<TagDistribution, Map<String, Double>> backoffMass = new IdentityHashMap<>();
+        Set<TagDistribution> backoffMissing = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (backoffTable != null && minRelativeEntropy > 0) {
+            for (TaggedSentence sentence : trainingSentences) {
+                List<TaggerWord> words = sentence.getWords();
+                for (int i = 0; i < words.size(); i++) {
+                    ContextKeyBuilder key = contextKey(words, i);
+                    TagDistribution distribution = table.find(key.key(), key.fingerprint());
+                    if (distribution == null || backoffMissing.contains(distribution)) {
+                        continue;
+                    }
+                    
+                    key = backoffLevel.contextKey(words, i);
+                    TagDistribution backoff = backoffTable.find(key.key(), key.fingerprint());
+                    if (backoff == null) {
+                        backoffMissing.add(distribution);
+                        continue;
+                    }
+                    Map<String, Double> mass = backoffMass.computeIfAbsent(distribution, d -> new HashMap<>());
+                    for (int t = 0; t < backoff.size(); t++) {
+                        mass.merge(backoff.tag(t), (double) backoff.count(t) / backoff.total(), Double::sum);
+                    }
+                }
+            }
+        }
+        
+        int[] dropped = new int[2];
+        ContextTable compacted = table.retain(distribution -> {
+            if (distribution.total() < minCount || !isUsableContext(distribution)) {
+                dropped[0]++;
+                return false;
+            }
+            if (backoffMass.containsKey(distribution) && !backoffMissing.contains(distribution)
+                    && relativeEntropy(distribution, backoffMass.get(distribution)) < minRelativeEntropy) {
+                dropped[1]++;
+                return false;
+            }
+            return true;
+        });
+        setContextTable(compacted);
+        countsChanged();
+        return new CompactionResult(getClass().getSimpleName(), table.size(), dropped[0], dropped[1],
+                table.estimatedBytes(), compacted.estimatedBytes());
+    }
+    
+    /**
+     * Count-weighted KL divergence of a context's distribution from the backoff mass,
+     * smoothed so tags the backoff never predicts stay finite
+     */
+    private static double relativeEntropy(TagDistribution distribution, Map<String, Double> backoffMass) {
+        final double smoothing = 0.1;
+        int vocabulary = backoffMass.size();
+        for (int t = 0; t < distribution.size(); t++) {
+            if (!backoffMass.containsKey(distribution.tag(t))) {
+                vocabulary++;
+            }
+        }
+        
+        double massTotal = 0;
+        for (double mass : backoffMass.values()) {
+            massTotal += mass;
+        }
+        
+        double divergence = 0;
+        for (int t = 0; t < distribution.size(); t++) {
+            double p = (double) distribution.count(t) / distribution.total();
+            double q = (backoffMass.getOrDefault(distribution.tag(t), 0.0) + smoothing)
+                    / (massTotal + smoothing * vocabulary);
+            divergence += p * Math.log(p / q);
+        }
+        return distribution.total() * divergence;
+    }
+    
+    /**
+     * The context key of a position, held in the calling thread's builder until its next use
+     */
+    protected ContextKeyBuilder contextKey(List<TaggerWord> sentence, int position) {
+        ContextKeyBuilder key = ContextKeyBuilder.forCurrentThread();
+        buildContext(sentence, position, key);
+        return key;
+    }
+    
+    /**
+     * Mix the context (previous n-1 words and tags) of a position into a key
      * @param sentence The sentence
      * @param position The current position
-     * @return A context string representing the context
+     * @param key The builder to reset and fill
      */
-    protected abstract String getContext(List<TaggerWord> sentence, int position);
-}
\ No newline at end of file
+    protected abstract void buildContext(List<TaggerWord> sentence, int position, ContextKeyBuilder key);
+    
+    private static final class AttachedLexicon {
+        final FastPathLexicon lexicon;
+        final long chainVersion;
+        
+        AttachedLexicon(FastPathLexicon lexicon, long chainVersion) {
+            this.lexicon = lexicon;
+            this.chainVersion = chainVersion;
+        }
+    }
+}
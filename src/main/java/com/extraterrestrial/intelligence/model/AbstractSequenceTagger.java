@@ -0,0 +1,149 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.LatencyHistogram;
+import com.extraterrestrial.intelligence.metrics.LatencyMetrics;
+import com.extraterrestrial.intelligence.metrics.TaggingBatchEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class for taggers that decode a whole sentence at once over {@link HmmScoreTables}
+ * instead of tagging word by word through the backoff chain.
+ *
+ * Words not seen in training get the single tag guessed by the unigram tagger's backoff
+ * (shape and suffix rules).
+ */
+public abstract class AbstractSequenceTagger implements Tagger {
+
+    protected final UniGramTagger unigramTagger;
+    protected final BiGramTagger bigramTagger;
+    protected volatile HmmScoreTables scoreTables;
+
+    private final LatencyHistogram tagSentenceLatency;
+
+    /**
+     * @param unigramTagger Source of the emission counts
+     * @param bigramTagger Source of the tag transition counts
+     */
+    protected AbstractSequenceTagger(UniGramTagger unigramTagger, BiGramTagger bigramTagger) {
+        this.unigramTagger = unigramTagger;
+        this.bigramTagger = bigramTagger;
+        this.tagSentenceLatency = LatencyMetrics.histogram(getClass().getSimpleName() + ".tagSentence");
+    }
+
+    /**
+     * Train the underlying unigram and bigram taggers and build the score tables
+     */
+    @Override
+    public void train(List<TaggedSentence> trainingSentences) {
+        unigramTagger.train(trainingSentences);
+        bigramTagger.train(trainingSentences);
+        buildTables();
+    }
+
+    /**
+     * Rebuild the score tables from the current counts, e.g. when the taggers were trained elsewhere
+     */
+    public void buildTables() {
+        scoreTables = HmmScoreTables.build(unigramTagger, bigramTagger);
+    }
+
+    public HmmScoreTables getScoreTables() {
+        return scoreTables;
+    }
+
+    @Override
+    public Tagger getBackoffTagger() {
+        return bigramTagger;
+    }
+
+    /**
+     * Find the best state sequence for a sentence
+     * @param tables The tables to score with
+     * @param words The words of the sentence
+     * @param path Output, one state per word
+     */
+    protected abstract void decode(HmmScoreTables tables, List<TaggerWord> words, int[] path);
+
+    /**
+     * Emissions of the word at a position, falling back to a guessed tag for unknown words
+     */
+    protected HmmScoreTables.WordEmissions emissionsAt(HmmScoreTables tables, List<TaggerWord> words, int position) {
+        HmmScoreTables.WordEmissions emissions = tables.emissionsOf(words.get(position).getWord().toLowerCase());
+        if (emissions != null) {
+            return emissions;
+        }
+        return tables.unknownWordEmissions(tables.stateOf(guessUnknownTag(words, position)));
+    }
+
+    private String guessUnknownTag(List<TaggerWord> words, int position) {
+        Tagger guesser = unigramTagger.getBackoffTagger();
+        return guesser != null ? guesser.predict(words, position) : "NN";
+    }
+
+    @Override
+    public TaggedSentence tagSentence(TaggedSentence sentence) {
+        long start = LatencyMetrics.start();
+        List<TaggerWord> words = sentence.getWords();
+        List<TaggerWord> taggedWords = new ArrayList<>(words.size());
+
+        if (!words.isEmpty()) {
+            HmmScoreTables tables = scoreTables;
+            int[] path = new int[words.size()];
+            decode(tables, words, path);
+
+            for (int i = 0; i < words.size(); i++) {
+                // The unseen state has no tag string of its own; re-derive the guess
+                String tag = path[i] == tables.getUnseenState()
+                        ? guessUnknownTag(words, i)
+                        : tables.getTagIndex().tag(path[i]);
+                taggedWords.add(new TaggerWord(words.get(i).getWord(), tag));
+            }
+        }
+
+        tagSentenceLatency.recordSince(start);
+        return new TaggedSentence(taggedWords);
+    }
+
+    /**
+     * Decodes the whole sentence and returns the tag at the position
+     */
+    @Override
+    public String predict(List<TaggerWord> sentence, int position) {
+        return tagSentence(new TaggedSentence(sentence)).getWords().get(position).getTag();
+    }
+
+    @Override
+    public double evaluate(List<TaggedSentence> testSentences) {
+        int totalWords = 0;
+        int correctPredictions = 0;
+
+        TaggingBatchEvent batchEvent = new TaggingBatchEvent();
+        batchEvent.begin();
+
+        for (TaggedSentence sentence : testSentences) {
+            List<TaggerWord> originalWords = sentence.getWords();
+            List<TaggerWord> predictedWords = tagSentence(sentence).getWords();
+
+            for (int i = 0; i < originalWords.size(); i++) {
+                totalWords++;
+                if (originalWords.get(i).getTag().equals(predictedWords.get(i).getTag())) {
+                    correctPredictions++;
+                }
+            }
+        }
+
+        batchEvent.end();
+        if (batchEvent.shouldCommit()) {
+            batchEvent.tagger = getClass().getSimpleName();
+            batchEvent.sentences = testSentences.size();
+            batchEvent.tokens = totalWords;
+            batchEvent.commit();
+        }
+
+        return totalWords > 0 ? (double) correctPredictions / totalWords * 100 : 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.metrics.DecisionCounters;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Snapshot and reporting of the decision counters along a backoff chain,
+ * showing how often each level answers on its own versus falling through
+ */
+public class BackoffStatistics {
+
+    /**
+     * Take a snapshot of every tagger's decision counters, from the given tagger down the chain
+     * @param topTagger The highest-order tagger of the chain
+     * @return Branch counts keyed by tagger name, in chain order
+     */
+    public static Map<String, Map<String, Long>> snapshot(Tagger topTagger) {
+        Map<String, Map<String, Long>> snapshot = new LinkedHashMap<>();
+        for (Tagger tagger = topTagger; tagger != null; tagger = tagger.getBackoffTagger()) {
+            DecisionCounters counters = tagger.getDecisionCounters();
+            if (counters != null) {
+                snapshot.put(counters.getOwner(), counters.snapshot());
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reset the decision counters of every tagger in the chain
+     */
+    public static void reset(Tagger topTagger) {
+        for (Tagger tagger = topTagger; tagger != null; tagger = tagger.getBackoffTagger()) {
+            DecisionCounters counters = tagger.getDecisionCounters();
+            if (counters != null) {
+                counters.reset();
+            }
+        }
+    }
+
+    /**
+     * Print the non-zero branch counts of the chain.
+     * Probe counters such as context_hit are listed next to the branches that actually returned a tag.
+     */
+    public static void print(Tagger topTagger) {
+        System.out.println("  Backoff decisions per tagger:");
+        for (Map.Entry<String, Map<String, Long>> tagger : snapshot(topTagger).entrySet()) {
+            System.out.println("    " + tagger.getKey() + ":");
+            for (Map.Entry<String, Long> branch : tagger.getValue().entrySet()) {
+                if (branch.getValue() > 0) {
+                    System.out.printf("      %-22s %8d\n", branch.getKey(), branch.getValue());
+                }
+            }
+        }
+    }
+}
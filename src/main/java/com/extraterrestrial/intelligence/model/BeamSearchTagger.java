@@ -0,0 +1,205 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggerWord;
+
+import java.util.List;
+
+/**
+ * Pruned Viterbi: only the tags a word was seen with in training are considered, and at most
+ * {@code beamWidth} partial sequences survive each position.
+ *
+ * Hypotheses ending in the same tag are merged before pruning, so a beam at least as wide as
+ * the most ambiguous word gives the same result as full Viterbi restricted to the tag
+ * dictionary, and a width of 1 is greedy decoding. The beam is a fixed-size min-heap
+ * held in primitive arrays that are kept per thread.
+ */
+public class BeamSearchTagger extends AbstractSequenceTagger {
+
+    public static final String BEAM_WIDTH_PROPERTY = "tagger.beamWidth";
+    public static final int DEFAULT_BEAM_WIDTH = 4;
+
+    private final int beamWidth;
+    private final ThreadLocal<Beams> beams;
+
+    /**
+     * Beam search with the width from {@code -Dtagger.beamWidth}, or {@link #DEFAULT_BEAM_WIDTH}
+     */
+    public BeamSearchTagger(UniGramTagger unigramTagger, BiGramTagger bigramTagger) {
+        this(unigramTagger, bigramTagger, Integer.getInteger(BEAM_WIDTH_PROPERTY, DEFAULT_BEAM_WIDTH));
+    }
+
+    /**
+     * @param beamWidth Partial sequences kept per position; larger is more accurate and slower
+     */
+    public BeamSearchTagger(UniGramTagger unigramTagger, BiGramTagger bigramTagger, int beamWidth) {
+        super(unigramTagger, bigramTagger);
+        if (beamWidth < 1) {
+            throw new IllegalArgumentException("Beam width must be at least 1: " + beamWidth);
+        }
+        this.beamWidth = beamWidth;
+        this.beams = ThreadLocal.withInitial(() -> new Beams(beamWidth));
+    }
+
+    public int getBeamWidth() {
+        return beamWidth;
+    }
+
+    @Override
+    protected void decode(HmmScoreTables tables, List<TaggerWord> words, int[] path) {
+        int n = words.size();
+        int states = tables.getStateCount();
+        double[] transitions = tables.transitionScores();
+
+        Beams buffers = beams.get();
+        buffers.ensureCapacity(n);
+        double[] scores = buffers.scores;
+        int[] tags = buffers.tags;
+        int[] backpointers = buffers.backpointers;
+        int[] sizes = buffers.sizes;
+
+        // First word: start transition plus emission for each dictionary tag
+        HmmScoreTables.WordEmissions emissions = emissionsAt(tables, words, 0);
+        buffers.clearHeap();
+        for (int c = 0; c < emissions.size(); c++) {
+            int tag = emissions.tagId(c);
+            buffers.offer(tables.startScore(tag) + emissions.score(c), tag, -1);
+        }
+        sizes[0] = buffers.drainTo(0);
+
+        for (int i = 1; i < n; i++) {
+            emissions = emissionsAt(tables, words, i);
+            int prevRow = (i - 1) * beamWidth;
+            int prevSize = sizes[i - 1];
+            buffers.clearHeap();
+
+            for (int c = 0; c < emissions.size(); c++) {
+                int tag = emissions.tagId(c);
+                int transitionRow = tag * states;
+                double best = Double.NEGATIVE_INFINITY;
+                int bestPrev = 0;
+
+                for (int k = 0; k < prevSize; k++) {
+                    double score = scores[prevRow + k] + transitions[transitionRow + tags[prevRow + k]];
+                    if (score > best) {
+                        best = score;
+                        bestPrev = k;
+                    }
+                }
+
+                buffers.offer(best + emissions.score(c), tag, bestPrev);
+            }
+            sizes[i] = buffers.drainTo(i * beamWidth);
+        }
+
+        // Best surviving hypothesis, then follow the backpointers through the beams
+        int lastRow = (n - 1) * beamWidth;
+        int best = 0;
+        for (int k = 1; k < sizes[n - 1]; k++) {
+            if (scores[lastRow + k] > scores[lastRow + best]) {
+                best = k;
+            }
+        }
+
+        for (int i = n - 1; i >= 0; i--) {
+            int cell = i * beamWidth + best;
+            path[i] = tags[cell];
+            best = backpointers[cell];
+        }
+    }
+
+    /**
+     * Per-thread beam storage: one row of {@code width} hypotheses per position, plus the
+     * min-heap that selects the survivors of the position being expanded
+     */
+    private static class Beams {
+        private final int width;
+
+        double[] scores = new double[0];
+        int[] tags = new int[0];
+        int[] backpointers = new int[0];
+        int[] sizes = new int[0];
+
+        // Min-heap on score, so the weakest survivor is replaced first
+        private final double[] heapScores;
+        private final int[] heapTags;
+        private final int[] heapBackpointers;
+        private int heapSize;
+
+        Beams(int width) {
+            this.width = width;
+            this.heapScores = new double[width];
+            this.heapTags = new int[width];
+            this.heapBackpointers = new int[width];
+        }
+
+        void ensureCapacity(int positions) {
+            if (sizes.length < positions) {
+                scores = new double[positions * width];
+                tags = new int[positions * width];
+                backpointers = new int[positions * width];
+                sizes = new int[positions];
+            }
+        }
+
+        void clearHeap() {
+            heapSize = 0;
+        }
+
+        void offer(double score, int tag, int backpointer) {
+            if (heapSize < width) {
+                int i = heapSize++;
+                // Sift up
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (heapScores[parent] <= score) {
+                        break;
+                    }
+                    move(parent, i);
+                    i = parent;
+                }
+                set(i, score, tag, backpointer);
+            } else if (score > heapScores[0]) {
+                // Replace the weakest and sift down
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= heapSize) {
+                        break;
+                    }
+                    if (child + 1 < heapSize && heapScores[child + 1] < heapScores[child]) {
+                        child++;
+                    }
+                    if (heapScores[child] >= score) {
+                        break;
+                    }
+                    move(child, i);
+                    i = child;
+                }
+                set(i, score, tag, backpointer);
+            }
+        }
+
+        /**
+         * Copy the heap into the beam row starting at offset
+         * @return Number of hypotheses copied
+         */
+        int drainTo(int offset) {
+            System.arraycopy(heapScores, 0, scores, offset, heapSize);
+            System.arraycopy(heapTags, 0, tags, offset, heapSize);
+            System.arraycopy(heapBackpointers, 0, backpointers, offset, heapSize);
+            return heapSize;
+        }
+
+        private void move(int from, int to) {
+            heapScores[to] = heapScores[from];
+            heapTags[to] = heapTags[from];
+            heapBackpointers[to] = heapBackpointers[from];
+        }
+
+        private void set(int i, double score, int tag, int backpointer) {
+            heapScores[i] = score;
+            heapTags[i] = tag;
+            heapBackpointers[i] = backpointer;
+        }
+    }
+}
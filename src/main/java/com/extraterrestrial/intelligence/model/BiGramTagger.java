@@ -2,68 +2,87 @@ package com.extraterrestrial.intelligence.model;
 
 import com.extraterrestrial.intelligence.data.TaggedSentence;
 import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.TaggerTrainEvent;
 import com.extraterrestrial.intelligence.util.WordShapeUtil;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Bigram tagger that assigns tags based on the previous word's tag
  */
 public class BiGramTagger extends AbstractNGramTagger {
     
-    private Map<String, Map<String, Integer>> contextTagFreq;
-    private Map<String, String> contextToTagMap;
+    // Replaced whole by train and compact; updates go into the table itself
+    private volatile ContextTable contextTable;
+    // Tag-to-tag transition counts, with START as the previous tag at sentence start;
+    // concurrent maps, since updates may run while other threads tag
+    private Map<String, Map<String, Integer>> tagTransitionFreq;
     private double lambda = 0.8; // Interpolation weight
     
+    // Decision branches of predict
+    private static final int CLOSED_CLASS = 0;
+    private static final int COMMON_PROPER_NOUN = 1;
+    private static final int TITLE_PROPER_NOUN = 2;
+    private static final int HIGH_CONFIDENCE = 3;
+    private static final int SCORED_OWN = 4;
+    private static final int SCORED_BACKOFF = 5;
+    private static final int CONTEXT_HIT = 6;
+    
     public BiGramTagger(Tagger backoffTagger) {
-        super(backoffTagger);
-        this.contextToTagMap = new HashMap<>();
-        this.contextTagFreq = new HashMap<>();
+        super(backoffTagger, "closed_class", "common_proper_noun", "title_proper_noun", "high_confidence",
+                "scored_own", "scored_backoff", "context_hit");
+        this.contextTable = new ContextTable.Builder().build();
+        this.tagTransitionFreq = new ConcurrentHashMap<>();
     }
     
     @Override
     public void train(List<TaggedSentence> trainingSentences) {
-        // Clear previous training data
-        contextToTagMap.clear();
-        contextTagFreq.clear();
+        TaggerTrainEvent trainEvent = new TaggerTrainEvent();
+        trainEvent.begin();
+        
+        // Count context-tag frequencies; the most frequent tag of each context comes first
+        contextTable = countContexts(trainingSentences);
         
-        // Count context-tag frequencies
-        for (TaggedSentence sentence : trainingSentences) {
+        // Count tag transitions
+        tagTransitionFreq.clear();
+        countTransitions(trainingSentences);
+        
+        countsChanged();
+        commitTrainEvent(trainEvent, trainingSentences.size(), contextTable.size());
+    }
+    
+    @Override
+    public void updateBatch(List<TaggedSentence> sentences) {
+        super.updateBatch(sentences);
+        countTransitions(sentences);
+    }
+    
+    private void countTransitions(List<TaggedSentence> sentences) {
+        for (TaggedSentence sentence : sentences) {
             List<TaggerWord> words = sentence.getWords();
             
             for (int i = 0; i < words.size(); i++) {
-                String context = getContext(words, i);
                 String tag = words.get(i).getTag();
-                
-                contextTagFreq.putIfAbsent(context, new HashMap<>());
-                Map<String, Integer> tagFreq = contextTagFreq.get(context);
-                tagFreq.put(tag, tagFreq.getOrDefault(tag, 0) + 1);
-            }
-        }
-        
-        // Select most frequent tag for each context
-        for (Map.Entry<String, Map<String, Integer>> entry : contextTagFreq.entrySet()) {
-            String context = entry.getKey();
-            Map<String, Integer> tagCounts = entry.getValue();
-            
-            String mostFrequentTag = null;
-            int maxCount = 0;
-            
-            for (Map.Entry<String, Integer> tagCount : tagCounts.entrySet()) {
-                if (tagCount.getValue() > maxCount) {
-                    maxCount = tagCount.getValue();
-                    mostFrequentTag = tagCount.getKey();
-                }
-            }
-            
-            if (mostFrequentTag != null) {
-                contextToTagMap.put(context, mostFrequentTag);
+                String prevTag = i > 0 ? words.get(i - 1).getTag() : "START";
+                Map<String, Integer> transitionFreq = tagTransitionFreq.computeIfAbsent(prevTag, k -> new ConcurrentHashMap<>());
+                transitionFreq.merge(tag, 1, Integer::sum);
             }
         }
     }
     
+    @Override
+    public ContextTable getContextTable() {
+        return contextTable;
+    }
+    
+    @Override
+    protected void setContextTable(ContextTable contextTable) {
+        this.contextTable = contextTable;
+    }
+    
     @Override
     public String predict(List<TaggerWord> sentence, int position) {
         String word = sentence.get(position).getWord();
@@ -71,14 +90,14 @@ public class BiGramTagger extends AbstractNGramTagger {
         // First check for special cases and closed class words
         String closedClassTag = WordShapeUtil.getClosedClassTag(word);
         if (closedClassTag != null) {
-            return closedClassTag; // Use fixed tag for closed class words
+            return decide(CLOSED_CLASS, closedClassTag); // Use fixed tag for closed class words
         }
         
         // Special handling for capitalized words (likely proper nouns)
         if (WordShapeUtil.isCapitalized(word) && position > 0 && !word.toLowerCase().equals("i")) {
             // Known proper nouns from our list
             if (WordShapeUtil.isCommonProperNoun(word)) {
-                return "NNP";
+                return decide(COMMON_PROPER_NOUN, "NNP");
             }
             
             // If preceding word suggests proper name (Mr., Dr., Ms., etc.)
@@ -86,33 +105,33 @@ public class BiGramTagger extends AbstractNGramTagger {
             if (prevWord.equals("mr.") || prevWord.equals("ms.") || 
                 prevWord.equals("mrs.") || prevWord.equals("dr.") || 
                 prevWord.equals("prof.")) {
-                return "NNP";
+                return decide(TITLE_PROPER_NOUN, "NNP");
             }
         }
         
         // Get context and check if it exists in our trained model
-        String context = getContext(sentence, position);
+        TagDistribution tagDistribution = contextTable.get(contextKey(sentence, position));
         
         // Use the full power of modern statistical NLP: evidence combination
         Map<String, Double> tagScores = new HashMap<>();
         
         // 1. Add score from bigram model if available
-        if (contextToTagMap.containsKey(context)) {
-            Map<String, Integer> tagDistribution = contextTagFreq.get(context);
-            int totalCount = tagDistribution.values().stream().mapToInt(Integer::intValue).sum();
+        if (tagDistribution != null) {
+            decisionCounters.increment(CONTEXT_HIT);
+            int totalCount = tagDistribution.total();
             
             // Convert counts to probabilities and add to scores
-            for (Map.Entry<String, Integer> tagCount : tagDistribution.entrySet()) {
-                double probability = (double) tagCount.getValue() / totalCount;
-                tagScores.put(tagCount.getKey(), probability * 0.8); // Bigram model gets 80% weight
+            for (int i = 0; i < tagDistribution.size(); i++) {
+                double probability = (double) tagDistribution.count(i) / totalCount;
+                tagScores.put(tagDistribution.tag(i), probability * 0.8); // Bigram model gets 80% weight
             }
             
             // Get the most likely tag from bigram model
-            String bigramTag = contextToTagMap.get(context);
+            String bigramTag = tagDistribution.bestTag();
             
             // If very high confidence, just use this tag
             if (isHighConfidence(tagDistribution, bigramTag)) {
-                return bigramTag;
+                return decide(HIGH_CONFIDENCE, bigramTag);
             }
         }
         
@@ -152,43 +171,46 @@ public class BiGramTagger extends AbstractNGramTagger {
             }
         }
         
-        return bestTag;
+        // Distinguish decisions where the weighted evidence overruled the backoff tagger
+        return decide(bestTag.equals(backoffTag) ? SCORED_BACKOFF : SCORED_OWN, bestTag);
+    }
+    
+    /**
+     * Tag transition counts from the last training run, keyed by previous tag (START at sentence start)
+     */
+    Map<String, Map<String, Integer>> getTagTransitionFreq() {
+        return tagTransitionFreq;
     }
     
     /**
      * Determines if a tag prediction has high confidence based on its distribution
      */
-    private boolean isHighConfidence(Map<String, Integer> tagDistribution, String predictedTag) {
-        if (tagDistribution == null || tagDistribution.isEmpty()) {
+    private boolean isHighConfidence(TagDistribution tagDistribution, String predictedTag) {
+        if (tagDistribution == null || tagDistribution.size() == 0) {
             return false;
         }
         
-        int totalCount = tagDistribution.values().stream().mapToInt(Integer::intValue).sum();
-        int predictedCount = tagDistribution.getOrDefault(predictedTag, 0);
+        int totalCount = tagDistribution.total();
+        int predictedCount = tagDistribution.countOf(predictedTag);
         
         // If the predicted tag occurs more than 80% of the time, consider it high confidence
         return totalCount > 0 && (double) predictedCount / totalCount >= 0.8;
     }
     
     @Override
-    protected String getContext(List<TaggerWord> sentence, int position) {
+    protected void buildContext(List<TaggerWord> sentence, int position, ContextKeyBuilder key) {
         // For a bigram tagger, context is the previous word's tag and current word
         String word = sentence.get(position).getWord();
-        String wordLower = word.toLowerCase();
-        
-        // Include the word shape as part of the context
-        String wordShape = WordShapeUtil.getWordShape(word);
         
+        // At the beginning of the sentence, or before the previous word is tagged, use START
+        key.reset("BI");
         if (position > 0) {
-            String prevTag = sentence.get(position - 1).getTag();
-            // Only use the tag if it's not empty
-            if (prevTag.isEmpty()) {
-                return "START:" + wordLower + ":" + wordShape;
-            }
-            return prevTag + ":" + wordLower + ":" + wordShape;
+            key.tag(sentence.get(position - 1).getTag());
         } else {
-            // If at the beginning of the sentence, use special START tag
-            return "START:" + wordLower + ":" + wordShape;
+            key.feature("START");
         }
+        
+        // Include the word shape as part of the context
+        key.lowerCase(word).feature(WordShapeUtil.getWordShape(word));
     }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.extraterrestrial.intelligence.model;
+
+/**
+ * What a compaction pass removed from a tagger's context table
+ */
+public class CompactionResult {
+
+    private final String tagger;
+    private final int contextsBefore;
+    private final int droppedRare;
+    private final int droppedRedundant;
+    private final long bytesBefore;
+    private final long bytesAfter;
+
+    CompactionResult(String tagger, int contextsBefore, int droppedRare, int droppedRedundant,
+                     long bytesBefore, long bytesAfter) {
+        this.tagger = tagger;
+        this.contextsBefore = contextsBefore;
+        this.droppedRare = droppedRare;
+        this.droppedRedundant = droppedRedundant;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+    }
+
+    public String getTagger() {
+        return tagger;
+    }
+
+    public int getContextsBefore() {
+        return contextsBefore;
+    }
+
+    public int getContextsAfter() {
+        return contextsBefore - droppedRare - droppedRedundant;
+    }
+
+    /**
+     * Contexts dropped for being seen too rarely, or never used by predict
+     */
+    public int getDroppedRare() {
+        return droppedRare;
+    }
+
+    /**
+     * Contexts dropped because the backoff level predicts nearly the same distribution
+     */
+    public int getDroppedRedundant() {
+        return droppedRedundant;
+    }
+
+    public long getBytesBefore() {
+        return bytesBefore;
+    }
+
+    public long getBytesAfter() {
+        return bytesAfter;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d -> %d contexts (%d rare, %d redundant), %d KB -> %d KB",
+                tagger, contextsBefore, getContextsAfter(), droppedRare, droppedRedundant,
+                bytesBefore / 1024, bytesAfter / 1024);
+    }
+}
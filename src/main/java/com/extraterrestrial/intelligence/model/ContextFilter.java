@@ -0,0 +1,91 @@
+package com.extraterrestrial.intelligence.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Register-blocked Bloom filter over the hashed keys of a {@link ContextTable}.
+ *
+ * Every key maps to a single 64-bit word in which {@link #BITS_PER_LOOKUP} bits are set, so a
+ * lookup is one memory access and a few shifts, taken straight from the already mixed
+ * context key. A negative answer is always right; a positive one is wrong with roughly the
+ * rate returned by {@link #expectedFalsePositiveRate()}. Keys may be added while other threads
+ * look keys up.
+ */
+public final class ContextFilter {
+
+    static final int BITS_PER_LOOKUP = 4;
+
+    private final AtomicLongArray words;
+    private final int entries;
+
+    private ContextFilter(AtomicLongArray words, int entries) {
+        this.words = words;
+        this.entries = entries;
+    }
+
+    /**
+     * Build a filter over the used slots of a key array
+     * @param keys Context keys, of which only the slots flagged in used are read
+     * @param used Which slots of keys hold a key
+     * @param entries Number of used slots
+     * @param bitsPerKey Filter size in bits per key; about 10 gives a few percent false positives
+     */
+    static ContextFilter build(long[] keys, Object[] used, int entries, int bitsPerKey) {
+        int wordCount = (int) Math.max(1, ((long) entries * bitsPerKey + 63) / 64);
+
+        ContextFilter filter = new ContextFilter(new AtomicLongArray(wordCount), entries);
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i] != null) {
+                filter.add(keys[i]);
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Add a key after the filter was built. The false positive rate grows past the
+     * expected one until the filter is rebuilt for the larger number of keys.
+     */
+    void add(long key) {
+        long pattern = pattern(key);
+        words.getAndUpdate(wordOf(key), word -> word | pattern);
+    }
+
+    /**
+     * Whether a key may have been added.
+     * @return false only if the key was certainly never added
+     */
+    public boolean mightContain(long key) {
+        long pattern = pattern(key);
+        return (words.get(wordOf(key)) & pattern) == pattern;
+    }
+
+    public int sizeInBytes() {
+        return words.length() * Long.BYTES;
+    }
+
+    /**
+     * False positive rate for the number of keys the filter was built with, ignoring
+     * the variance between blocks
+     */
+    public double expectedFalsePositiveRate() {
+        double keysPerWord = (double) entries / words.length();
+        double bitUnset = Math.pow(1 - 1.0 / 64, BITS_PER_LOOKUP * keysPerWord);
+        return Math.pow(1 - bitUnset, BITS_PER_LOOKUP);
+    }
+
+    // Key bits 28 to 59 pick the word, scaled to the word count without a division, and the
+    // bottom 24 bits the bits within it. The top bits are left out, since they pick the
+    // table segment and are the same for every key of one filter.
+    private int wordOf(long key) {
+        return (int) ((((key >>> 28) & 0xffffffffL) * words.length()) >>> 32);
+    }
+
+    private static long pattern(long key) {
+        long pattern = 0;
+        for (int i = 0; i < BITS_PER_LOOKUP; i++) {
+            pattern |= 1L << (key >>> (6 * i));
+        }
+        return pattern;
+    }
+}
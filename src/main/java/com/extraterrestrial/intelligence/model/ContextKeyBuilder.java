@@ -0,0 +1,132 @@
+package com.extraterrestrial.intelligence.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds a tagger context key without creating Strings.
+ *
+ * Fixed vocabulary features (tags, word shapes, markers such as START) are interned once
+ * to int IDs; words are fed character by character, lowercased on the fly. Every feature is
+ * mixed into two independent 64-bit hashes: the key, which addresses a {@link ContextTable},
+ * and a 32-bit fingerprint stored next to it to tell colliding keys apart.
+ *
+ * A builder is reused for every lookup of one thread, see {@link #forCurrentThread()}.
+ */
+public final class ContextKeyBuilder {
+
+    private static final ConcurrentMap<String, Integer> FEATURE_IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_FEATURE_ID = new AtomicInteger(1);
+
+    private static final ThreadLocal<ContextKeyBuilder> BUILDERS = ThreadLocal.withInitial(ContextKeyBuilder::new);
+
+    private static final long KEY_SEED = 0xcbf29ce484222325L;
+    private static final long KEY_PRIME = 0x100000001b3L;
+    private static final long FINGERPRINT_SEED = 0x84222325cbf29ce4L;
+    private static final long FINGERPRINT_PRIME = 0x9e3779b97f4a7c15L;
+
+    // Domain markers so a feature ID can never be confused with text
+    private static final int FEATURE_MARKER = 1;
+    private static final int TEXT_MARKER = 2;
+
+    private long key;
+    private long fingerprint;
+
+    /**
+     * The builder of the calling thread. Callers must read the key before invoking any
+     * other code that may use the builder, e.g. a backoff tagger.
+     */
+    public static ContextKeyBuilder forCurrentThread() {
+        return BUILDERS.get();
+    }
+
+    /**
+     * The ID of a fixed vocabulary feature such as a tag or word shape, assigned on first use
+     */
+    public static int featureId(String feature) {
+        Integer id = FEATURE_IDS.get(feature);
+        if (id == null) {
+            id = FEATURE_IDS.computeIfAbsent(feature, f -> NEXT_FEATURE_ID.getAndIncrement());
+        }
+        return id;
+    }
+
+    /**
+     * Start a new key
+     * @param kind Distinguishes the context layouts of different taggers
+     */
+    public ContextKeyBuilder reset(String kind) {
+        key = KEY_SEED;
+        fingerprint = FINGERPRINT_SEED;
+        return feature(kind);
+    }
+
+    /**
+     * Mix in a fixed vocabulary feature
+     */
+    public ContextKeyBuilder feature(String feature) {
+        int id = featureId(feature);
+        mix(FEATURE_MARKER);
+        mix(id);
+        return this;
+    }
+
+    /**
+     * Mix in a tag, treating the empty tag of a not yet tagged word as START
+     */
+    public ContextKeyBuilder tag(String tag) {
+        return feature(tag.isEmpty() ? "START" : tag);
+    }
+
+    /**
+     * Mix in a whole word, lowercased
+     */
+    public ContextKeyBuilder lowerCase(String word) {
+        return lowerCase(word, 0, word.length());
+    }
+
+    /**
+     * Mix in characters [start, end) of a word, lowercased
+     */
+    public ContextKeyBuilder lowerCase(String word, int start, int end) {
+        mix(TEXT_MARKER);
+        mix(end - start);
+        for (int i = start; i < end; i++) {
+            mix(Character.toLowerCase(word.charAt(i)));
+        }
+        return this;
+    }
+
+    /**
+     * The 64-bit key of the features mixed in since the last reset
+     */
+    public long key() {
+        return finish(key);
+    }
+
+    /**
+     * The 32-bit fingerprint of the features mixed in since the last reset
+     */
+    public int fingerprint() {
+        return (int) finish(fingerprint);
+    }
+
+    private void mix(int value) {
+        key = (key ^ value) * KEY_PRIME;
+        fingerprint = (fingerprint ^ value) * FINGERPRINT_PRIME;
+        fingerprint ^= fingerprint >>> 29;
+    }
+
+    /**
+     * Final avalanche (MurmurHash3 fmix64) so every input bit affects the low bits used for addressing
+     */
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
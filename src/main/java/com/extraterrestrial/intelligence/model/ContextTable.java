@@ -0,0 +1,477 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.metrics.DecisionCounters;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Map from hashed context keys to tag distributions, safe for concurrent lookups and updates.
+ *
+ * Open addressing with linear probing over parallel primitive arrays. A slot matches only if
+ * both the 64-bit key and the 32-bit fingerprint from {@link ContextKeyBuilder} are equal,
+ * so two contexts would have to collide on 96 bits to be confused.
+ *
+ * The table is striped into {@link #SEGMENTS} segments by the top bits of the key. Writers
+ * lock one segment; readers never lock. Distributions are immutable and each update publishes
+ * a new one into its slot, so a reader sees a context's counts and most frequent tag either
+ * before or after an update, never in between. A growing segment is copied and swapped in
+ * whole.
+ *
+ * Tables of sparse, high-order contexts can carry a {@link ContextFilter} per segment that
+ * answers most misses before the slot arrays are touched. Its outcomes are counted for sizing.
+ */
+public class ContextTable {
+
+    public static final String FILTER_BITS_PROPERTY = "tagger.contextFilterBits";
+    public static final int DEFAULT_FILTER_BITS_PER_KEY = 10;
+
+    static final int SEGMENT_BITS = 4;
+    static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    // Outcomes of lookups through the filter
+    private static final int FILTERED = 0;
+    private static final int HIT = 1;
+    private static final int FALSE_POSITIVE = 2;
+
+    private static final VarHandle DISTRIBUTIONS = MethodHandles.arrayElementVarHandle(TagDistribution[].class);
+
+    private final Segment[] segments;
+    private final int filterBitsPerKey;
+    private final DecisionCounters filterCounters;
+
+    private ContextTable(Segment[] segments, int filterBitsPerKey) {
+        this.segments = segments;
+        this.filterBitsPerKey = filterBitsPerKey;
+        this.filterCounters = filterBitsPerKey > 0
+                ? new DecisionCounters(getClass().getSimpleName(), "filtered", "hit", "false_positive") : null;
+    }
+
+    /**
+     * A table of the given contexts
+     * @param distributions Parallel to keys and fingerprints; null entries are skipped
+     */
+    private static ContextTable of(long[] keys, int[] fingerprints, TagDistribution[] distributions,
+                                   int filterBitsPerKey) {
+        int[] counts = new int[SEGMENTS];
+        for (int i = 0; i < keys.length; i++) {
+            if (distributions[i] != null) {
+                counts[segmentOf(keys[i])]++;
+            }
+        }
+
+        Slots[] slots = new Slots[SEGMENTS];
+        for (int s = 0; s < SEGMENTS; s++) {
+            slots[s] = new Slots(capacityFor(counts[s]));
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (distributions[i] != null) {
+                slots[segmentOf(keys[i])].insert(keys[i], fingerprints[i], distributions[i]);
+            }
+        }
+
+        Segment[] segments = new Segment[SEGMENTS];
+        for (int s = 0; s < SEGMENTS; s++) {
+            slots[s].buildFilter(counts[s], filterBitsPerKey);
+            segments[s] = new Segment(slots[s], counts[s]);
+        }
+        return new ContextTable(segments, filterBitsPerKey);
+    }
+
+    /**
+     * Filter size from {@code -Dtagger.contextFilterBits}, or {@link #DEFAULT_FILTER_BITS_PER_KEY}.
+     * 0 disables the filter.
+     */
+    public static int filterBitsPerKey() {
+        return Integer.getInteger(FILTER_BITS_PROPERTY, DEFAULT_FILTER_BITS_PER_KEY);
+    }
+
+    /**
+     * The distribution of a context
+     * @return The distribution, or null if the context was never seen in training
+     */
+    public TagDistribution get(long key, int fingerprint) {
+        Slots slots = segments[segmentOf(key)].slots;
+        if (slots.filter == null) {
+            return slots.find(key, fingerprint);
+        }
+
+        if (!slots.filter.mightContain(key)) {
+            filterCounters.increment(FILTERED);
+            return null;
+        }
+        TagDistribution distribution = slots.find(key, fingerprint);
+        filterCounters.increment(distribution != null ? HIT : FALSE_POSITIVE);
+        return distribution;
+    }
+
+    /**
+     * The distribution of the context currently held by a builder
+     */
+    public TagDistribution get(ContextKeyBuilder builder) {
+        return get(builder.key(), builder.fingerprint());
+    }
+
+    /**
+     * The distribution of a context, bypassing the filter and its counters
+     */
+    TagDistribution find(long key, int fingerprint) {
+        return segments[segmentOf(key)].slots.find(key, fingerprint);
+    }
+
+    /**
+     * Count one more occurrence of a tag in a context, adding the context if it is new.
+     * The context's distribution is replaced by one with the count applied.
+     * Safe to call from any number of threads, concurrently with lookups.
+     */
+    public void add(long key, int fingerprint, String tag) {
+        Segment segment = segments[segmentOf(key)];
+        synchronized (segment) {
+            Slots slots = segment.slots;
+            int slot = slot(key, slots.mask);
+            TagDistribution distribution;
+            while ((distribution = slots.distributions[slot]) != null) {
+                if (slots.keys[slot] == key && slots.fingerprints[slot] == fingerprint) {
+                    DISTRIBUTIONS.setRelease(slots.distributions, slot, distribution.plus(tag));
+                    return;
+                }
+                slot = (slot + 1) & slots.mask;
+            }
+
+            int size = segment.size + 1;
+            if (size * 2 > slots.keys.length) {
+                Slots grown = slots.copy(slots.keys.length * 2);
+                grown.insert(key, fingerprint, TagDistribution.single(tag));
+                grown.buildFilter(size, filterBitsPerKey);
+                segment.slots = grown;
+            } else {
+                // Filter bits first, so a reader that could find the context never has it filtered
+                if (slots.filter != null) {
+                    slots.filter.add(key);
+                }
+                slots.keys[slot] = key;
+                slots.fingerprints[slot] = fingerprint;
+                DISTRIBUTIONS.setRelease(slots.distributions, slot, TagDistribution.single(tag));
+            }
+            segment.size = size;
+        }
+    }
+
+    /**
+     * Count one more occurrence of a tag in the context currently held by a builder
+     */
+    public void add(ContextKeyBuilder builder, String tag) {
+        add(builder.key(), builder.fingerprint(), tag);
+    }
+
+    /**
+     * Number of contexts
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public boolean hasFilter() {
+        return filterCounters != null;
+    }
+
+    /**
+     * Total size of the segment filters, 0 if the table has none
+     */
+    public int filterSizeInBytes() {
+        int bytes = 0;
+        for (Segment segment : segments) {
+            ContextFilter filter = segment.slots.filter;
+            bytes += filter != null ? filter.sizeInBytes() : 0;
+        }
+        return bytes;
+    }
+
+    /**
+     * False positive rate of the segment filters, weighted by their number of contexts
+     */
+    public double expectedFilterFalsePositiveRate() {
+        double rate = 0;
+        int size = size();
+        for (Segment segment : segments) {
+            ContextFilter filter = segment.slots.filter;
+            if (filter != null && size > 0) {
+                rate += filter.expectedFalsePositiveRate() * segment.size / size;
+            }
+        }
+        return rate;
+    }
+
+    /**
+     * Lookups rejected by the filter (filtered), found (hit), and passed by the filter
+     * without being found (false_positive)
+     * @return The counters, or null if the table has no filter
+     */
+    public DecisionCounters getFilterCounters() {
+        return filterCounters;
+    }
+
+    /**
+     * A table with only the contexts whose distribution passes a test, and filters of the
+     * same bits per key if this table has them. Not synchronized with updates.
+     */
+    ContextTable retain(Predicate<TagDistribution> keep) {
+        List<Long> keys = new ArrayList<>();
+        List<Integer> fingerprints = new ArrayList<>();
+        List<TagDistribution> distributions = new ArrayList<>();
+        for (Segment segment : segments) {
+            Slots slots = segment.slots;
+            for (int slot = 0; slot < slots.keys.length; slot++) {
+                if (slots.distributions[slot] != null && keep.test(slots.distributions[slot])) {
+                    keys.add(slots.keys[slot]);
+                    fingerprints.add(slots.fingerprints[slot]);
+                    distributions.add(slots.distributions[slot]);
+                }
+            }
+        }
+
+        long[] keyArray = new long[keys.size()];
+        int[] fingerprintArray = new int[keys.size()];
+        for (int i = 0; i < keyArray.length; i++) {
+            keyArray[i] = keys.get(i);
+            fingerprintArray[i] = fingerprints.get(i);
+        }
+        return of(keyArray, fingerprintArray, distributions.toArray(new TagDistribution[0]), filterBitsPerKey);
+    }
+
+    /**
+     * The same contexts with their counts stored as quantizer codes. Distributions with the
+     * same tags share one tag array.
+     */
+    ContextTable quantize(CountQuantizer quantizer) {
+        Map<String, String[]> sharedTags = new HashMap<>();
+        Segment[] quantized = new Segment[SEGMENTS];
+        for (int s = 0; s < SEGMENTS; s++) {
+            Slots copy = segments[s].slots.copy(segments[s].slots.keys.length);
+            for (int slot = 0; slot < copy.distributions.length; slot++) {
+                if (copy.distributions[slot] != null) {
+                    copy.distributions[slot] = QuantizedTagDistribution.of(copy.distributions[slot], quantizer, sharedTags);
+                }
+            }
+            copy.buildFilter(segments[s].size, filterBitsPerKey);
+            quantized[s] = new Segment(copy, segments[s].size);
+        }
+        return new ContextTable(quantized, filterBitsPerKey);
+    }
+
+    /**
+     * Approximate heap footprint of the slot arrays, the distributions and the filters,
+     * counting shared tag arrays once
+     */
+    public long estimatedBytes() {
+        long bytes = filterSizeInBytes();
+        Set<String[]> tagArrays = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Segment segment : segments) {
+            Slots slots = segment.slots;
+            bytes += (long) slots.keys.length * (Long.BYTES + Integer.BYTES + 4);
+            for (TagDistribution distribution : slots.distributions) {
+                if (distribution != null) {
+                    bytes += distribution.estimatedBytes();
+                    if (tagArrays.add(distribution.tagArray())) {
+                        bytes += 16 + 4L * distribution.size();
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static int segmentOf(long key) {
+        return (int) (key >>> (Long.SIZE - SEGMENT_BITS));
+    }
+
+    static int slot(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /**
+     * Table capacity for a number of entries at a load factor of at most 0.5
+     */
+    static int capacityFor(int entries) {
+        int capacity = 16;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * One stripe: its current slot arrays and the number of contexts in them
+     */
+    private static final class Segment {
+        // Replaced as a whole when the segment grows; writers hold the segment's lock
+        volatile Slots slots;
+        volatile int size;
+
+        Segment(Slots slots, int size) {
+            this.slots = slots;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The slot arrays of a segment and their filter
+     */
+    private static final class Slots {
+        final long[] keys;
+        final int[] fingerprints;
+        final TagDistribution[] distributions;
+        final int mask;
+        ContextFilter filter;
+
+        Slots(int capacity) {
+            keys = new long[capacity];
+            fingerprints = new int[capacity];
+            distributions = new TagDistribution[capacity];
+            mask = capacity - 1;
+        }
+
+        TagDistribution find(long key, int fingerprint) {
+            for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+                // The acquiring read makes the key and fingerprint written before the distribution visible
+                TagDistribution distribution = (TagDistribution) DISTRIBUTIONS.getAcquire(distributions, slot);
+                if (distribution == null) {
+                    return null;
+                }
+                if (keys[slot] == key && fingerprints[slot] == fingerprint) {
+                    return distribution;
+                }
+            }
+        }
+
+        /**
+         * Place a context while the slots are not yet visible to readers
+         */
+        void insert(long key, int fingerprint, TagDistribution distribution) {
+            int slot = slot(key, mask);
+            while (distributions[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            fingerprints[slot] = fingerprint;
+            distributions[slot] = distribution;
+        }
+
+        Slots copy(int capacity) {
+            Slots copy = new Slots(capacity);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (distributions[slot] != null) {
+                    copy.insert(keys[slot], fingerprints[slot], distributions[slot]);
+                }
+            }
+            return copy;
+        }
+
+        void buildFilter(int entries, int bitsPerKey) {
+            filter = bitsPerKey > 0 ? ContextFilter.build(keys, distributions, entries, bitsPerKey) : null;
+        }
+    }
+
+    /**
+     * Accumulates tag counts per context during training
+     */
+    public static class Builder {
+        private long[] keys = new long[capacityFor(0)];
+        private int[] fingerprints = new int[keys.length];
+        private Object[] tagCounts = new Object[keys.length];
+        private int size;
+
+        /**
+         * Count one occurrence of a tag in the context currently held by the key builder
+         */
+        public void add(ContextKeyBuilder builder, String tag) {
+            add(builder.key(), builder.fingerprint(), tag);
+        }
+
+        @SuppressWarnings("unchecked")
+        public void add(long key, int fingerprint, String tag) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (tagCounts[slot] != null) {
+                if (keys[slot] == key && fingerprints[slot] == fingerprint) {
+                    Map<String, Integer> counts = (Map<String, Integer>) tagCounts[slot];
+                    counts.put(tag, counts.getOrDefault(tag, 0) + 1);
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            Map<String, Integer> counts = new HashMap<>();
+            counts.put(tag, 1);
+            keys[slot] = key;
+            fingerprints[slot] = fingerprint;
+            tagCounts[slot] = counts;
+
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Freeze the counts into a table without a filter
+         */
+        public ContextTable build() {
+            return build(0);
+        }
+
+        /**
+         * Freeze the counts into a table
+         * @param filterBitsPerKey Size of the miss filter in bits per context, or 0 for none
+         */
+        @SuppressWarnings("unchecked")
+        public ContextTable build(int filterBitsPerKey) {
+            TagDistribution[] distributions = new TagDistribution[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                if (tagCounts[i] != null) {
+                    distributions[i] = TagDistribution.of((Map<String, Integer>) tagCounts[i]);
+                }
+            }
+            return of(keys, fingerprints, distributions, filterBitsPerKey);
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldFingerprints = fingerprints;
+            Object[] oldTagCounts = tagCounts;
+
+            keys = new long[oldKeys.length * 2];
+            fingerprints = new int[keys.length];
+            tagCounts = new Object[keys.length];
+            int mask = keys.length - 1;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldTagCounts[i] == null) {
+                    continue;
+                }
+                int slot = slot(oldKeys[i], mask);
+                while (tagCounts[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                fingerprints[slot] = oldFingerprints[i];
+                tagCounts[slot] = oldTagCounts[i];
+            }
+        }
+    }
+}
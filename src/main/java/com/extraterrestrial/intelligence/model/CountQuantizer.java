@@ -0,0 +1,91 @@
+package com.extraterrestrial.intelligence.model;
+
+import java.util.Arrays;
+
+/**
+ * Maps context counts to 8- or 16-bit codes.
+ *
+ * Counts below {@link #getExactLimit()} keep their own code, so the small-count thresholds of
+ * the taggers (a best tag seen at least 2, 3, 4 or 5 times) see exact values. Larger counts
+ * share log-spaced buckets, each decoded to the geometric middle of its range, which keeps the
+ * relative error of a ratio like count / total within a few percent at 8 bits.
+ */
+public final class CountQuantizer {
+
+    public static final String BITS_PROPERTY = "tagger.countBits";
+
+    private final int bits;
+    private final int exactLimit;
+
+    // Smallest count of each code, and the count each code decodes to
+    private final long[] lowerBounds;
+    private final int[] decoded;
+
+    private CountQuantizer(int bits, int exactLimit) {
+        this.bits = bits;
+        this.exactLimit = exactLimit;
+
+        int codes = 1 << bits;
+        lowerBounds = new long[codes];
+        decoded = new int[codes];
+        double ratio = Math.pow((double) Integer.MAX_VALUE / exactLimit, 1.0 / (codes - exactLimit));
+        for (int code = 0; code < codes; code++) {
+            if (code < exactLimit) {
+                lowerBounds[code] = code;
+            } else {
+                long bound = Math.round(exactLimit * Math.pow(ratio, code - exactLimit));
+                lowerBounds[code] = Math.max(bound, lowerBounds[code - 1] + 1);
+            }
+        }
+        for (int code = 0; code < codes; code++) {
+            long upper = code + 1 < codes ? lowerBounds[code + 1] - 1 : Integer.MAX_VALUE;
+            decoded[code] = (int) Math.round(Math.sqrt((double) lowerBounds[code] * upper));
+        }
+    }
+
+    /**
+     * @param bits 8 or 16
+     */
+    public static CountQuantizer forBits(int bits) {
+        switch (bits) {
+            case 8:
+                return new CountQuantizer(8, 128);
+            case 16:
+                return new CountQuantizer(16, 4096);
+            default:
+                throw new IllegalArgumentException("Counts can be quantized to 8 or 16 bits, not " + bits);
+        }
+    }
+
+    /**
+     * The quantizer selected with {@code -Dtagger.countBits}
+     * @return The quantizer, or null to keep exact counts
+     */
+    public static CountQuantizer fromSystemProperty() {
+        int bits = Integer.getInteger(BITS_PROPERTY, 0);
+        return bits == 0 ? null : forBits(bits);
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * Counts below this limit are stored exactly
+     */
+    public int getExactLimit() {
+        return exactLimit;
+    }
+
+    public int encode(int count) {
+        if (count < exactLimit) {
+            return count;
+        }
+        int index = Arrays.binarySearch(lowerBounds, count);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    public int decode(int code) {
+        return decoded[code];
+    }
+}
@@ -2,6 +2,9 @@ package com.extraterrestrial.intelligence.model;
 
 import com.extraterrestrial.intelligence.data.TaggedSentence;
 import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.DecisionCounters;
+import com.extraterrestrial.intelligence.metrics.LatencyHistogram;
+import com.extraterrestrial.intelligence.metrics.LatencyMetrics;
 import com.extraterrestrial.intelligence.util.WordShapeUtil;
 
 import java.util.ArrayList;
@@ -14,6 +17,19 @@ public class DefaultTagger implements Tagger {
     
     private String defaultTag = "NN";
     
+    // Decision branches of predict
+    private static final int PUNCTUATION = 0;
+    private static final int NUMERIC = 1;
+    private static final int SUFFIX = 2;
+    private static final int CAPITALIZED = 3;
+    private static final int DEFAULT = 4;
+    
+    private final DecisionCounters decisionCounters = new DecisionCounters(
+            getClass().getSimpleName(), "punctuation", "numeric", "suffix", "capitalized", "default");
+    
+    private final LatencyHistogram tagSentenceLatency =
+            LatencyMetrics.histogram(getClass().getSimpleName() + ".tagSentence");
+    
     public DefaultTagger() {}
     
     public DefaultTagger(String defaultTag) {
@@ -31,32 +47,43 @@ public class DefaultTagger implements Tagger {
         
         // Special handling for punctuation
         if (WordShapeUtil.isPunctuation(word)) {
+            decisionCounters.increment(PUNCTUATION);
             return "PUNCT";
         }
         
         // Special handling for numbers
         if (WordShapeUtil.isNumeric(word)) {
+            decisionCounters.increment(NUMERIC);
             return "NUM";
         }
         
         // Try to guess based on suffixes
         String guessedTag = WordShapeUtil.guessPosFromSuffix(word);
         if (guessedTag != null) {
+            decisionCounters.increment(SUFFIX);
             return guessedTag;
         }
         
         // If capitalized and not at the beginning of the sentence, likely a proper noun
         if (WordShapeUtil.isCapitalized(word) && position > 0) {
+            decisionCounters.increment(CAPITALIZED);
             return "NNP";
         }
         
+        decisionCounters.increment(DEFAULT);
         return defaultTag;
     }
     
+    @Override
+    public DecisionCounters getDecisionCounters() {
+        return decisionCounters;
+    }
+    
     // Use WordShapeUtil instead of local methods
     
     @Override
     public TaggedSentence tagSentence(TaggedSentence sentence) {
+        long start = LatencyMetrics.start();
         List<TaggerWord> originalWords = sentence.getWords();
         List<TaggerWord> taggedWords = new ArrayList<>();
         
@@ -64,6 +91,7 @@ public class DefaultTagger implements Tagger {
             taggedWords.add(new TaggerWord(word.getWord(), defaultTag));
         }
         
+        tagSentenceLatency.recordSince(start);
         return new TaggedSentence(taggedWords);
     }
     
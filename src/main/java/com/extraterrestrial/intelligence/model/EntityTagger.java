@@ -0,0 +1,170 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.DecisionCounters;
+import com.extraterrestrial.intelligence.util.WordShapeUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Predicts the named entity label of each word ("O", "B-geo", "I-per", ...) alongside its POS tag.
+ *
+ * Labels are counted in context tables keyed like the n-gram taggers' contexts, consulted in
+ * turn: the word with its shape and POS tag; the word and shape alone, for words seen with other
+ * tags; and, for unknown words, the shape, the POS tag and the previous word's label. The POS
+ * taggers call it from their own tagSentence once the tags are final (see
+ * {@link AbstractNGramTagger#setEntityTagger}), so the second annotation costs a few table
+ * lookups per word rather than a second tagging pass with its own features.
+ */
+public class EntityTagger {
+
+    /**
+     * Label of words outside any entity
+     */
+    public static final String OUTSIDE = "O";
+
+    // Decision branches of predict
+    private static final int WORD_TAG = 0;
+    private static final int WORD = 1;
+    private static final int SHAPE = 2;
+    private static final int UNSEEN = 3;
+
+    // Replaced whole by train
+    private volatile ContextTable wordTagTable = new ContextTable.Builder().build();
+    private volatile ContextTable wordTable = new ContextTable.Builder().build();
+    private volatile ContextTable shapeTable = new ContextTable.Builder().build();
+
+    private final DecisionCounters decisionCounters = new DecisionCounters("EntityTagger", "word_tag", "word", "shape", "unseen");
+
+    /**
+     * Count the labels of the training words; words without a label are skipped
+     */
+    public void train(List<TaggedSentence> trainingSentences) {
+        ContextTable.Builder wordTags = new ContextTable.Builder();
+        ContextTable.Builder words = new ContextTable.Builder();
+        ContextTable.Builder shapes = new ContextTable.Builder();
+        ContextKeyBuilder key = ContextKeyBuilder.forCurrentThread();
+        for (TaggedSentence sentence : trainingSentences) {
+            String previousEntity = "";
+            for (TaggerWord word : sentence.getWords()) {
+                String entity = word.getEntity();
+                if (entity.isEmpty()) {
+                    previousEntity = "";
+                    continue;
+                }
+                String shape = WordShapeUtil.getWordShape(word.getWord());
+                wordTags.add(wordKey(key, word.getWord(), shape).tag(word.getTag()), entity);
+                words.add(wordKey(key, word.getWord(), shape), entity);
+                shapes.add(shapeKey(key, shape, word.getTag(), previousEntity), entity);
+                previousEntity = entity;
+            }
+        }
+        wordTagTable = wordTags.build();
+        wordTable = words.build();
+        shapeTable = shapes.build();
+    }
+
+    /**
+     * Whether training saw any labelled words; an untrained tagger predicts empty labels
+     */
+    public boolean isTrained() {
+        return wordTagTable.size() > 0;
+    }
+
+    /**
+     * The label of a word whose shape and POS tag are already known
+     * @param previousEntity Label of the previous word, empty at the start of the sentence
+     * @return The label, or an empty one if the tagger is untrained
+     */
+    public String predict(String word, String shape, String tag, String previousEntity) {
+        ContextTable wordTags = wordTagTable;
+        if (wordTags.size() == 0) {
+            return "";
+        }
+        ContextKeyBuilder key = ContextKeyBuilder.forCurrentThread();
+        TagDistribution distribution = wordTags.get(wordKey(key, word, shape).tag(tag));
+        if (distribution != null) {
+            decisionCounters.increment(WORD_TAG);
+        } else if ((distribution = wordTable.get(wordKey(key, word, shape))) != null) {
+            decisionCounters.increment(WORD);
+        } else {
+            distribution = shapeTable.get(shapeKey(key, shape, tag, previousEntity));
+            decisionCounters.increment(distribution != null ? SHAPE : UNSEEN);
+        }
+        String entity = distribution != null ? distribution.bestTag() : OUTSIDE;
+        return continuesSpan(entity, previousEntity) ? entity : "B-" + entity.substring(2);
+    }
+
+    /**
+     * The label of a POS-tagged word of a sentence whose earlier words are labelled
+     */
+    public String predict(List<TaggerWord> sentence, int position) {
+        TaggerWord word = sentence.get(position);
+        String previousEntity = position > 0 ? sentence.get(position - 1).getEntity() : "";
+        return predict(word.getWord(), WordShapeUtil.getWordShape(word.getWord()), word.getTag(), previousEntity);
+    }
+
+    /**
+     * Label the words of an already POS-tagged sentence, for taggers that do not call this one
+     * themselves
+     * @return A new sentence with the words, tags and labels
+     */
+    public TaggedSentence tagSentence(TaggedSentence tagged) {
+        List<TaggerWord> words = new ArrayList<>(tagged.size());
+        for (TaggerWord word : tagged.getWords()) {
+            words.add(new TaggerWord(word.getWord(), word.getTag(), ""));
+        }
+        for (int i = 0; i < words.size(); i++) {
+            words.get(i).setEntity(predict(words, i));
+        }
+        return new TaggedSentence(words);
+    }
+
+    /**
+     * Percentage of labelled gold words whose predicted label matches
+     * @param predicted Parallel to gold, as tagged by a tagger using this one
+     */
+    public static double accuracy(List<TaggedSentence> gold, List<TaggedSentence> predicted) {
+        int total = 0;
+        int correct = 0;
+        for (int s = 0; s < gold.size(); s++) {
+            List<TaggerWord> goldWords = gold.get(s).getWords();
+            List<TaggerWord> predictedWords = predicted.get(s).getWords();
+            for (int i = 0; i < goldWords.size(); i++) {
+                String entity = goldWords.get(i).getEntity();
+                if (!entity.isEmpty()) {
+                    total++;
+                    if (entity.equals(predictedWords.get(i).getEntity())) {
+                        correct++;
+                    }
+                }
+            }
+        }
+        return total > 0 ? (double) correct / total * 100 : 0;
+    }
+
+    /**
+     * Which table decided each prediction, or that none knew the context
+     */
+    public DecisionCounters getDecisionCounters() {
+        return decisionCounters;
+    }
+
+    /**
+     * An inside label is only valid after a label of the same type; otherwise it starts a new span
+     */
+    private static boolean continuesSpan(String entity, String previousEntity) {
+        return !entity.startsWith("I-") || ((previousEntity.startsWith("B-") || previousEntity.startsWith("I-"))
+                && previousEntity.substring(2).equals(entity.substring(2)));
+    }
+
+    private static ContextKeyBuilder wordKey(ContextKeyBuilder key, String word, String shape) {
+        return key.reset("NER").lowerCase(word).feature(shape);
+    }
+
+    private static ContextKeyBuilder shapeKey(ContextKeyBuilder key, String shape, String tag, String previousEntity) {
+        return key.reset("NER_SHAPE").feature(shape).tag(tag).tag(previousEntity);
+    }
+}
@@ -0,0 +1,130 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.DecisionCounters;
+import com.extraterrestrial.intelligence.util.WordShapeUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frozen dictionary of words that always get the same tag, looked up with one hash probe
+ * before a tagger enters its backoff chain.
+ *
+ * Candidates are the closed-class words and the words whose unigram distribution meets
+ * {@link #MIN_CONFIDENCE}. A candidate is kept only if the tagger it is built for gives it
+ * that same tag at every occurrence in the training data and after each of the
+ * {@link #PROBE_WORDS}, whose tags trigger the chain's context rules. The fast path then
+ * only answers for words whose tag does not depend on their context.
+ */
+public class FastPathLexicon {
+
+    public static final double MIN_CONFIDENCE = 0.85;
+    
+    // Preceding words whose tags (DT, IN, PRP$, MD, TO, PRP) steer the higher-order taggers
+    static final String[] PROBE_WORDS = {"the", "a", "in", "his", "will", "to", "he"};
+
+    private static final int HIT = 0;
+    private static final int MISS = 1;
+
+    private final Map<String, String> tags;
+    private final DecisionCounters counters = new DecisionCounters(getClass().getSimpleName(), "hit", "miss");
+
+    private FastPathLexicon(Map<String, String> tags) {
+        this.tags = Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * Build the lexicon for a trained tagger chain
+     * @param unigramTagger The chain's trained unigram tagger, source of the word distributions
+     * @param tagger The tagger the lexicon will be attached to
+     * @param trainingSentences The sentences the chain was trained on
+     */
+    public static FastPathLexicon build(UniGramTagger unigramTagger, Tagger tagger,
+                                        List<TaggedSentence> trainingSentences) {
+        Map<String, String> candidates = new HashMap<>(WordShapeUtil.getClosedClassWords());
+
+        for (Map.Entry<String, Map<String, Integer>> entry : unigramTagger.getWordTagFreq().entrySet()) {
+            if (candidates.containsKey(entry.getKey())) {
+                continue;
+            }
+
+            int totalCount = 0;
+            int maxCount = 0;
+            String mostFrequentTag = null;
+            for (Map.Entry<String, Integer> tagCount : entry.getValue().entrySet()) {
+                totalCount += tagCount.getValue();
+                if (tagCount.getValue() > maxCount) {
+                    maxCount = tagCount.getValue();
+                    mostFrequentTag = tagCount.getKey();
+                }
+            }
+
+            if (mostFrequentTag != null && (double) maxCount / totalCount >= MIN_CONFIDENCE) {
+                candidates.put(entry.getKey(), mostFrequentTag);
+            }
+        }
+
+        // Drop every candidate the chain tagged differently somewhere in the training data
+        List<String> disagreeing = new ArrayList<>();
+        for (TaggedSentence sentence : trainingSentences) {
+            List<TaggerWord> tagged = tagger.tagSentence(sentence).getWords();
+            for (TaggerWord word : tagged) {
+                String wordLower = word.getWord().toLowerCase();
+                String candidateTag = candidates.get(wordLower);
+                if (candidateTag != null && !candidateTag.equals(word.getTag())) {
+                    disagreeing.add(wordLower);
+                }
+            }
+        }
+        
+        // ... or differently after any of the probe words
+        for (Map.Entry<String, String> candidate : candidates.entrySet()) {
+            for (String probe : PROBE_WORDS) {
+                List<TaggerWord> words = new ArrayList<>();
+                words.add(new TaggerWord(probe, ""));
+                words.add(new TaggerWord(candidate.getKey(), ""));
+                
+                String tag = tagger.tagSentence(new TaggedSentence(words)).getWords().get(1).getTag();
+                if (!candidate.getValue().equals(tag)) {
+                    disagreeing.add(candidate.getKey());
+                    break;
+                }
+            }
+        }
+        
+        for (String word : disagreeing) {
+            candidates.remove(word);
+        }
+
+        return new FastPathLexicon(new HashMap<>(candidates));
+    }
+
+    /**
+     * The fixed tag of a word.
+     * Capitalized words after the first position are left to the chain's proper-noun rules.
+     * @param word The word as written
+     * @param position Its position in the sentence
+     * @return The tag, or null if the word has to go through the chain
+     */
+    public String lookup(String word, int position) {
+        String tag = position > 0 && WordShapeUtil.isCapitalized(word) ? null : tags.get(word.toLowerCase());
+        counters.increment(tag != null ? HIT : MISS);
+        return tag;
+    }
+
+    public int size() {
+        return tags.size();
+    }
+
+    /**
+     * Counts of tokens answered by the lexicon (hit) and passed on to the chain (miss)
+     */
+    public DecisionCounters getCounters() {
+        return counters;
+    }
+}
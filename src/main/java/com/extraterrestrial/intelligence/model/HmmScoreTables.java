@@ -0,0 +1,240 @@
+package com.extraterrestrial.intelligence.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Log-probability tables of a first-order HMM built from the counts of a trained
+ * unigram tagger (emissions) and bigram tagger (tag transitions).
+ *
+ * Tags are addressed by their {@link TagIndex} ID. One extra state after the indexed tags
+ * stands for any tag never seen in training, e.g. a shape guess for an unknown word;
+ * its transitions are the add-one smoothed uniform scores.
+ */
+public class HmmScoreTables {
+
+    // Score of a tag never seen with a known word; far below any observed emission
+    static final double EMISSION_FLOOR = Math.log(1e-9);
+
+    private final TagIndex tagIndex;
+    private final int stateCount;
+    private final int unseenState;
+
+    // log P(tag | START), indexed by state
+    private final double[] startScores;
+    // log P(tag | prev), indexed [tag * stateCount + prev] so a decoder scans predecessors contiguously
+    private final double[] transitionScores;
+    // log P(word | tag) for every lowercased training word
+    private final Map<String, WordEmissions> emissions;
+    // Single-candidate emissions for unknown words, one per state
+    private final WordEmissions[] unknownWordEmissions;
+
+    private HmmScoreTables(TagIndex tagIndex, double[] startScores, double[] transitionScores,
+                           Map<String, WordEmissions> emissions) {
+        this.tagIndex = tagIndex;
+        this.stateCount = tagIndex.size() + 1;
+        this.unseenState = tagIndex.size();
+        this.startScores = startScores;
+        this.transitionScores = transitionScores;
+        this.emissions = emissions;
+
+        this.unknownWordEmissions = new WordEmissions[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            unknownWordEmissions[state] = new WordEmissions(new int[]{state}, new double[]{0.0});
+        }
+    }
+
+    /**
+     * Build the tables from trained taggers
+     * @param unigramTagger Source of the word-tag counts
+     * @param bigramTagger Source of the tag transition counts
+     */
+    public static HmmScoreTables build(UniGramTagger unigramTagger, BiGramTagger bigramTagger) {
+        Map<String, Map<String, Integer>> wordTagFreq = unigramTagger.getWordTagFreq();
+        Map<String, Map<String, Integer>> tagTransitionFreq = bigramTagger.getTagTransitionFreq();
+
+        // Assign IDs to every tag either tagger has seen
+        TagIndex tagIndex = new TagIndex();
+        for (Map<String, Integer> tagCounts : wordTagFreq.values()) {
+            for (String tag : tagCounts.keySet()) {
+                tagIndex.add(tag);
+            }
+        }
+        for (Map.Entry<String, Map<String, Integer>> entry : tagTransitionFreq.entrySet()) {
+            if (!entry.getKey().equals("START")) {
+                tagIndex.add(entry.getKey());
+            }
+            for (String tag : entry.getValue().keySet()) {
+                tagIndex.add(tag);
+            }
+        }
+        int stateCount = tagIndex.size() + 1;
+
+        // Transitions with add-one smoothing; the unseen state keeps zero counts
+        long[] startCounts = new long[stateCount];
+        long[] transitionCounts = new long[stateCount * stateCount];
+        long startTotal = 0;
+        long[] prevTotals = new long[stateCount];
+
+        for (Map.Entry<String, Map<String, Integer>> entry : tagTransitionFreq.entrySet()) {
+            boolean isStart = entry.getKey().equals("START");
+            int prev = isStart ? -1 : tagIndex.indexOf(entry.getKey());
+
+            for (Map.Entry<String, Integer> tagCount : entry.getValue().entrySet()) {
+                int tag = tagIndex.indexOf(tagCount.getKey());
+                if (isStart) {
+                    startCounts[tag] += tagCount.getValue();
+                    startTotal += tagCount.getValue();
+                } else {
+                    transitionCounts[tag * stateCount + prev] += tagCount.getValue();
+                    prevTotals[prev] += tagCount.getValue();
+                }
+            }
+        }
+
+        double[] startScores = new double[stateCount];
+        for (int tag = 0; tag < stateCount; tag++) {
+            startScores[tag] = Math.log((startCounts[tag] + 1.0) / (startTotal + stateCount));
+        }
+
+        double[] transitionScores = new double[stateCount * stateCount];
+        for (int tag = 0; tag < stateCount; tag++) {
+            for (int prev = 0; prev < stateCount; prev++) {
+                transitionScores[tag * stateCount + prev] =
+                        Math.log((transitionCounts[tag * stateCount + prev] + 1.0) / (prevTotals[prev] + stateCount));
+            }
+        }
+
+        // Emissions P(word | tag) = count(word, tag) / count(tag)
+        long[] tagTotals = new long[stateCount];
+        for (Map<String, Integer> tagCounts : wordTagFreq.values()) {
+            for (Map.Entry<String, Integer> tagCount : tagCounts.entrySet()) {
+                tagTotals[tagIndex.indexOf(tagCount.getKey())] += tagCount.getValue();
+            }
+        }
+
+        Map<String, WordEmissions> emissions = new HashMap<>(wordTagFreq.size() * 2);
+        for (Map.Entry<String, Map<String, Integer>> entry : wordTagFreq.entrySet()) {
+            Map<String, Integer> tagCounts = entry.getValue();
+            int[] tagIds = new int[tagCounts.size()];
+            double[] scores = new double[tagCounts.size()];
+
+            int i = 0;
+            for (Map.Entry<String, Integer> tagCount : tagCounts.entrySet()) {
+                int tag = tagIndex.indexOf(tagCount.getKey());
+                tagIds[i] = tag;
+                scores[i] = Math.log((double) tagCount.getValue() / tagTotals[tag]);
+                i++;
+            }
+            emissions.put(entry.getKey(), new WordEmissions(tagIds, scores));
+        }
+
+        return new HmmScoreTables(tagIndex, startScores, transitionScores, emissions);
+    }
+
+    public TagIndex getTagIndex() {
+        return tagIndex;
+    }
+
+    /**
+     * Number of decoder states: every indexed tag plus the unseen-tag state
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * The state standing for a tag that was never seen in training
+     */
+    public int getUnseenState() {
+        return unseenState;
+    }
+
+    /**
+     * The state for a tag, or the unseen state if the tag was not in the training data
+     */
+    public int stateOf(String tag) {
+        int id = tagIndex.indexOf(tag);
+        return id >= 0 ? id : unseenState;
+    }
+
+    public double startScore(int tag) {
+        return startScores[tag];
+    }
+
+    public double transitionScore(int prev, int tag) {
+        return transitionScores[tag * stateCount + prev];
+    }
+
+    /**
+     * The transition table itself, indexed [tag * stateCount + prev]; callers must not modify it
+     */
+    double[] transitionScores() {
+        return transitionScores;
+    }
+
+    /**
+     * Emissions of a word seen in training
+     * @param wordLower The lowercased word
+     * @return The emissions, or null for an unknown word
+     */
+    public WordEmissions emissionsOf(String wordLower) {
+        return emissions.get(wordLower);
+    }
+
+    /**
+     * Emissions for an unknown word that has been guessed to carry the given state
+     */
+    public WordEmissions unknownWordEmissions(int state) {
+        return unknownWordEmissions[state];
+    }
+
+    /**
+     * The tags a word was seen with and their log P(word | tag), sorted by score, best first
+     */
+    public static class WordEmissions {
+        private final int[] tagIds;
+        private final double[] scores;
+
+        WordEmissions(int[] tagIds, double[] scores) {
+            // Insertion sort: most words have only one or two tags
+            for (int i = 1; i < tagIds.length; i++) {
+                int tag = tagIds[i];
+                double score = scores[i];
+                int j = i - 1;
+                while (j >= 0 && scores[j] < score) {
+                    tagIds[j + 1] = tagIds[j];
+                    scores[j + 1] = scores[j];
+                    j--;
+                }
+                tagIds[j + 1] = tag;
+                scores[j + 1] = score;
+            }
+            this.tagIds = tagIds;
+            this.scores = scores;
+        }
+
+        public int size() {
+            return tagIds.length;
+        }
+
+        public int tagId(int i) {
+            return tagIds[i];
+        }
+
+        public double score(int i) {
+            return scores[i];
+        }
+
+        /**
+         * Write this word's scores into a dense per-state row, flooring every tag it was not seen with
+         */
+        void fill(double[] row, int stateCount) {
+            Arrays.fill(row, 0, stateCount, EMISSION_FLOOR);
+            for (int i = 0; i < tagIds.length; i++) {
+                row[tagIds[i]] = scores[i];
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.extraterrestrial.intelligence.model;
 
 import com.extraterrestrial.intelligence.data.TaggedSentence;
 import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.TaggerTrainEvent;
 import com.extraterrestrial.intelligence.util.WordShapeUtil;
 
 import java.util.HashMap;
@@ -13,56 +14,58 @@ import java.util.Map;
  */
 public class QuadGramTagger extends AbstractNGramTagger {
     
-    private Map<String, Map<String, Integer>> contextTagFreq;
-    private Map<String, String> contextToTagMap;
+    // Replaced whole by train and compact; updates go into the table itself
+    private volatile ContextTable contextTable;
     private double lambda1 = 0.7; // Weight for quadgram model
     private double lambda2 = 0.3; // Weight for trigram backoff
     
+    // Decision branches of predict
+    private static final int PREPROCESSED = 0;
+    private static final int CLOSED_CLASS = 1;
+    private static final int CAPITALIZED = 2;
+    private static final int HIGH_CONFIDENCE = 3;
+    private static final int SCORED_OWN = 4;
+    private static final int SCORED_BACKOFF = 5;
+    private static final int CONTEXT_HIT = 6;
+    
     public QuadGramTagger(Tagger backoffTagger) {
-        super(backoffTagger);
-        this.contextToTagMap = new HashMap<>();
-        this.contextTagFreq = new HashMap<>();
+        super(backoffTagger, "preprocessed", "closed_class", "capitalized", "high_confidence",
+                "scored_own", "scored_backoff", "context_hit");
+        this.contextTable = new ContextTable.Builder().build();
     }
     
     @Override
     public void train(List<TaggedSentence> trainingSentences) {
-        // Clear previous training data
-        contextToTagMap.clear();
-        contextTagFreq.clear();
+        TaggerTrainEvent trainEvent = new TaggerTrainEvent();
+        trainEvent.begin();
         
-        // Count context-tag frequencies
-        for (TaggedSentence sentence : trainingSentences) {
-            List<TaggerWord> words = sentence.getWords();
-            
-            for (int i = 0; i < words.size(); i++) {
-                String context = getContext(words, i);
-                String tag = words.get(i).getTag();
-                
-                contextTagFreq.putIfAbsent(context, new HashMap<>());
-                Map<String, Integer> tagFreq = contextTagFreq.get(context);
-                tagFreq.put(tag, tagFreq.getOrDefault(tag, 0) + 1);
-            }
-        }
+        // Count context-tag frequencies; the most frequent tag of each context comes first.
+        // Most contexts seen while tagging are new, so the table gets a miss filter
+        contextTable = countContexts(trainingSentences, ContextTable.filterBitsPerKey());
         
-        // Select most frequent tag for each context
-        for (Map.Entry<String, Map<String, Integer>> entry : contextTagFreq.entrySet()) {
-            String context = entry.getKey();
-            Map<String, Integer> tagCounts = entry.getValue();
-            
-            String mostFrequentTag = null;
-            int maxCount = 0;
-            
-            for (Map.Entry<String, Integer> tagCount : tagCounts.entrySet()) {
-                if (tagCount.getValue() > maxCount) {
-                    maxCount = tagCount.getValue();
-                    mostFrequentTag = tagCount.getKey();
-                }
-            }
-            
-            if (mostFrequentTag != null && maxCount >= 2) {  // Minimum frequency threshold
-                contextToTagMap.put(context, mostFrequentTag);
-            }
-        }
+        countsChanged();
+        commitTrainEvent(trainEvent, trainingSentences.size(), contextTable.size());
+    }
+    
+    /**
+     * The trained context counts, with the statistics of their miss filter
+     */
+    @Override
+    public ContextTable getContextTable() {
+        return contextTable;
+    }
+    
+    @Override
+    protected void setContextTable(ContextTable contextTable) {
+        this.contextTable = contextTable;
+    }
+    
+    /**
+     * Contexts whose best tag was seen only once never reach the quadgram evidence
+     */
+    @Override
+    protected boolean isUsableContext(TagDistribution tagDistribution) {
+        return tagDistribution.bestCount() >= 2;
     }
     
     @Override
@@ -112,7 +115,7 @@ public class QuadGramTagger extends AbstractNGramTagger {
                     !taggedWords.get(i).getTag().equals("JJ") &&
                     !taggedWords.get(i).getTag().equals("RB")) {
                     // After a determiner, usually comes noun, adjective, or rarely an adverb
-                    taggedWords.set(i, new TaggerWord(taggedWords.get(i).getWord(), "NN"));
+                    taggedWords.get(i).setTag("NN");
                 }
             }
             
@@ -122,7 +125,7 @@ public class QuadGramTagger extends AbstractNGramTagger {
                     // In prepositional phrases, words after "the" are generally nouns
                     if (!taggedWords.get(i).getTag().startsWith("NN") && 
                         !taggedWords.get(i).getTag().equals("JJ")) {
-                        taggedWords.set(i, new TaggerWord(taggedWords.get(i).getWord(), "NN"));
+                        taggedWords.get(i).setTag("NN");
                     }
                 }
             }
@@ -135,45 +138,45 @@ public class QuadGramTagger extends AbstractNGramTagger {
         
         // First check if this word was preprocessed
         if (!sentence.get(position).getTag().isEmpty()) {
-            return sentence.get(position).getTag();
+            return decide(PREPROCESSED, sentence.get(position).getTag());
         }
         
         // Check for closed class words (determiners, prepositions, etc.)
         String closedClassTag = WordShapeUtil.getClosedClassTag(word);
         if (closedClassTag != null) {
-            return closedClassTag;
+            return decide(CLOSED_CLASS, closedClassTag);
         }
         
         // Handle capitalized words
         if (WordShapeUtil.isCapitalized(word) && position > 0 && !word.equals("I")) {
-            return "NNP"; // Proper noun
+            return decide(CAPITALIZED, "NNP"); // Proper noun
         }
         
-        // Get the context for this position
-        String context = getContext(sentence, position);
+        // Get the distribution for this position's context
+        TagDistribution tagDistribution = contextTable.get(contextKey(sentence, position));
         
         // Combine evidence from multiple sources using a weighted approach
         Map<String, Double> tagScores = new HashMap<>();
         
-        // 1. Evidence from quadgram model
-        if (contextToTagMap.containsKey(context)) {
-            Map<String, Integer> tagDistribution = contextTagFreq.get(context);
-            int totalCount = tagDistribution.values().stream().mapToInt(Integer::intValue).sum();
+        // 1. Evidence from quadgram model, for contexts seen at least twice (minimum frequency threshold)
+        if (tagDistribution != null && tagDistribution.bestCount() >= 2) {
+            decisionCounters.increment(CONTEXT_HIT);
+            int totalCount = tagDistribution.total();
             
             // Convert counts to weighted probabilities
-            for (Map.Entry<String, Integer> entry : tagDistribution.entrySet()) {
-                double prob = (double)entry.getValue() / totalCount;
+            for (int i = 0; i < tagDistribution.size(); i++) {
+                double prob = (double) tagDistribution.count(i) / totalCount;
                 // Quadgram model gets high weight (90%)
-                tagScores.put(entry.getKey(), prob * 0.9);
+                tagScores.put(tagDistribution.tag(i), prob * 0.9);
             }
             
             // Get the most likely tag
-            String quadgramTag = contextToTagMap.get(context);
-            int quadgramCount = tagDistribution.getOrDefault(quadgramTag, 0);
+            String quadgramTag = tagDistribution.bestTag();
+            int quadgramCount = tagDistribution.bestCount();
             
             // If there's very high confidence in this prediction, just return it
             if (quadgramCount >= 5 && isHighConfidence(tagDistribution, quadgramTag)) {
-                return quadgramTag;
+                return decide(HIGH_CONFIDENCE, quadgramTag);
             }
         }
         
@@ -228,19 +231,20 @@ public class QuadGramTagger extends AbstractNGramTagger {
             }
         }
         
-        return bestTag;
+        // Distinguish decisions where the weighted evidence overruled the trigram backoff
+        return decide(bestTag.equals(trigramTag) ? SCORED_BACKOFF : SCORED_OWN, bestTag);
     }
     
     /**
      * Determines if a tag prediction has high confidence based on its distribution
      */
-    private boolean isHighConfidence(Map<String, Integer> tagDistribution, String predictedTag) {
-        if (tagDistribution == null || tagDistribution.isEmpty()) {
+    private boolean isHighConfidence(TagDistribution tagDistribution, String predictedTag) {
+        if (tagDistribution == null || tagDistribution.size() == 0) {
             return false;
         }
         
-        int totalCount = tagDistribution.values().stream().mapToInt(Integer::intValue).sum();
-        int predictedCount = tagDistribution.getOrDefault(predictedTag, 0);
+        int totalCount = tagDistribution.total();
+        int predictedCount = tagDistribution.countOf(predictedTag);
         
         // For quadgram, we want a higher minimum count since it's more specific
         if (predictedCount < 4) {  // Increased from 3
@@ -255,14 +259,14 @@ public class QuadGramTagger extends AbstractNGramTagger {
      * Calculate the entropy of a distribution to measure uncertainty
      * High entropy = high uncertainty in the distribution
      */
-    private double calculateDistributionEntropy(Map<String, Integer> distribution, int totalCount) {
-        if (distribution == null || distribution.isEmpty() || totalCount == 0) {
+    private double calculateDistributionEntropy(TagDistribution distribution, int totalCount) {
+        if (distribution == null || distribution.size() == 0 || totalCount == 0) {
             return 0;
         }
         
         double entropy = 0;
-        for (int count : distribution.values()) {
-            double probability = (double) count / totalCount;
+        for (int i = 0; i < distribution.size(); i++) {
+            double probability = (double) distribution.count(i) / totalCount;
             if (probability > 0) {
                 entropy -= probability * (Math.log(probability) / Math.log(2));
             }
@@ -274,74 +278,21 @@ public class QuadGramTagger extends AbstractNGramTagger {
     }
     
     @Override
-    protected String getContext(List<TaggerWord> sentence, int position) {
-        // Create a simpler, more effective context for model training and prediction
-        StringBuilder context = new StringBuilder();
+    protected void buildContext(List<TaggerWord> sentence, int position, ContextKeyBuilder key) {
+        // Three previous tags + current word + previous word (to handle collocations).
+        // Missing positions and not yet tagged words count as START
+        key.reset("QUAD");
+        key.tag(position > 2 ? sentence.get(position - 3).getTag() : "");
+        key.tag(position > 1 ? sentence.get(position - 2).getTag() : "");
+        key.tag(position > 0 ? sentence.get(position - 1).getTag() : "");
         
-        String word = sentence.get(position).getWord().toLowerCase();
+        key.lowerCase(sentence.get(position).getWord());
         
-        // Use just three previous tags + current word for efficient context matching
-        // This reduces sparsity while retaining useful predictive power
-        
-        if (position > 2) {
-            // Full four-word context: 3 previous tags + current word
-            String tag3 = sentence.get(position - 3).getTag();
-            String tag2 = sentence.get(position - 2).getTag();
-            String tag1 = sentence.get(position - 1).getTag();
-            
-            // Handle empty tags
-            if (tag3.isEmpty()) tag3 = "START";
-            if (tag2.isEmpty()) tag2 = "START";
-            if (tag1.isEmpty()) tag1 = "START";
-            
-            context.append(tag3).append("_");
-            context.append(tag2).append("_");
-            context.append(tag1).append("_");
-            context.append(word);
-            
-            // Include previous word (to handle collocations)
-            context.append("_").append(sentence.get(position - 1).getWord().toLowerCase());
-            
-            return context.toString();
-        } else if (position > 1) {
-            // 3-word context
-            String tag2 = sentence.get(position - 2).getTag();
-            String tag1 = sentence.get(position - 1).getTag();
-            
-            if (tag2.isEmpty()) tag2 = "START";
-            if (tag1.isEmpty()) tag1 = "START";
-            
-            context.append("START_");
-            context.append(tag2).append("_");
-            context.append(tag1).append("_");
-            context.append(word);
-            
-            // Include previous word
-            context.append("_").append(sentence.get(position - 1).getWord().toLowerCase());
-            
-            return context.toString();
-        } else if (position > 0) {
-            // 2-word context
-            String tag1 = sentence.get(position - 1).getTag();
-            if (tag1.isEmpty()) tag1 = "START";
-            
-            context.append("START_START_");
-            context.append(tag1).append("_");
-            context.append(word);
-            
-            // Include previous word
-            context.append("_").append(sentence.get(position - 1).getWord().toLowerCase());
-            
-            return context.toString();
+        if (position > 0) {
+            key.lowerCase(sentence.get(position - 1).getWord());
         } else {
-            // Single word context (start of sentence)
-            context.append("START_START_START_");
-            context.append(word);
-            
-            // Add sentence start marker
-            context.append("_START");
-            
-            return context.toString();
+            // Sentence start marker
+            key.feature("START");
         }
     }
 }
\ No newline at end of file
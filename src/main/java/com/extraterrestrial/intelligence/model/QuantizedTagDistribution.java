@@ -0,0 +1,58 @@
+package com.extraterrestrial.intelligence.model;
+
+import java.util.Map;
+
+/**
+ * Tag distribution whose counts are stored as {@link CountQuantizer} codes, one byte or one
+ * char per tag. The tag order and the total are those of the decoded counts.
+ */
+final class QuantizedTagDistribution extends TagDistribution {
+
+    private final CountQuantizer quantizer;
+    private final byte[] byteCodes;
+    private final char[] charCodes;
+
+    private QuantizedTagDistribution(String[] tags, int total, CountQuantizer quantizer,
+                                     byte[] byteCodes, char[] charCodes) {
+        super(tags, total);
+        this.quantizer = quantizer;
+        this.byteCodes = byteCodes;
+        this.charCodes = charCodes;
+    }
+
+    /**
+     * Quantize the counts of a distribution
+     * @param sharedTags Canonical tag arrays, so distributions with the same tags share one array
+     */
+    static QuantizedTagDistribution of(TagDistribution distribution, CountQuantizer quantizer,
+                                       Map<String, String[]> sharedTags) {
+        String[] tags = sharedTags.computeIfAbsent(String.join("|", distribution.tagArray()),
+                k -> distribution.tagArray());
+
+        int n = distribution.size();
+        byte[] byteCodes = quantizer.getBits() == 8 ? new byte[n] : null;
+        char[] charCodes = quantizer.getBits() == 8 ? null : new char[n];
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            int code = quantizer.encode(distribution.count(i));
+            if (byteCodes != null) {
+                byteCodes[i] = (byte) code;
+            } else {
+                charCodes[i] = (char) code;
+            }
+            total += quantizer.decode(code);
+        }
+        return new QuantizedTagDistribution(tags, total, quantizer, byteCodes, charCodes);
+    }
+
+    @Override
+    public int count(int i) {
+        return quantizer.decode(byteCodes != null ? byteCodes[i] & 0xff : charCodes[i]);
+    }
+
+    @Override
+    long estimatedBytes() {
+        // Object header and fields, plus the code array
+        return 24 + 16 + (long) size() * (byteCodes != null ? 1 : Character.BYTES);
+    }
+}
@@ -1,5 +1,11 @@
 package com.extraterrestrial.intelligence.model;
 
+import com.extraterrestrial.intelligence.metrics.DatasetLoadEvent;
+import com.extraterrestrial.intelligence.metrics.LatencyHistogram;
+import com.extraterrestrial.intelligence.metrics.LatencyMetrics;
+import com.extraterrestrial.intelligence.metrics.SemanticModelBuildEvent;
+import com.extraterrestrial.intelligence.util.Tokenizer;
+
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
@@ -21,6 +27,9 @@ public class SemanticModel {
     private Map<String, List<WordFreq>> bigramModel;
     private Map<String, List<WordFreq>> trigramModel;
     
+    private static final LatencyHistogram PREDICTIONS_LATENCY =
+            LatencyMetrics.histogram("SemanticModel.getPredictions");
+    
     // Common grammatical words to fill in gaps
     private static final List<String> COMMON_WORDS = Arrays.asList(
             "the", "a", "an", "and", "in", "on", "at", "to", "with", "by",
@@ -54,6 +63,10 @@ public class SemanticModel {
         List<List<String>> sentences = new ArrayList<>();
         String currentSentenceId = "";
         List<String> currentSentence = new ArrayList<>();
+        long tokens = 0;
+        
+        DatasetLoadEvent loadEvent = new DatasetLoadEvent();
+        loadEvent.begin();
         
         try (BufferedReader reader = new BufferedReader(new FileReader(csvFilePath))) {
             String line;
@@ -86,6 +99,7 @@ public class SemanticModel {
                 // Add the word to the current sentence
                 currentSentence.add(word);
                 currentSentenceId = sentenceId;
+                tokens++;
             }
             
             // Add the last sentence
@@ -93,6 +107,14 @@ public class SemanticModel {
                 sentences.add(currentSentence);
             }
             
+            loadEvent.end();
+            if (loadEvent.shouldCommit()) {
+                loadEvent.path = csvFilePath;
+                loadEvent.sentences = sentences.size();
+                loadEvent.tokens = tokens;
+                loadEvent.commit();
+            }
+            
             // Now build the semantic models from the sentences
             buildModels(sentences);
             
@@ -108,6 +130,9 @@ public class SemanticModel {
      * Build various language models from the sentences
      */
     private void buildModels(List<List<String>> sentences) {
+        SemanticModelBuildEvent buildEvent = new SemanticModelBuildEvent();
+        buildEvent.begin();
+        
         // Maps to count word frequencies
         Map<String, Map<String, Integer>> nextWordCounts = new HashMap<>();
         Map<String, Map<String, Integer>> relatedWordCounts = new HashMap<>();
@@ -180,6 +205,15 @@ public class SemanticModel {
         convertToSortedLists(unigramCounts, unigramModel);
         convertToSortedLists(bigramCounts, bigramModel);
         convertToSortedLists(trigramCounts, trigramModel);
+        
+        buildEvent.end();
+        if (buildEvent.shouldCommit()) {
+            buildEvent.sentences = sentences.size();
+            buildEvent.unigramKeys = unigramModel.size();
+            buildEvent.bigramKeys = bigramModel.size();
+            buildEvent.trigramKeys = trigramModel.size();
+            buildEvent.commit();
+        }
     }
     
     /**
@@ -207,22 +241,23 @@ public class SemanticModel {
      * Get word predictions for the given input text
      */
     public Map<String, Object> getPredictions(String text) {
+        long start = LatencyMetrics.start();
         Map<String, Object> result = new HashMap<>();
         
         // Get tokens from input text
-        List<String> tokens = Arrays.asList(text.toLowerCase().split("\\s+"));
-        if (tokens.isEmpty()) {
+        Tokenizer tokens = Tokenizer.forCurrentThread().tokenize(text);
+        int size = tokens.size();
+        if (size == 0) {
             return result;
         }
+        String lastWord = tokens.lowerCaseToken(size - 1);
         
         // Generate single-word predictions
         Map<String, String> wordPredictions = new LinkedHashMap<>();
         
         // Try trigram predictions if we have enough context
-        if (tokens.size() >= 3) {
-            String trigram = tokens.get(tokens.size() - 3) + " " + 
-                    tokens.get(tokens.size() - 2) + " " + 
-                    tokens.get(tokens.size() - 1);
+        if (size >= 3) {
+            String trigram = tokens.joinLowerCase(size - 3, size);
             
             List<WordFreq> trigramPredictions = trigramModel.get(trigram);
             if (trigramPredictions != null && !trigramPredictions.isEmpty()) {
@@ -233,8 +268,8 @@ public class SemanticModel {
         }
         
         // Try bigram predictions
-        if (tokens.size() >= 2 && wordPredictions.size() < 5) {
-            String bigram = tokens.get(tokens.size() - 2) + " " + tokens.get(tokens.size() - 1);
+        if (size >= 2 && wordPredictions.size() < 5) {
+            String bigram = tokens.joinLowerCase(size - 2, size);
             
             List<WordFreq> bigramPredictions = bigramModel.get(bigram);
             if (bigramPredictions != null && !bigramPredictions.isEmpty()) {
@@ -249,8 +284,6 @@ public class SemanticModel {
         
         // Try unigram predictions
         if (wordPredictions.size() < 5) {
-            String lastWord = tokens.get(tokens.size() - 1);
-            
             List<WordFreq> unigramPredictions = unigramModel.get(lastWord);
             if (unigramPredictions != null && !unigramPredictions.isEmpty()) {
                 for (int i = 0; i < Math.min(3, unigramPredictions.size()); i++) {
@@ -264,8 +297,6 @@ public class SemanticModel {
         
         // Try semantic predictions (related words)
         if (wordPredictions.size() < 5) {
-            String lastWord = tokens.get(tokens.size() - 1);
-            
             List<WordFreq> semanticPredictions = wordToRelatedWords.get(lastWord);
             if (semanticPredictions != null && !semanticPredictions.isEmpty()) {
                 for (int i = 0; i < Math.min(3, semanticPredictions.size()); i++) {
@@ -293,6 +324,7 @@ public class SemanticModel {
         List<String> phrasePredictions = generatePhrases(text, 3, 3);
         result.put("phrasePredictions", phrasePredictions);
         
+        PREDICTIONS_LATENCY.recordSince(start);
         return result;
     }
     
@@ -304,7 +336,7 @@ public class SemanticModel {
         Set<String> seen = new HashSet<>();
         
         // Get tokens from input text
-        List<String> tokens = new ArrayList<>(Arrays.asList(text.toLowerCase().split("\\s+")));
+        List<String> tokens = Tokenizer.forCurrentThread().tokenize(text).lowerCaseTokens();
         if (tokens.isEmpty()) {
             return result;
         }
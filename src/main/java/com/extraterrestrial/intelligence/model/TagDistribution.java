@@ -0,0 +1,183 @@
+package com.extraterrestrial.intelligence.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable tag counts of one context, sorted by count with the most frequent tag first.
+ * Ties keep the order in which the counts were supplied.
+ *
+ * Counts are held exactly; {@link QuantizedTagDistribution} stores them in 8 or 16 bits.
+ */
+public class TagDistribution {
+
+    private final String[] tags;
+    private final int[] counts;
+    private final int total;
+
+    /**
+     * For subclasses that store the counts themselves, already sorted
+     */
+    TagDistribution(String[] tags, int total) {
+        this.tags = tags;
+        this.counts = null;
+        this.total = total;
+    }
+
+    TagDistribution(String[] tags, int[] counts) {
+        // Stable insertion sort, descending by count; distributions are short
+        for (int i = 1; i < counts.length; i++) {
+            String tag = tags[i];
+            int count = counts[i];
+            int j = i - 1;
+            while (j >= 0 && counts[j] < count) {
+                tags[j + 1] = tags[j];
+                counts[j + 1] = counts[j];
+                j--;
+            }
+            tags[j + 1] = tag;
+            counts[j + 1] = count;
+        }
+
+        int sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+
+        this.tags = tags;
+        this.counts = counts;
+        this.total = sum;
+    }
+
+    /**
+     * Freeze a tag-count map, keeping its iteration order for ties
+     */
+    static TagDistribution of(Map<String, Integer> tagCounts) {
+        String[] tags = new String[tagCounts.size()];
+        int[] counts = new int[tagCounts.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> tagCount : tagCounts.entrySet()) {
+            tags[i] = tagCount.getKey();
+            counts[i] = tagCount.getValue();
+            i++;
+        }
+        return new TagDistribution(tags, counts);
+    }
+
+    /**
+     * A distribution of one occurrence of one tag
+     */
+    static TagDistribution single(String tag) {
+        return new TagDistribution(new String[]{tag}, new int[]{1});
+    }
+
+    /**
+     * This distribution with one more occurrence of a tag. The tag moves ahead of the tags
+     * it now outnumbers, so the most frequent tag stays first without sorting again.
+     */
+    TagDistribution plus(String tag) {
+        int n = size();
+        int index = 0;
+        while (index < n && !tags[index].equals(tag)) {
+            index++;
+        }
+
+        String[] newTags = new String[index < n ? n : n + 1];
+        int[] newCounts = new int[newTags.length];
+        for (int i = 0; i < n; i++) {
+            newTags[i] = tags[i];
+            newCounts[i] = count(i);
+        }
+        if (index == n) {
+            newTags[n] = tag;
+        }
+        newCounts[index]++;
+
+        // Counts are already in order, so the constructor's insertion sort only moves this tag
+        return new TagDistribution(newTags, newCounts);
+    }
+
+    /**
+     * Number of distinct tags
+     */
+    public int size() {
+        return tags.length;
+    }
+
+    public String tag(int i) {
+        return tags[i];
+    }
+
+    public int count(int i) {
+        return counts[i];
+    }
+
+    /**
+     * The tag array itself, for sharing between distributions
+     */
+    String[] tagArray() {
+        return tags;
+    }
+
+    /**
+     * The most frequent tag
+     */
+    public String bestTag() {
+        return tags[0];
+    }
+
+    public int bestCount() {
+        return count(0);
+    }
+
+    /**
+     * Sum of all counts
+     */
+    public int total() {
+        return total;
+    }
+
+    /**
+     * The count of a tag, or 0 if it never occurred in this context
+     */
+    public int countOf(String tag) {
+        for (int i = 0; i < tags.length; i++) {
+            if (tags[i].equals(tag)) {
+                return count(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The tags in order, most frequent first
+     */
+    public List<String> tags() {
+        List<String> result = new ArrayList<>(tags.length);
+        for (String tag : tags) {
+            result.add(tag);
+        }
+        return result;
+    }
+
+    /**
+     * Approximate heap footprint without the tag array, assuming compressed references
+     */
+    long estimatedBytes() {
+        // Object header and fields, plus the count array
+        return 24 + 16 + (long) tags.length * Integer.BYTES;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < tags.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(tags[i]).append('=').append(count(i));
+        }
+        return sb.append('}').toString();
+    }
+}
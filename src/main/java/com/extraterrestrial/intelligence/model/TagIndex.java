@@ -0,0 +1,53 @@
+package com.extraterrestrial.intelligence.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps tag strings to dense int IDs (0..size-1) so decoders can index primitive arrays by tag
+ */
+public class TagIndex {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> tags = new ArrayList<>();
+
+    /**
+     * The ID of a tag, assigning the next free ID if the tag has not been seen
+     */
+    public int add(String tag) {
+        Integer id = ids.get(tag);
+        if (id == null) {
+            id = tags.size();
+            ids.put(tag, id);
+            tags.add(tag);
+        }
+        return id;
+    }
+
+    /**
+     * The ID of a tag
+     * @return The ID, or -1 if the tag is not in the index
+     */
+    public int indexOf(String tag) {
+        Integer id = ids.get(tag);
+        return id != null ? id : -1;
+    }
+
+    public String tag(int id) {
+        return tags.get(id);
+    }
+
+    public int size() {
+        return tags.size();
+    }
+
+    /**
+     * All tags in ID order
+     */
+    public List<String> tags() {
+        return Collections.unmodifiableList(tags);
+    }
+}
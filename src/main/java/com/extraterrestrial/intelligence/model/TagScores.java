@@ -0,0 +1,214 @@
+package com.extraterrestrial.intelligence.model;
+
+import java.util.Arrays;
+
+/**
+ * The n best tags of every token of a sentence with their probabilities, in flat arrays that are
+ * reused from one sentence to the next.
+ *
+ * Filled by {@link AbstractNGramTagger#tagSentence(com.extraterrestrial.intelligence.data.TaggedSentence, TagScores)}
+ * from the count distributions of the backoff chain, interpolated from the lowest order up
+ * (Witten-Bell): each level found for a token's context gets weight total / (total + distinct
+ * tags) and passes the rest to the levels below. Below the lowest level is the tag the tagger
+ * chose, so a word no level has seen keeps its rule-based tag. The probabilities of a token sum
+ * to 1 over all its tags; the n best are kept, most probable first.
+ *
+ * Not thread-safe; keep one per thread.
+ */
+public final class TagScores {
+
+    private final int n;
+
+    // Token t's candidates are at [t * n, t * n + sizes[t])
+    private String[] tags;
+    private float[] scores;
+    private int[] sizes;
+    private int tokens;
+
+    // Distributions of the token being scored, one per level of the chain
+    private TagDistribution[] levels = new TagDistribution[8];
+
+    // Mixture of the token being scored
+    private String[] mixTags = new String[16];
+    private double[] mixScores = new double[16];
+    private int mixSize;
+
+    /**
+     * @param n Number of tags kept per token
+     */
+    public TagScores(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be at least 1, was " + n);
+        }
+        this.n = n;
+        this.tags = new String[16 * n];
+        this.scores = new float[16 * n];
+        this.sizes = new int[16];
+    }
+
+    /**
+     * Number of tags kept per token
+     */
+    public int n() {
+        return n;
+    }
+
+    /**
+     * Number of tokens scored
+     */
+    public int size() {
+        return tokens;
+    }
+
+    /**
+     * Number of tags kept for a token, between 1 and n
+     */
+    public int candidates(int token) {
+        return sizes[token];
+    }
+
+    /**
+     * The tag of a rank, 0 being the most probable
+     */
+    public String tag(int token, int rank) {
+        return tags[token * n + rank];
+    }
+
+    public float score(int token, int rank) {
+        return scores[token * n + rank];
+    }
+
+    /**
+     * The probability of a tag, or 0 if it is not among the token's n best
+     */
+    public float scoreOf(int token, String tag) {
+        for (int rank = 0; rank < sizes[token]; rank++) {
+            if (tags[token * n + rank].equals(tag)) {
+                return scores[token * n + rank];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Start a sentence of the given length, dropping the previous one
+     */
+    void reset(int tokens) {
+        if (tokens > sizes.length) {
+            int capacity = Math.max(tokens, sizes.length * 2);
+            sizes = new int[capacity];
+            tags = new String[capacity * n];
+            scores = new float[capacity * n];
+        }
+        Arrays.fill(sizes, 0, tokens, 0);
+        this.tokens = tokens;
+    }
+
+    /**
+     * A buffer for the distributions of a token's context, at least as long as the chain
+     */
+    TagDistribution[] levelBuffer(int levelCount) {
+        if (levels.length < levelCount) {
+            levels = new TagDistribution[levelCount];
+        }
+        return levels;
+    }
+
+    /**
+     * The probability mass the first levels leave to the levels below them
+     */
+    double remainingMass(TagDistribution[] levels, int levelCount) {
+        double remaining = 1;
+        for (int level = 0; level < levelCount; level++) {
+            TagDistribution distribution = levels[level];
+            if (distribution != null && distribution.total() > 0) {
+                remaining *= distribution.size() / (double) (distribution.total() + distribution.size());
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Score a token
+     * @param levels The distributions of the token's context, highest order first; null where unseen
+     * @param levelCount Number of levels to use
+     * @param chosenTag The tag the tagger chose, which takes the mass no level claims
+     */
+    void score(int token, TagDistribution[] levels, int levelCount, String chosenTag) {
+        mixSize = 0;
+        add(chosenTag, 1.0);
+        for (int level = levelCount - 1; level >= 0; level--) {
+            TagDistribution distribution = levels[level];
+            if (distribution == null || distribution.total() == 0) {
+                continue;
+            }
+            double total = distribution.total();
+            double weight = total / (total + distribution.size());
+            for (int i = 0; i < mixSize; i++) {
+                mixScores[i] *= 1 - weight;
+            }
+            for (int i = 0; i < distribution.size(); i++) {
+                add(distribution.tag(i), weight * distribution.count(i) / total);
+            }
+        }
+        keepBest(token);
+    }
+
+    private void add(String tag, double score) {
+        for (int i = 0; i < mixSize; i++) {
+            if (mixTags[i].equals(tag)) {
+                mixScores[i] += score;
+                return;
+            }
+        }
+        if (mixSize == mixTags.length) {
+            mixTags = Arrays.copyOf(mixTags, mixSize * 2);
+            mixScores = Arrays.copyOf(mixScores, mixSize * 2);
+        }
+        mixTags[mixSize] = tag;
+        mixScores[mixSize] = score;
+        mixSize++;
+    }
+
+    /**
+     * Move the n most probable tags of the mixture into the token's slots, by partial selection
+     */
+    private void keepBest(int token) {
+        int kept = Math.min(n, mixSize);
+        int base = token * n;
+        for (int rank = 0; rank < kept; rank++) {
+            int best = rank;
+            for (int i = rank + 1; i < mixSize; i++) {
+                if (mixScores[i] > mixScores[best]) {
+                    best = i;
+                }
+            }
+            String tag = mixTags[best];
+            double score = mixScores[best];
+            mixTags[best] = mixTags[rank];
+            mixScores[best] = mixScores[rank];
+            mixTags[rank] = tag;
+            mixScores[rank] = score;
+
+            tags[base + rank] = tag;
+            scores[base + rank] = (float) score;
+        }
+        sizes[token] = kept;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int token = 0; token < tokens; token++) {
+            sb.append(token > 0 ? ", {" : "{");
+            for (int rank = 0; rank < sizes[token]; rank++) {
+                if (rank > 0) {
+                    sb.append(", ");
+                }
+                sb.append(tag(token, rank)).append(String.format("=%.3f", score(token, rank)));
+            }
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+}
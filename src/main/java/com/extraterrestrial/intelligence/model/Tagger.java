@@ -2,6 +2,7 @@ package com.extraterrestrial.intelligence.model;
 
 import com.extraterrestrial.intelligence.data.TaggedSentence;
 import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.DecisionCounters;
 
 import java.util.List;
 
@@ -33,4 +34,20 @@ public interface Tagger {
      * @return Accuracy as a percentage
      */
     double evaluate(List<TaggedSentence> testSentences);
+    
+    /**
+     * The tagger this one falls back to when it cannot decide on its own
+     * @return The backoff tagger, or null at the end of the chain
+     */
+    default Tagger getBackoffTagger() {
+        return null;
+    }
+    
+    /**
+     * Counters for the decision branches taken by predict
+     * @return The counters, or null if the tagger does not keep any
+     */
+    default DecisionCounters getDecisionCounters() {
+        return null;
+    }
 }
@@ -2,87 +2,88 @@ package com.extraterrestrial.intelligence.model;
 
 import com.extraterrestrial.intelligence.data.TaggedSentence;
 import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.TaggerTrainEvent;
 import com.extraterrestrial.intelligence.util.WordShapeUtil;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Trigram tagger that assigns tags based on the previous two words' tags
  */
 public class TriGramTagger extends AbstractNGramTagger {
     
-    private Map<String, Map<String, Integer>> contextTagFreq;
-    private Map<String, String> contextToTagMap;
+    // Replaced whole by train and compact; updates go into the table itself
+    private volatile ContextTable contextTable;
     private double lambda1 = 0.7; // Weight for trigram model
     private double lambda2 = 0.2; // Weight for bigram backoff
     
+    // Decision branches of predict
+    private static final int HIGH_CONFIDENCE = 0;
+    private static final int CAPITALIZED = 1;
+    private static final int PUNCTUATION = 2;
+    private static final int AFTER_DETERMINER = 3;
+    private static final int AFTER_PREPOSITION = 4;
+    private static final int AFTER_POSSESSIVE = 5;
+    private static final int AGREES_WITH_BACKOFF = 6;
+    private static final int SUFFIX_AGREES = 7;
+    private static final int VERB_AFTER_SUBJECT = 8;
+    private static final int MAJORITY = 9;
+    private static final int RARE_CONTEXT_BACKOFF = 10;
+    private static final int HIGH_ENTROPY_BACKOFF = 11;
+    private static final int PLURALITY = 12;
+    private static final int WEAK_CONTEXT_BACKOFF = 13;
+    private static final int CONTEXT_MISS_BACKOFF = 14;
+    
     public TriGramTagger(Tagger backoffTagger) {
-        super(backoffTagger);
-        this.contextToTagMap = new HashMap<>();
-        this.contextTagFreq = new HashMap<>();
+        super(backoffTagger, "high_confidence", "capitalized", "punctuation", "after_determiner",
+                "after_preposition", "after_possessive", "agrees_with_backoff", "suffix_agrees",
+                "verb_after_subject", "majority", "rare_context_backoff", "high_entropy_backoff",
+                "plurality", "weak_context_backoff", "context_miss_backoff");
+        this.contextTable = new ContextTable.Builder().build();
     }
     
     @Override
     public void train(List<TaggedSentence> trainingSentences) {
-        // Clear previous training data
-        contextToTagMap.clear();
-        contextTagFreq.clear();
+        TaggerTrainEvent trainEvent = new TaggerTrainEvent();
+        trainEvent.begin();
         
-        // Count context-tag frequencies
-        for (TaggedSentence sentence : trainingSentences) {
-            List<TaggerWord> words = sentence.getWords();
-            
-            for (int i = 0; i < words.size(); i++) {
-                String context = getContext(words, i);
-                String tag = words.get(i).getTag();
-                
-                contextTagFreq.putIfAbsent(context, new HashMap<>());
-                Map<String, Integer> tagFreq = contextTagFreq.get(context);
-                tagFreq.put(tag, tagFreq.getOrDefault(tag, 0) + 1);
-            }
-        }
+        // Count context-tag frequencies; the most frequent tag of each context comes first.
+        // Most contexts seen while tagging are new, so the table gets a miss filter
+        contextTable = countContexts(trainingSentences, ContextTable.filterBitsPerKey());
         
-        // Select most frequent tag for each context
-        for (Map.Entry<String, Map<String, Integer>> entry : contextTagFreq.entrySet()) {
-            String context = entry.getKey();
-            Map<String, Integer> tagCounts = entry.getValue();
-            
-            String mostFrequentTag = null;
-            int maxCount = 0;
-            
-            for (Map.Entry<String, Integer> tagCount : tagCounts.entrySet()) {
-                if (tagCount.getValue() > maxCount) {
-                    maxCount = tagCount.getValue();
-                    mostFrequentTag = tagCount.getKey();
-                }
-            }
-            
-            if (mostFrequentTag != null) {
-                contextToTagMap.put(context, mostFrequentTag);
-            }
-        }
+        countsChanged();
+        commitTrainEvent(trainEvent, trainingSentences.size(), contextTable.size());
+    }
+    
+    /**
+     * The trained context counts, with the statistics of their miss filter
+     */
+    @Override
+    public ContextTable getContextTable() {
+        return contextTable;
+    }
+    
+    @Override
+    protected void setContextTable(ContextTable contextTable) {
+        this.contextTable = contextTable;
     }
     
     @Override
     public String predict(List<TaggerWord> sentence, int position) {
-        String context = getContext(sentence, position);
+        // Get the tag distribution for this context
+        TagDistribution tagDistribution = contextTable.get(contextKey(sentence, position));
         
         // If we have a trigram match
-        if (contextToTagMap.containsKey(context)) {
-            // Get the tag distribution for this context
-            Map<String, Integer> tagDistribution = contextTagFreq.get(context);
-            
+        if (tagDistribution != null) {
             // Get the most likely tag from the trigram model
-            String trigramTag = contextToTagMap.get(context);
+            String trigramTag = tagDistribution.bestTag();
             
             // Get tag from backoff model (bigram)
             String backoffTag = backoffTagger.predict(sentence, position);
             
             // If high confidence in the trigram prediction, use it
             if (isHighConfidence(tagDistribution, trigramTag)) {
-                return trigramTag;
+                return decide(HIGH_CONFIDENCE, trigramTag);
             }
             
             // Make this model more sophisticated than the bigram by handling specific patterns
@@ -92,13 +93,13 @@ public class TriGramTagger extends AbstractNGramTagger {
             // 1. Handle capitalized words (likely proper nouns)
             if (WordShapeUtil.isCapitalized(word) && position > 0 && !wordLower.equals("i")) {
                 if (trigramTag.equals("NNP") || trigramTag.equals("NNPS")) {
-                    return trigramTag;
+                    return decide(CAPITALIZED, trigramTag);
                 }
             }
             
             // 2. Special handling for punctuation
             if (WordShapeUtil.isPunctuation(word)) {
-                return "PUNCT";
+                return decide(PUNCTUATION, "PUNCT");
             }
             
             // 3. Check for common part of speech patterns
@@ -109,34 +110,34 @@ public class TriGramTagger extends AbstractNGramTagger {
                 // After determiners, expect nouns or adjectives
                 if (prevTag.equals("DT")) {
                     if (trigramTag.startsWith("NN") || trigramTag.equals("JJ")) {
-                        return trigramTag;
+                        return decide(AFTER_DETERMINER, trigramTag);
                     }
                 }
                 
                 // After prepositions, expect noun phrases
                 if (prevTag.equals("IN")) {
                     if (trigramTag.startsWith("NN") || trigramTag.equals("DT") || trigramTag.equals("JJ")) {
-                        return trigramTag;
+                        return decide(AFTER_PREPOSITION, trigramTag);
                     }
                 }
                 
                 // After possessives, expect nouns
                 if (prevTag.equals("PRP$") || prevWord.endsWith("'s")) {
                     if (trigramTag.startsWith("NN")) {
-                        return trigramTag;
+                        return decide(AFTER_POSSESSIVE, trigramTag);
                     }
                 }
             }
             
             // 4. If the tags agree, definitely use that tag
             if (trigramTag.equals(backoffTag)) {
-                return trigramTag;
+                return decide(AGREES_WITH_BACKOFF, trigramTag);
             }
             
             // 5. Check for word suffixes that strongly indicate POS
             String posFromSuffix = WordShapeUtil.guessPosFromSuffix(wordLower);
             if (posFromSuffix != null && posFromSuffix.equals(trigramTag)) {
-                return trigramTag;
+                return decide(SUFFIX_AGREES, trigramTag);
             }
             
             // 6. Identify verbs by looking at surrounding context
@@ -146,55 +147,54 @@ public class TriGramTagger extends AbstractNGramTagger {
                 // After subjects (nouns, pronouns), often expect verbs
                 if ((prevTag.startsWith("NN") || prevTag.equals("PRP")) && 
                     trigramTag.startsWith("VB")) {
-                    return trigramTag;
+                    return decide(VERB_AFTER_SUBJECT, trigramTag);
                 }
             }
             
             // For the trigram model, be more aggressive with predictions
             // since we have more context, use a lower confidence threshold
-            int trigramCount = tagDistribution.getOrDefault(trigramTag, 0);
-            int totalCount = tagDistribution.values().stream().mapToInt(Integer::intValue).sum();
+            int trigramCount = tagDistribution.bestCount();
+            int totalCount = tagDistribution.total();
             double trigramConfidence = totalCount > 0 ? (double) trigramCount / totalCount : 0;
             
             // Use a confidence threshold of 0.5 (more aggressive than bigram but less than quadgram)
             if (trigramConfidence >= 0.5) {
-                return trigramTag;
+                return decide(MAJORITY, trigramTag);
             }
             
             // More sophisticated interpolation for trigram model
-            int totalCount = tagDistribution.values().stream().mapToInt(Integer::intValue).sum();
-            int trigramCount = tagDistribution.getOrDefault(trigramTag, 0);
-            
             // Check if this is a rare context (few observations)
             if (totalCount < 5 || trigramCount < 3) {
                 // For rare contexts, trust the backoff more
-                return backoffTag;
+                return decide(RARE_CONTEXT_BACKOFF, backoffTag);
             }
             
             // For common contexts with divided opinions (no clear winner)
             double entropy = calculateDistributionEntropy(tagDistribution, totalCount);
             if (entropy > 0.7) {  // High entropy = uncertain distribution
-                return backoffTag;
+                return decide(HIGH_ENTROPY_BACKOFF, backoffTag);
             }
             
             // If the model still isn't confident, backoff to the bigram tagger
-            return (trigramCount > totalCount / 3) ? trigramTag : backoffTag;
+            return (trigramCount > totalCount / 3)
+                    ? decide(PLURALITY, trigramTag)
+                    : decide(WEAK_CONTEXT_BACKOFF, backoffTag);
         }
         
         // If no trigram context match, fully backoff to the bigram tagger
-        return backoffTagger.predict(sentence, position);
+        return decide(CONTEXT_MISS_BACKOFF, backoffTagger.predict(sentence, position));
     }
     
     /**
      * Determines if a tag prediction has high confidence based on its distribution
      */
-    private boolean isHighConfidence(Map<String, Integer> tagDistribution, String predictedTag) {
-        if (tagDistribution == null || tagDistribution.isEmpty()) {
+    private boolean isHighConfidence(TagDistribution tagDistribution, String predictedTag) {
+        if (tagDistribution == null || tagDistribution.size() == 0) {
             return false;
         }
         
-        int totalCount = tagDistribution.values().stream().mapToInt(Integer::intValue).sum();
-        int predictedCount = tagDistribution.getOrDefault(predictedTag, 0);
+        int totalCount = tagDistribution.total();
+        int predictedCount = tagDistribution.countOf(predictedTag);
         
         // Require both a higher percentage AND a minimum count for higher confidence
         return totalCount > 0 && predictedCount >= 3 && 
@@ -205,14 +205,14 @@ public class TriGramTagger extends AbstractNGramTagger {
      * Calculate the entropy of a distribution to measure uncertainty
      * High entropy = high uncertainty in the distribution
      */
-    private double calculateDistributionEntropy(Map<String, Integer> distribution, int totalCount) {
-        if (distribution == null || distribution.isEmpty() || totalCount == 0) {
+    private double calculateDistributionEntropy(TagDistribution distribution, int totalCount) {
+        if (distribution == null || distribution.size() == 0 || totalCount == 0) {
             return 0;
         }
         
         double entropy = 0;
-        for (int count : distribution.values()) {
-            double probability = (double) count / totalCount;
+        for (int i = 0; i < distribution.size(); i++) {
+            double probability = (double) distribution.count(i) / totalCount;
             if (probability > 0) {
                 entropy -= probability * (Math.log(probability) / Math.log(2));
             }
@@ -224,72 +224,44 @@ public class TriGramTagger extends AbstractNGramTagger {
     }
     
     @Override
-    protected String getContext(List<TaggerWord> sentence, int position) {
+    protected void buildContext(List<TaggerWord> sentence, int position, ContextKeyBuilder key) {
         // Enhanced context for trigram tagger 
         String word = sentence.get(position).getWord();
-        String wordLower = word.toLowerCase();
         String wordShape = WordShapeUtil.getWordShape(word);
         
-        // Add suffix information to enhance the context
-        String suffix = "";
-        if (wordLower.length() > 3) {
-            suffix = wordLower.substring(wordLower.length() - 3);
-        }
-        
-        StringBuilder context = new StringBuilder();
+        key.reset("TRI");  // Model type prefix
         
         if (position > 1) {
-            String prevTag2 = sentence.get(position - 2).getTag();
-            String prevTag1 = sentence.get(position - 1).getTag();
-            
-            // Handle empty tags during the tagging process
-            if (prevTag2.isEmpty()) prevTag2 = "START";
-            if (prevTag1.isEmpty()) prevTag1 = "START";
+            // Empty tags during the tagging process count as START
+            key.tag(sentence.get(position - 2).getTag());
+            key.tag(sentence.get(position - 1).getTag());
             
             // Also include the previous words to provide lexical context
-            String prevWord1 = sentence.get(position - 1).getWord().toLowerCase();
-            String prevWord2 = sentence.get(position - 2).getWord().toLowerCase();
-            
-            // Build a more distinctive trigram context
-            context.append("TRI:");  // Add model type prefix
-            context.append(prevTag2).append(":").append(prevTag1).append(":");
-            context.append(prevWord2.substring(0, Math.min(3, prevWord2.length()))).append(":");
-            context.append(prevWord1).append(":");
-            context.append(wordLower).append(":");
-            context.append(wordShape).append(":");
-            context.append(suffix);
-            
-            // Add next word shape if available for lookahead
-            if (position < sentence.size() - 1) {
-                String nextWordShape = WordShapeUtil.getWordShape(sentence.get(position + 1).getWord());
-                context.append(":").append(nextWordShape);
-            }
-            
-            return context.toString();
+            String prevWord2 = sentence.get(position - 2).getWord();
+            key.lowerCase(prevWord2, 0, Math.min(3, prevWord2.length()));
+            key.lowerCase(sentence.get(position - 1).getWord());
         } else if (position > 0) {
             // If only one previous word exists
-            String prevTag = sentence.get(position - 1).getTag();
-            if (prevTag.isEmpty()) prevTag = "START";
-            
-            String prevWord = sentence.get(position - 1).getWord().toLowerCase();
-            
-            context.append("TRI:");  // Add model type prefix
-            context.append("START:").append(prevTag).append(":");
-            context.append(prevWord).append(":");
-            context.append(wordLower).append(":");
-            context.append(wordShape).append(":");
-            context.append(suffix);
-            
-            return context.toString();
+            key.feature("START");
+            key.tag(sentence.get(position - 1).getTag());
+            key.lowerCase(sentence.get(position - 1).getWord());
         } else {
             // If at the beginning of the sentence
-            context.append("TRI:");  // Add model type prefix
-            context.append("START:START:START:");
-            context.append(wordLower).append(":");
-            context.append(wordShape).append(":");
-            context.append(suffix);
-            
-            return context.toString();
+            key.feature("START").feature("START").feature("START");
+        }
+        
+        key.lowerCase(word).feature(wordShape);
+        
+        // Add suffix information to enhance the context
+        if (word.length() > 3) {
+            key.lowerCase(word, word.length() - 3, word.length());
+        } else {
+            key.lowerCase(word, 0, 0);
+        }
+        
+        // Add next word shape if available for lookahead
+        if (position > 1 && position < sentence.size() - 1) {
+            key.feature(WordShapeUtil.getWordShape(sentence.get(position + 1).getWord()));
         }
     }
 }
\ No newline at end of file
@@ -2,31 +2,53 @@ package com.extraterrestrial.intelligence.model;
 
 import com.extraterrestrial.intelligence.data.TaggedSentence;
 import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.TaggerTrainEvent;
+import com.extraterrestrial.intelligence.util.MinimalPerfectHash;
 import com.extraterrestrial.intelligence.util.WordShapeUtil;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Unigram tagger that assigns tags based on word frequencies
  */
 public class UniGramTagger extends AbstractNGramTagger {
     
+    // Concurrent maps whose inner tag counts are replaced, never changed, by updates
     private Map<String, Map<String, Integer>> wordTagFreq;
     private Map<String, String> wordToTagMap;
     
+    // Perfect hash form of the vocabulary with the distribution of each slot, or null
+    private volatile CompiledVocabulary vocabulary;
+    
+    // Decision branches of predict
+    private static final int HIGH_CONFIDENCE = 0;
+    private static final int BELOW_CONFIDENCE = 1;
+    private static final int PUNCTUATION = 2;
+    private static final int NUMERIC = 3;
+    private static final int CAPITALIZED = 4;
+    private static final int SUFFIX = 5;
+    private static final int BACKOFF = 6;
+    
     public UniGramTagger(Tagger backoffTagger) {
-        super(backoffTagger);
-        this.wordToTagMap = new HashMap<>();
-        this.wordTagFreq = new HashMap<>();
+        super(backoffTagger, "high_confidence", "below_confidence", "punctuation", "numeric",
+                "capitalized", "suffix", "backoff");
+        this.wordToTagMap = new ConcurrentHashMap<>();
+        this.wordTagFreq = new ConcurrentHashMap<>();
     }
     
     @Override
     public void train(List<TaggedSentence> trainingSentences) {
+        TaggerTrainEvent trainEvent = new TaggerTrainEvent();
+        trainEvent.begin();
+        
         // Clear previous training data
         wordToTagMap.clear();
         wordTagFreq.clear();
+        vocabulary = null;
         
         // Count word-tag frequencies
         for (TaggedSentence sentence : trainingSentences) {
@@ -59,32 +81,115 @@ public class UniGramTagger extends AbstractNGramTagger {
                 wordToTagMap.put(word, mostFrequentTag);
             }
         }
+        
+        if (MinimalPerfectHash.isEnabled()) {
+            compileVocabulary();
+        }
+        
+        countsChanged();
+        commitTrainEvent(trainEvent, trainingSentences.size(), wordTagFreq.size());
+    }
+    
+    /**
+     * Add word-tag counts and keep the most frequent tag of each word current. Safe to call
+     * while other threads tag: the counts of a word are replaced under the map's lock for that
+     * word, and a compiled vocabulary takes the updates of its words slot by slot. New words
+     * are served from the maps until {@link #compileVocabulary()} runs again.
+     */
+    @Override
+    public void updateBatch(List<TaggedSentence> sentences) {
+        for (TaggedSentence sentence : sentences) {
+            for (TaggerWord word : sentence.getWords()) {
+                String wordText = word.getWord().toLowerCase();
+                String tag = word.getTag();
+                
+                wordTagFreq.compute(wordText, (w, tagFreq) -> {
+                    Map<String, Integer> updated = tagFreq != null ? new HashMap<>(tagFreq) : new HashMap<>();
+                    int count = updated.merge(tag, 1, Integer::sum);
+                    
+                    // The updated tag takes over once it outnumbers the current most frequent one
+                    String mostFrequentTag = wordToTagMap.get(w);
+                    if (mostFrequentTag == null || count > updated.get(mostFrequentTag)) {
+                        wordToTagMap.put(w, tag);
+                    }
+                    return updated;
+                });
+                
+                CompiledVocabulary compiled = vocabulary;
+                if (compiled != null) {
+                    int slot = compiled.hash.indexOf(wordText);
+                    if (slot >= 0) {
+                        compiled.tags.updateAndGet(slot, tagDistribution -> tagDistribution.plus(tag));
+                    }
+                }
+            }
+        }
+        countsChanged();
+    }
+    
+    /**
+     * Compile the trained vocabulary into a minimal perfect hash, which predict uses from then
+     * on instead of the hash maps. Done by train when {@code -Dtagger.perfectHash} is set.
+     * Updates made while it runs may be missing from the compiled counts.
+     */
+    public synchronized void compileVocabulary() {
+        MinimalPerfectHash hash = MinimalPerfectHash.build(wordTagFreq.keySet());
+        AtomicReferenceArray<TagDistribution> tags = new AtomicReferenceArray<>(hash.size());
+        for (Map.Entry<String, Map<String, Integer>> entry : wordTagFreq.entrySet()) {
+            int slot = hash.indexOf(entry.getKey());
+            if (slot >= 0) {
+                tags.set(slot, TagDistribution.of(entry.getValue()));
+            }
+        }
+        vocabulary = new CompiledVocabulary(hash, tags);
+    }
+    
+    /**
+     * The compiled vocabulary, or null if {@link #compileVocabulary()} has not run since training
+     */
+    public MinimalPerfectHash getVocabulary() {
+        CompiledVocabulary compiled = vocabulary;
+        return compiled != null ? compiled.hash : null;
     }
     
     @Override
     public String predict(List<TaggerWord> sentence, int position) {
         String word = sentence.get(position).getWord();
-        String wordLower = word.toLowerCase();
         
         // If the word is in our vocabulary, return the most frequent tag
-        if (wordToTagMap.containsKey(wordLower)) {
-            Map<String, Integer> tagDistribution = wordTagFreq.get(wordLower);
+        CompiledVocabulary compiled = vocabulary;
+        int slot = compiled != null ? compiled.hash.indexOfLowerCase(word) : -1;
+        if (slot >= 0) {
+            TagDistribution tagDistribution = compiled.tags.get(slot);
+            if ((double) tagDistribution.bestCount() / tagDistribution.total() >= 0.85) {
+                return decide(HIGH_CONFIDENCE, tagDistribution.bestTag());
+            }
+            decisionCounters.increment(BELOW_CONFIDENCE);
+        } else if (compiled == null || wordTagFreq.size() > compiled.hash.size()) {
+            // No compiled vocabulary, or words added since it was compiled
+            String wordLower = word.toLowerCase();
             String unigramTag = wordToTagMap.get(wordLower);
+            if (unigramTag != null) {
+                Map<String, Integer> tagDistribution = wordTagFreq.get(wordLower);
+            
+                // Check confidence - if very confident, just use the unigram prediction
+                if (isHighConfidence(tagDistribution, unigramTag)) {
+                    return decide(HIGH_CONFIDENCE, unigramTag);
+                }
             
-            // Check confidence - if very confident, just use the unigram prediction
-            if (isHighConfidence(tagDistribution, unigramTag)) {
-                return unigramTag;
+                // Known word, but its distribution is too flat to trust on its own
+                decisionCounters.increment(BELOW_CONFIDENCE);
             }
         }
         
         // Special handling for punctuation
         if (WordShapeUtil.isPunctuation(word)) {
-            return "PUNCT";
+            return decide(PUNCTUATION, "PUNCT");
         }
         
         // Special handling for numbers
         if (WordShapeUtil.isNumeric(word)) {
-            return "NUM";
+            return decide(NUMERIC, "NUM");
         }
         
         // Try to guess based on word shape and suffixes
@@ -92,17 +197,39 @@ public class UniGramTagger extends AbstractNGramTagger {
         
         // If capitalized and not at the beginning of the sentence, likely a proper noun
         if (WordShapeUtil.isCapitalized(word) && position > 0) {
-            return "NNP";
+            return decide(CAPITALIZED, "NNP");
         }
         
         // Try to guess based on suffixes
         String guessedTag = WordShapeUtil.guessPosFromSuffix(word);
         if (guessedTag != null) {
-            return guessedTag;
+            return decide(SUFFIX, guessedTag);
         }
         
         // Otherwise, backoff to the default tagger
-        return backoffTagger.predict(sentence, position);
+        return decide(BACKOFF, backoffTagger.predict(sentence, position));
+    }
+    
+    /**
+     * The word's tag counts, from the compiled vocabulary if it has the word
+     */
+    @Override
+    TagDistribution contextDistribution(List<TaggerWord> sentence, int position) {
+        String word = sentence.get(position).getWord();
+        CompiledVocabulary compiled = vocabulary;
+        int slot = compiled != null ? compiled.hash.indexOfLowerCase(word) : -1;
+        if (slot >= 0) {
+            return compiled.tags.get(slot);
+        }
+        Map<String, Integer> tagCounts = wordTagFreq.get(word.toLowerCase());
+        return tagCounts != null ? TagDistribution.of(tagCounts) : null;
+    }
+    
+    /**
+     * Word-tag counts from the last training run, keyed by lowercased word
+     */
+    Map<String, Map<String, Integer>> getWordTagFreq() {
+        return wordTagFreq;
     }
     
     /**
@@ -121,11 +248,22 @@ public class UniGramTagger extends AbstractNGramTagger {
     }
     
     @Override
-    protected String getContext(List<TaggerWord> sentence, int position) {
+    protected void buildContext(List<TaggerWord> sentence, int position, ContextKeyBuilder key) {
         // For unigram tagger, context is just the word itself and its shape
         String word = sentence.get(position).getWord();
-        String wordLower = word.toLowerCase();
-        String wordShape = WordShapeUtil.getWordShape(word);
-        return wordLower + ":" + wordShape;
+        key.reset("UNI").lowerCase(word).feature(WordShapeUtil.getWordShape(word));
+    }
+    
+    /**
+     * A compiled vocabulary and the current distribution of each of its slots
+     */
+    private static final class CompiledVocabulary {
+        final MinimalPerfectHash hash;
+        final AtomicReferenceArray<TagDistribution> tags;
+        
+        CompiledVocabulary(MinimalPerfectHash hash, AtomicReferenceArray<TagDistribution> tags) {
+            this.hash = hash;
+            this.tags = tags;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggerWord;
+
+import java.util.List;
+
+/**
+ * Exact first-order Viterbi decoding over every tag.
+ *
+ * Each sentence costs O(n * T^2) array reads. The trellis lives in primitive buffers that
+ * are kept per thread and only grow, so steady-state decoding does not allocate them.
+ */
+public class ViterbiTagger extends AbstractSequenceTagger {
+
+    private final ThreadLocal<Trellis> trellis = ThreadLocal.withInitial(Trellis::new);
+
+    public ViterbiTagger(UniGramTagger unigramTagger, BiGramTagger bigramTagger) {
+        super(unigramTagger, bigramTagger);
+    }
+
+    @Override
+    protected void decode(HmmScoreTables tables, List<TaggerWord> words, int[] path) {
+        int n = words.size();
+        int states = tables.getStateCount();
+        double[] transitions = tables.transitionScores();
+
+        Trellis buffers = trellis.get();
+        buffers.ensureCapacity(n, states);
+        double[] scores = buffers.scores;
+        int[] backpointers = buffers.backpointers;
+        double[] emissionRow = buffers.emissionRow;
+
+        // First word: start transition plus emission
+        emissionsAt(tables, words, 0).fill(emissionRow, states);
+        for (int tag = 0; tag < states; tag++) {
+            scores[tag] = tables.startScore(tag) + emissionRow[tag];
+        }
+
+        for (int i = 1; i < n; i++) {
+            emissionsAt(tables, words, i).fill(emissionRow, states);
+            int prevRow = (i - 1) * states;
+            int row = i * states;
+
+            for (int tag = 0; tag < states; tag++) {
+                int transitionRow = tag * states;
+                double best = Double.NEGATIVE_INFINITY;
+                int bestPrev = 0;
+
+                for (int prev = 0; prev < states; prev++) {
+                    double score = scores[prevRow + prev] + transitions[transitionRow + prev];
+                    if (score > best) {
+                        best = score;
+                        bestPrev = prev;
+                    }
+                }
+
+                scores[row + tag] = best + emissionRow[tag];
+                backpointers[row + tag] = bestPrev;
+            }
+        }
+
+        // Best final state, then follow the backpointers
+        int lastRow = (n - 1) * states;
+        int bestTag = 0;
+        for (int tag = 1; tag < states; tag++) {
+            if (scores[lastRow + tag] > scores[lastRow + bestTag]) {
+                bestTag = tag;
+            }
+        }
+
+        path[n - 1] = bestTag;
+        for (int i = n - 1; i > 0; i--) {
+            path[i - 1] = backpointers[i * states + path[i]];
+        }
+    }
+
+    /**
+     * Reusable trellis buffers, sized for the longest sentence seen so far
+     */
+    private static class Trellis {
+        double[] scores = new double[0];
+        int[] backpointers = new int[0];
+        double[] emissionRow = new double[0];
+
+        void ensureCapacity(int positions, int states) {
+            int cells = positions * states;
+            if (scores.length < cells) {
+                scores = new double[cells];
+                backpointers = new int[cells];
+            }
+            if (emissionRow.length < states) {
+                emissionRow = new double[states];
+            }
+        }
+    }
+}
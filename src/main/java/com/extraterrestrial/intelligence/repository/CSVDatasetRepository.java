@@ -2,6 +2,7 @@ package com.extraterrestrial.intelligence.repository;
 
 import com.extraterrestrial.intelligence.data.TaggedSentence;
 import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.DatasetLoadEvent;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -22,6 +23,10 @@ public class CSVDatasetRepository implements DatasetRepository {
         List<TaggedSentence> sentences = new ArrayList<>();
         TaggedSentence currentSentence = new TaggedSentence();
         String prevSentenceId = "";
+        long tokens = 0;
+        
+        DatasetLoadEvent loadEvent = new DatasetLoadEvent();
+        loadEvent.begin();
         
         try (BufferedReader reader = new BufferedReader(new FileReader(CLEANED_CSV_FILE_PATH))) {
             String line;
@@ -44,6 +49,8 @@ public class CSVDatasetRepository implements DatasetRepository {
                 String sentenceId = parts[0].trim();
                 String word = parts[1].trim();
                 String tag = parts[2].trim();
+                // The fourth column is the named entity label
+                String entity = parts.length > 3 ? parts[3].trim() : "";
                 
                 // If sentence ID changes, start a new sentence
                 if (!sentenceId.equals(prevSentenceId) && !prevSentenceId.isEmpty()) {
@@ -51,7 +58,8 @@ public class CSVDatasetRepository implements DatasetRepository {
                     currentSentence = new TaggedSentence();
                 }
                 
-                currentSentence.addWord(new TaggerWord(word, tag));
+                currentSentence.addWord(new TaggerWord(word, tag, entity));
+                tokens++;
                 prevSentenceId = sentenceId;
             }
             
@@ -60,6 +68,14 @@ public class CSVDatasetRepository implements DatasetRepository {
                 sentences.add(currentSentence);
             }
             
+            loadEvent.end();
+            if (loadEvent.shouldCommit()) {
+                loadEvent.path = CLEANED_CSV_FILE_PATH;
+                loadEvent.sentences = sentences.size();
+                loadEvent.tokens = tokens;
+                loadEvent.commit();
+            }
+            
             System.out.println("Loaded " + sentences.size() + " sentences from CSV file: " + CLEANED_CSV_FILE_PATH);
             return sentences;
             
@@ -2,14 +2,16 @@ package com.extraterrestrial.intelligence.service;
 
 import com.extraterrestrial.intelligence.data.TaggedSentence;
 import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.LatencyHistogram;
+import com.extraterrestrial.intelligence.metrics.LatencyMetrics;
+import com.extraterrestrial.intelligence.metrics.TaggingBatchEvent;
 import com.extraterrestrial.intelligence.model.*;
 import com.extraterrestrial.intelligence.repository.DatasetRepository;
 import com.extraterrestrial.intelligence.util.WordShapeUtil;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Enhanced tagger service that combines predictions from multiple models
@@ -19,62 +21,123 @@ public class CombinedTaggerService {
 
     private final DatasetRepository datasetRepository;
     
-    // Individual taggers
-    private DefaultTagger defaultTagger;
-    private UniGramTagger unigramTagger;
-    private BiGramTagger bigramTagger;
-    private TriGramTagger trigramTagger;
-    private QuadGramTagger quadgramTagger;
+    private static final LatencyHistogram TAG_SENTENCE_LATENCY =
+            LatencyMetrics.histogram("CombinedTaggerService.tagSentence");
+    
+    // The individual taggers, swapped as a whole by retrains
+    private final ModelRegistry modelRegistry = new ModelRegistry();
     
     public CombinedTaggerService(DatasetRepository datasetRepository) {
         this.datasetRepository = datasetRepository;
     }
     
+    /**
+     * Train a new generation of taggers and serve with it from now on
+     */
     public void trainTaggers(List<TaggedSentence> trainingSentences) {
-        // Initialize taggers
-        this.defaultTagger = new DefaultTagger();
-        
-        this.unigramTagger = new UniGramTagger(defaultTagger);
-        this.unigramTagger.train(trainingSentences);
-        
-        this.bigramTagger = new BiGramTagger(unigramTagger);
-        this.bigramTagger.train(trainingSentences);
-        
-        this.trigramTagger = new TriGramTagger(bigramTagger);
-        this.trigramTagger.train(trainingSentences);
-        
-        this.quadgramTagger = new QuadGramTagger(trigramTagger);
-        this.quadgramTagger.train(trainingSentences);
+        modelRegistry.publish(ModelGeneration.train(trainingSentences));
+    }
+    
+    /**
+     * Train a new generation of taggers in the background while the current one keeps serving
+     * @param warmupSentences Tagged with the new generation before it takes over
+     * @return Completes once the new generation serves
+     */
+    public CompletableFuture<ModelGeneration> retrainInBackground(List<TaggedSentence> trainingSentences,
+                                                                  List<TaggedSentence> warmupSentences) {
+        return modelRegistry.retrainAsync(trainingSentences, warmupSentences);
+    }
+    
+    public ModelRegistry getModelRegistry() {
+        return modelRegistry;
     }
     
     /**
      * Tags a sentence using an ensemble of taggers with weighted voting
      */
     public TaggedSentence tagSentence(TaggedSentence sentence) {
+        // One generation for the whole sentence, even if a retrain swaps in another meanwhile
+        return tagSentence(modelRegistry.current(), sentence);
+    }
+    
+    /**
+     * Tags sentences with one model generation, looked up once for the whole batch
+     * @return The tagged sentences, in the order given
+     */
+    public List<TaggedSentence> tagSentences(List<TaggedSentence> sentences) {
+        TaggingBatchEvent batchEvent = new TaggingBatchEvent();
+        batchEvent.begin();
+        
+        ModelGeneration model = modelRegistry.current();
+        List<TaggedSentence> tagged = new ArrayList<>(sentences.size());
+        long tokens = 0;
+        for (TaggedSentence sentence : sentences) {
+            tagged.add(tagSentence(model, sentence));
+            tokens += sentence.size();
+        }
+        
+        batchEvent.end();
+        if (batchEvent.shouldCommit()) {
+            batchEvent.tagger = "CombinedTaggerService";
+            batchEvent.sentences = sentences.size();
+            batchEvent.tokens = tokens;
+            batchEvent.commit();
+        }
+        return tagged;
+    }
+    
+    /**
+     * Tags a sentence with the current generation's unigram tagger alone, the cheap fallback
+     * when the ensemble cannot keep up with the load
+     */
+    public TaggedSentence tagSentenceDegraded(TaggedSentence sentence) {
+        return modelRegistry.current().getUnigramTagger().tagSentence(sentence);
+    }
+    
+    /**
+     * Tags a sentence with the ensemble of the given generation
+     */
+    TaggedSentence tagSentence(ModelGeneration model, TaggedSentence sentence) {
+        long start = LatencyMetrics.start();
+        DefaultTagger defaultTagger = model.getDefaultTagger();
+        UniGramTagger unigramTagger = model.getUnigramTagger();
+        BiGramTagger bigramTagger = model.getBigramTagger();
+        TriGramTagger trigramTagger = model.getTrigramTagger();
+        QuadGramTagger quadgramTagger = model.getQuadgramTagger();
+        EntityTagger entityTagger = model.getEntityTagger();
+        EnsembleVotingTable votingTable = model.getVotingTable();
+        
         List<TaggerWord> originalWords = sentence.getWords();
         List<TaggerWord> taggedWords = new ArrayList<>();
         
         // Create a working copy that we'll update as we go
         List<TaggerWord> workingWords = new ArrayList<>(originalWords);
         
+        // Entity label of the previous word, predicted in the same pass as the tags
+        String previousEntity = "";
+        
         // First pass: Get predictions from all taggers
         for (int i = 0; i < workingWords.size(); i++) {
             String currentWord = workingWords.get(i).getWord();
+            // Computed once for the special rules and the entity tagger
+            String shape = WordShapeUtil.getWordShape(currentWord);
             
             // Apply special rules for different word types first
             
             // Handle punctuation specially
-            if (WordShapeUtil.isPunctuation(currentWord)) {
+            if (shape.equals("PUNCT")) {
                 String predictedTag = "PUNCT";
-                taggedWords.add(new TaggerWord(currentWord, predictedTag));
+                previousEntity = entityTagger.predict(currentWord, shape, predictedTag, previousEntity);
+                taggedWords.add(new TaggerWord(currentWord, predictedTag, previousEntity));
                 workingWords.set(i, new TaggerWord(currentWord, predictedTag));
                 continue;
             }
             
             // For numbers, use NUM tag
-            if (WordShapeUtil.isNumeric(currentWord)) {
+            if (shape.equals("NUM") || shape.equals("DECIMAL") || shape.equals("YEAR")) {
                 String predictedTag = "NUM";
-                taggedWords.add(new TaggerWord(currentWord, predictedTag));
+                previousEntity = entityTagger.predict(currentWord, shape, predictedTag, previousEntity);
+                taggedWords.add(new TaggerWord(currentWord, predictedTag, previousEntity));
                 workingWords.set(i, new TaggerWord(currentWord, predictedTag));
                 continue;
             }
@@ -83,7 +146,8 @@ public class CombinedTaggerService {
             if (WordShapeUtil.isCapitalized(currentWord) && i > 0 && !currentWord.toLowerCase().equals("i")) {
                 // If it's a name or proper noun
                 String predictedTag = "NNP";
-                taggedWords.add(new TaggerWord(currentWord, predictedTag));
+                previousEntity = entityTagger.predict(currentWord, shape, predictedTag, previousEntity);
+                taggedWords.add(new TaggerWord(currentWord, predictedTag, previousEntity));
                 workingWords.set(i, new TaggerWord(currentWord, predictedTag));
                 continue;
             }
@@ -97,62 +161,18 @@ public class CombinedTaggerService {
             String trigramPrediction = trigramTagger.predict(workingWords, i);
             String quadgramPrediction = quadgramTagger.predict(workingWords, i);
             
-            // Create a weighted voting system based on position in the sentence
-            Map<String, Integer> votes = new HashMap<>();
-            
-            // In this dataset, since sentences are often single words, unigram often works better
-            votes.put(unigramPrediction, 2); // Increase unigram weight
-            
-            // Bigrams are strongest for this dataset, as we've seen
-            votes.put(bigramPrediction, 3); // Bigram gets highest base weight
-            
-            // Add weights for higher-order n-grams only if they have enough context
-            if (i > 1) { // Need at least 2 previous words for these to be reliable
-                votes.put(trigramPrediction, votes.getOrDefault(trigramPrediction, 0) + 1); 
-                votes.put(quadgramPrediction, votes.getOrDefault(quadgramPrediction, 0) + 1);
-            }
-            
-            // If we have specific context, give more weight to higher-order n-grams
-            if (i > 0) {
-                String prevTag = workingWords.get(i - 1).getTag();
-                
-                // Word after determiner is likely noun or adjective
-                if (prevTag.equals("DT")) {
-                    if (bigramPrediction.startsWith("NN") || bigramPrediction.equals("JJ")) {
-                        votes.put(bigramPrediction, votes.getOrDefault(bigramPrediction, 0) + 2);
-                    }
-                }
-                
-                // Word after preposition often noun or determiner
-                if (prevTag.equals("IN")) {
-                    if (bigramPrediction.startsWith("NN") || bigramPrediction.equals("DT")) {
-                        votes.put(bigramPrediction, votes.getOrDefault(bigramPrediction, 0) + 2);
-                    }
-                }
-            }
-            
-            // 4. Check for suffix-based predictions
+            // Weighted vote, with boosts for the context of the previous tag and the suffix
+            String previousTag = i > 0 ? workingWords.get(i - 1).getTag() : null;
             String guessedTag = WordShapeUtil.guessPosFromSuffix(currentWord.toLowerCase());
-            if (guessedTag != null) {
-                votes.put(guessedTag, votes.getOrDefault(guessedTag, 0) + 2);
-            }
+            String finalPrediction = votingTable.vote(i, unigramPrediction, bigramPrediction,
+                    trigramPrediction, quadgramPrediction, previousTag, guessedTag);
             
-            // Find the tag with the most votes
-            String bestTag = null;
-            int maxVotes = 0;
-            for (Map.Entry<String, Integer> entry : votes.entrySet()) {
-                if (entry.getValue() > maxVotes) {
-                    maxVotes = entry.getValue();
-                    bestTag = entry.getKey();
-                }
-            }
-            
-            // Use the prediction with the most votes
-            String finalPrediction = bestTag != null ? bestTag : unigramPrediction;
-            taggedWords.add(new TaggerWord(currentWord, finalPrediction));
+            previousEntity = entityTagger.predict(currentWord, shape, finalPrediction, previousEntity);
+            taggedWords.add(new TaggerWord(currentWord, finalPrediction, previousEntity));
             workingWords.set(i, new TaggerWord(currentWord, finalPrediction));
         }
         
+        TAG_SENTENCE_LATENCY.recordSince(start);
         return new TaggedSentence(taggedWords);
     }
     
@@ -163,6 +183,9 @@ public class CombinedTaggerService {
         int totalWords = 0;
         int correctPredictions = 0;
         
+        TaggingBatchEvent batchEvent = new TaggingBatchEvent();
+        batchEvent.begin();
+        
         for (TaggedSentence sentence : testSentences) {
             TaggedSentence taggedSentence = tagSentence(sentence);
             
@@ -180,6 +203,14 @@ public class CombinedTaggerService {
             }
         }
         
+        batchEvent.end();
+        if (batchEvent.shouldCommit()) {
+            batchEvent.tagger = "CombinedTaggerService";
+            batchEvent.sentences = testSentences.size();
+            batchEvent.tokens = totalWords;
+            batchEvent.commit();
+        }
+        
         return totalWords > 0 ? (double) correctPredictions / totalWords * 100 : 0;
     }
     
@@ -222,6 +253,12 @@ public class CombinedTaggerService {
             combinedAccuracies.add(combinedAccuracy);
             
             // Evaluate individual taggers for comparison
+            ModelGeneration model = modelRegistry.current();
+            DefaultTagger defaultTagger = model.getDefaultTagger();
+            UniGramTagger unigramTagger = model.getUnigramTagger();
+            BiGramTagger bigramTagger = model.getBigramTagger();
+            TriGramTagger trigramTagger = model.getTrigramTagger();
+            QuadGramTagger quadgramTagger = model.getQuadgramTagger();
             defaultAccuracies.add(defaultTagger.evaluate(testSentences));
             unigramAccuracies.add(unigramTagger.evaluate(testSentences));
             bigramAccuracies.add(bigramTagger.evaluate(testSentences));
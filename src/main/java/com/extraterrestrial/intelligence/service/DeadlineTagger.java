@@ -0,0 +1,214 @@
+package com.extraterrestrial.intelligence.service;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.metrics.DecisionCounters;
+import com.extraterrestrial.intelligence.model.Tagger;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tags within a latency budget by choosing how deep into the backoff chain to go.
+ *
+ * Each level keeps a live estimate of its cost per token, a moving average of the calls it
+ * served. A sentence is tagged by the deepest level whose estimate fits the budget, so when
+ * the machine is loaded and every level slows down, requests fall back to shallower taggers.
+ * A level that has not been measured yet counts as affordable; {@link #calibrate(List)}
+ * measures them all up front. One call in {@value #PROBE_INTERVAL} tries the next deeper
+ * level, so its estimate recovers after a transient slowdown.
+ */
+public class DeadlineTagger {
+
+    /**
+     * Levels of the chain, deepest (most accurate and most expensive) first
+     */
+    public enum Level {
+        COMBINED, QUADGRAM, TRIGRAM, BIGRAM, UNIGRAM, DEFAULT;
+
+        /**
+         * Lower-case name, as reported to clients
+         */
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    static final int PROBE_INTERVAL = 64;
+
+    private static final Level[] LEVELS = Level.values();
+    private static final String[] LEVEL_LABELS = new String[LEVELS.length];
+
+    static {
+        for (Level level : LEVELS) {
+            LEVEL_LABELS[level.ordinal()] = level.label();
+        }
+    }
+
+    private final CombinedTaggerService taggerService;
+
+    // Moving average of nanoseconds per token for each level, as double bits; 0 until measured
+    private final AtomicLongArray costPerToken = new AtomicLongArray(LEVELS.length);
+    private final AtomicLong calls = new AtomicLong();
+    private final DecisionCounters levelCounts = new DecisionCounters("DeadlineTagger", LEVEL_LABELS);
+    private final LongAdder missedBudgets = new LongAdder();
+
+    public DeadlineTagger(CombinedTaggerService taggerService) {
+        this.taggerService = taggerService;
+    }
+
+    /**
+     * Tag a sentence with the deepest level expected to finish within the budget, or with
+     * the default tagger if none is
+     * @param budgetNanos Time the caller can wait for the tags
+     */
+    public Result tagSentence(TaggedSentence sentence, long budgetNanos) {
+        int tokens = Math.max(sentence.size(), 1);
+        Level level = LEVELS[LEVELS.length - 1];
+        for (Level candidate : LEVELS) {
+            if (estimateNanos(candidate, tokens) <= budgetNanos) {
+                level = candidate;
+                break;
+            }
+        }
+        if (level.ordinal() > 0 && calls.incrementAndGet() % PROBE_INTERVAL == 0) {
+            level = LEVELS[level.ordinal() - 1];
+        }
+
+        // One generation for the whole sentence, as in the combined service
+        ModelGeneration model = taggerService.getModelRegistry().current();
+        long start = System.nanoTime();
+        TaggedSentence tagged = tag(model, level, sentence);
+        long elapsed = System.nanoTime() - start;
+
+        updateCost(level, elapsed / (double) tokens);
+        levelCounts.increment(level.ordinal());
+        if (elapsed > budgetNanos) {
+            missedBudgets.increment();
+        }
+        return new Result(tagged, level, elapsed, budgetNanos);
+    }
+
+    /**
+     * Tag a sentence at a fixed level with the current generation, whatever it costs
+     */
+    public TaggedSentence tagAt(Level level, TaggedSentence sentence) {
+        return tag(taggerService.getModelRegistry().current(), level, sentence);
+    }
+
+    /**
+     * Measure every level on the sentences, replacing any earlier estimates
+     */
+    public void calibrate(List<TaggedSentence> sentences) {
+        if (sentences.isEmpty()) {
+            return;
+        }
+        ModelGeneration model = taggerService.getModelRegistry().current();
+        long tokens = 0;
+        for (TaggedSentence sentence : sentences) {
+            tokens += Math.max(sentence.size(), 1);
+        }
+        for (Level level : LEVELS) {
+            long start = System.nanoTime();
+            for (TaggedSentence sentence : sentences) {
+                tag(model, level, sentence);
+            }
+            costPerToken.set(level.ordinal(), Double.doubleToLongBits((System.nanoTime() - start) / (double) tokens));
+        }
+    }
+
+    /**
+     * Expected time for a level to tag a sentence of the given length
+     */
+    public long estimateNanos(Level level, int tokens) {
+        return (long) (Double.longBitsToDouble(costPerToken.get(level.ordinal())) * tokens);
+    }
+
+    /**
+     * Sentences tagged at each level
+     */
+    public DecisionCounters getLevelCounts() {
+        return levelCounts;
+    }
+
+    /**
+     * Sentences that took longer than their budget
+     */
+    public long getMissedBudgets() {
+        return missedBudgets.sum();
+    }
+
+    private TaggedSentence tag(ModelGeneration model, Level level, TaggedSentence sentence) {
+        if (level == Level.COMBINED) {
+            return taggerService.tagSentence(model, sentence);
+        }
+        return tagger(model, level).tagSentence(sentence);
+    }
+
+    private static Tagger tagger(ModelGeneration model, Level level) {
+        switch (level) {
+            case QUADGRAM:
+                return model.getQuadgramTagger();
+            case TRIGRAM:
+                return model.getTrigramTagger();
+            case BIGRAM:
+                return model.getBigramTagger();
+            case UNIGRAM:
+                return model.getUnigramTagger();
+            default:
+                return model.getDefaultTagger();
+        }
+    }
+
+    /**
+     * Fold a measurement into the level's moving average, weighting it 1/8
+     */
+    private void updateCost(Level level, double nanosPerToken) {
+        int index = level.ordinal();
+        costPerToken.getAndUpdate(index, bits -> {
+            double current = Double.longBitsToDouble(bits);
+            double updated = current == 0 ? nanosPerToken : current + (nanosPerToken - current) / 8;
+            return Double.doubleToLongBits(updated);
+        });
+    }
+
+    /**
+     * Tags of a sentence, and the level that produced them
+     */
+    public static class Result {
+        private final TaggedSentence sentence;
+        private final Level level;
+        private final long elapsedNanos;
+        private final long budgetNanos;
+
+        Result(TaggedSentence sentence, Level level, long elapsedNanos, long budgetNanos) {
+            this.sentence = sentence;
+            this.level = level;
+            this.elapsedNanos = elapsedNanos;
+            this.budgetNanos = budgetNanos;
+        }
+
+        public TaggedSentence getSentence() {
+            return sentence;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public boolean isWithinBudget() {
+            return elapsedNanos <= budgetNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s in %.3f ms of %.3f ms", level.label(), elapsedNanos / 1e6, budgetNanos / 1e6);
+        }
+    }
+}
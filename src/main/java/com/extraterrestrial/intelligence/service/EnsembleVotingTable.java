@@ -0,0 +1,218 @@
+package com.extraterrestrial.intelligence.service;
+
+import com.extraterrestrial.intelligence.model.TagIndex;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The combined service's weighted vote, compiled over tag IDs for one model generation.
+ *
+ * Votes are summed in a per-thread int array indexed by tag ID, and the boosts for the tag after
+ * a determiner or preposition are looked up in a table indexed by the previous tag, so voting
+ * allocates nothing. Ties go to the tag a {@code HashMap} of the votes would have iterated to
+ * first, which is what the service did before the vote was compiled; tags the table was not
+ * compiled with are voted on with that map.
+ */
+final class EnsembleVotingTable {
+
+    // In this dataset, since sentences are often single words, unigram often works better
+    private static final int UNIGRAM_WEIGHT = 2;
+    // Bigrams are strongest for this dataset
+    private static final int BIGRAM_WEIGHT = 3;
+    // Trigram and quadgram, counted only from the third word, once they have two previous words
+    private static final int HIGHER_ORDER_WEIGHT = 1;
+    private static final int CONTEXT_BOOST = 2;
+    private static final int SUFFIX_WEIGHT = 2;
+
+    // Tags the default tagger and the rules can produce, besides those seen in training
+    private static final String[] RULE_TAGS = {"PUNCT", "NUM", "NNP", "NN", "NNS", "VB", "FW", "JJ", "DT", "IN"};
+
+    // Buckets of a default-sized HashMap, enough for the at most five tags of a vote
+    private static final int MAP_BUCKETS = 16;
+
+    private static final ThreadLocal<Votes> VOTES = ThreadLocal.withInitial(Votes::new);
+
+    private final TagIndex tagIndex;
+
+    // Bucket of each tag in a default-sized HashMap, which decides the map's iteration order
+    private final int[] mapBucket;
+
+    // boostAfter[previous tag][bigram tag]; rows of tags without a rule share one row of zeros
+    private final int[][] boostAfter;
+
+    private EnsembleVotingTable(TagIndex tagIndex) {
+        this.tagIndex = tagIndex;
+        int size = tagIndex.size();
+        this.mapBucket = new int[size];
+        for (int id = 0; id < size; id++) {
+            int h = tagIndex.tag(id).hashCode();
+            mapBucket[id] = (h ^ (h >>> 16)) & (MAP_BUCKETS - 1);
+        }
+
+        // Word after determiner is likely noun or adjective; after preposition noun or determiner
+        int[] afterDeterminer = new int[size];
+        int[] afterPreposition = new int[size];
+        for (int id = 0; id < size; id++) {
+            String tag = tagIndex.tag(id);
+            if (tag.startsWith("NN") || tag.equals("JJ")) {
+                afterDeterminer[id] = CONTEXT_BOOST;
+            }
+            if (tag.startsWith("NN") || tag.equals("DT")) {
+                afterPreposition[id] = CONTEXT_BOOST;
+            }
+        }
+        int[] none = new int[size];
+        this.boostAfter = new int[size][];
+        for (int id = 0; id < size; id++) {
+            String tag = tagIndex.tag(id);
+            boostAfter[id] = tag.equals("DT") ? afterDeterminer : tag.equals("IN") ? afterPreposition : none;
+        }
+    }
+
+    /**
+     * Compile the vote for the tags the given training tags and the tagging rules can produce
+     */
+    static EnsembleVotingTable compile(Iterable<String> trainingTags, Iterable<String> closedClassTags) {
+        TagIndex tagIndex = new TagIndex();
+        for (String tag : RULE_TAGS) {
+            tagIndex.add(tag);
+        }
+        for (String tag : closedClassTags) {
+            tagIndex.add(tag);
+        }
+        for (String tag : trainingTags) {
+            tagIndex.add(tag);
+        }
+        return new EnsembleVotingTable(tagIndex);
+    }
+
+    /**
+     * Number of tags compiled into the table
+     */
+    int size() {
+        return tagIndex.size();
+    }
+
+    /**
+     * The winning tag of one word's vote
+     * @param position Position of the word in the sentence
+     * @param previousTag Tag chosen for the previous word, null at the start of the sentence
+     * @param suffixTag Tag guessed from the word's suffix, or null
+     */
+    String vote(int position, String unigramTag, String bigramTag, String trigramTag, String quadgramTag,
+                String previousTag, String suffixTag) {
+        int unigram = tagIndex.indexOf(unigramTag);
+        int bigram = tagIndex.indexOf(bigramTag);
+        int trigram = tagIndex.indexOf(trigramTag);
+        int quadgram = tagIndex.indexOf(quadgramTag);
+        int suffix = suffixTag != null ? tagIndex.indexOf(suffixTag) : -1;
+        if (unigram < 0 || bigram < 0 || trigram < 0 || quadgram < 0 || (suffixTag != null && suffix < 0)) {
+            return voteWithMap(position, unigramTag, bigramTag, trigramTag, quadgramTag, previousTag, suffixTag);
+        }
+
+        Votes votes = VOTES.get().ensureCapacity(tagIndex.size());
+        // The bigram's weight replaces the unigram's when both predict the same tag
+        votes.set(unigram, UNIGRAM_WEIGHT);
+        votes.set(bigram, BIGRAM_WEIGHT);
+        if (position > 1) {
+            votes.add(trigram, HIGHER_ORDER_WEIGHT);
+            votes.add(quadgram, HIGHER_ORDER_WEIGHT);
+        }
+        if (position > 0) {
+            int previous = tagIndex.indexOf(previousTag);
+            if (previous >= 0 && boostAfter[previous][bigram] > 0) {
+                votes.add(bigram, boostAfter[previous][bigram]);
+            }
+        }
+        if (suffixTag != null) {
+            votes.add(suffix, SUFFIX_WEIGHT);
+        }
+        return tagIndex.tag(votes.best(mapBucket));
+    }
+
+    /**
+     * The vote over a map of tag strings, for tags outside the table
+     */
+    static String voteWithMap(int position, String unigramTag, String bigramTag, String trigramTag,
+                              String quadgramTag, String previousTag, String suffixTag) {
+        Map<String, Integer> votes = new HashMap<>();
+        votes.put(unigramTag, UNIGRAM_WEIGHT);
+        votes.put(bigramTag, BIGRAM_WEIGHT);
+        if (position > 1) {
+            votes.put(trigramTag, votes.getOrDefault(trigramTag, 0) + HIGHER_ORDER_WEIGHT);
+            votes.put(quadgramTag, votes.getOrDefault(quadgramTag, 0) + HIGHER_ORDER_WEIGHT);
+        }
+        if (position > 0) {
+            if (previousTag.equals("DT") && (bigramTag.startsWith("NN") || bigramTag.equals("JJ"))) {
+                votes.put(bigramTag, votes.getOrDefault(bigramTag, 0) + CONTEXT_BOOST);
+            }
+            if (previousTag.equals("IN") && (bigramTag.startsWith("NN") || bigramTag.equals("DT"))) {
+                votes.put(bigramTag, votes.getOrDefault(bigramTag, 0) + CONTEXT_BOOST);
+            }
+        }
+        if (suffixTag != null) {
+            votes.put(suffixTag, votes.getOrDefault(suffixTag, 0) + SUFFIX_WEIGHT);
+        }
+
+        String bestTag = null;
+        int maxVotes = 0;
+        for (Map.Entry<String, Integer> entry : votes.entrySet()) {
+            if (entry.getValue() > maxVotes) {
+                maxVotes = entry.getValue();
+                bestTag = entry.getKey();
+            }
+        }
+        return bestTag != null ? bestTag : unigramTag;
+    }
+
+    /**
+     * One thread's vote counts by tag ID, cleared after every vote
+     */
+    private static final class Votes {
+
+        private int[] counts = new int[0];
+
+        // Tags with a vote, in the order they got their first one
+        private final int[] voted = new int[8];
+        private int votedCount;
+
+        Votes ensureCapacity(int tags) {
+            if (counts.length < tags) {
+                counts = new int[tags];
+            }
+            return this;
+        }
+
+        void set(int tag, int weight) {
+            if (counts[tag] == 0) {
+                voted[votedCount++] = tag;
+            }
+            counts[tag] = weight;
+        }
+
+        void add(int tag, int weight) {
+            set(tag, counts[tag] + weight);
+        }
+
+        /**
+         * The tag with the most votes, ties broken by HashMap iteration order: lower bucket
+         * first, then first voted; clears the votes
+         */
+        int best(int[] mapBucket) {
+            int best = voted[0];
+            for (int i = 1; i < votedCount; i++) {
+                int tag = voted[i];
+                if (counts[tag] > counts[best]
+                        || (counts[tag] == counts[best] && mapBucket[tag] < mapBucket[best])) {
+                    best = tag;
+                }
+            }
+            for (int i = 0; i < votedCount; i++) {
+                counts[voted[i]] = 0;
+            }
+            votedCount = 0;
+            return best;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.extraterrestrial.intelligence.service;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.metrics.DecisionCounters;
+import com.extraterrestrial.intelligence.metrics.LatencyHistogram;
+import com.extraterrestrial.intelligence.metrics.LatencyMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent single-sentence requests into batches for a batch tagging function.
+ *
+ * Worker threads take the oldest request and whatever else is queued, up to the maximum
+ * batch size. A worker whose previous batch held several requests expects more to arrive and
+ * waits for them, but never past the maximum wait counted from the oldest request's arrival;
+ * a worker that just ran a batch of one dispatches at once, so light traffic pays no wait.
+ * Why each batch was closed (full, waited or idle) is counted in {@link #getBatchCloses()}.
+ *
+ * The queue is bounded, so a burst cannot grow it until the heap runs out. A request that finds
+ * it full is handled by the {@link OverloadPolicy}: it waits for space, is shed with an
+ * {@link OverloadedException}, or is tagged at once by a cheaper degraded tagger. How each
+ * request was admitted is counted in {@link #getAdmissions()}. Work that cannot be batched, such
+ * as a request with its own latency budget, goes through the same queue and policy with
+ * {@link #submitTask} and is run alone by a worker.
+ */
+public class MicroBatchScheduler implements AutoCloseable {
+
+    public static final String MAX_BATCH_SIZE_PROPERTY = "tagger.batch.maxSize";
+    public static final String MAX_WAIT_PROPERTY = "tagger.batch.maxWaitMicros";
+    public static final int DEFAULT_MAX_WAIT_MICROS = 200;
+    public static final String QUEUE_CAPACITY_PROPERTY = "tagger.batch.queueCapacity";
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    // Why a batch was closed
+    private static final int FULL = 0;
+    private static final int WAITED = 1;
+    private static final int IDLE = 2;
+
+    // How a request was admitted
+    private static final int QUEUED = 0;
+    private static final int BLOCKED = 1;
+    private static final int SHED = 2;
+    private static final int DEGRADED = 3;
+
+    private static final LatencyHistogram QUEUE_WAIT = LatencyMetrics.histogram("MicroBatchScheduler.queueWait");
+    private static final LatencyHistogram BATCH_LATENCY = LatencyMetrics.histogram("MicroBatchScheduler.batch");
+
+    private final Function<List<TaggedSentence>, List<TaggedSentence>> batchTagger;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final int queueCapacity;
+    private final OverloadPolicy overloadPolicy;
+    private final Function<TaggedSentence, TaggedSentence> degradedTagger;
+    private final BlockingQueue<Request> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final DecisionCounters batchCloses = new DecisionCounters("MicroBatchScheduler", "full", "waited", "idle");
+    private final DecisionCounters admissions = new DecisionCounters("MicroBatchScheduler.admission",
+            "queued", "blocked", "shed", "degraded");
+
+    /**
+     * Start the workers, with a queue of {@link #DEFAULT_QUEUE_CAPACITY} that blocks when full
+     * @param batchTagger Tags a batch, returning the results in the order given
+     * @param maxBatchSize Most requests per batch
+     * @param maxWaitMicros Longest a request waits for others to join its batch
+     * @param workerCount Batches run at the same time
+     */
+    public MicroBatchScheduler(Function<List<TaggedSentence>, List<TaggedSentence>> batchTagger,
+                               int maxBatchSize, long maxWaitMicros, int workerCount) {
+        this(batchTagger, maxBatchSize, maxWaitMicros, workerCount, DEFAULT_QUEUE_CAPACITY, OverloadPolicy.BLOCK, null);
+    }
+
+    /**
+     * @param queueCapacity Most requests waiting for a worker
+     * @param overloadPolicy What to do with a request that finds the queue full
+     * @param degradedTagger Cheaper tagger for {@link OverloadPolicy#DEGRADE}, otherwise may be null
+     */
+    public MicroBatchScheduler(Function<List<TaggedSentence>, List<TaggedSentence>> batchTagger,
+                               int maxBatchSize, long maxWaitMicros, int workerCount, int queueCapacity,
+                               OverloadPolicy overloadPolicy, Function<TaggedSentence, TaggedSentence> degradedTagger) {
+        if (maxBatchSize < 1 || workerCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Batch size, worker count and queue capacity must be positive");
+        }
+        if (overloadPolicy == OverloadPolicy.DEGRADE && degradedTagger == null) {
+            throw new IllegalArgumentException("The degrade policy needs a degraded tagger");
+        }
+        this.batchTagger = batchTagger;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.queueCapacity = queueCapacity;
+        this.overloadPolicy = overloadPolicy;
+        this.degradedTagger = degradedTagger;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "micro-batch-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * A scheduler for the combined tagger's batch path with one worker per processor, degrading
+     * to the unigram tagger alone under {@link OverloadPolicy#DEGRADE}
+     */
+    public static MicroBatchScheduler forService(CombinedTaggerService taggerService, int maxBatchSize,
+                                                 long maxWaitMicros, int queueCapacity,
+                                                 OverloadPolicy overloadPolicy) {
+        return new MicroBatchScheduler(taggerService::tagSentences, maxBatchSize, maxWaitMicros,
+                Runtime.getRuntime().availableProcessors(), queueCapacity, overloadPolicy,
+                taggerService::tagSentenceDegraded);
+    }
+
+    /**
+     * Queue a sentence for the next batch, or handle it by the overload policy if the queue is full
+     * @return Completes with the tagged sentence, or exceptionally if its batch failed or it was shed
+     */
+    public CompletableFuture<TaggedSentence> submit(TaggedSentence sentence) {
+        CompletableFuture<TaggedSentence> result = new CompletableFuture<>();
+        admit(new Request(sentence, null, () -> complete(result, () -> degradedTagger.apply(sentence)), result));
+        return result;
+    }
+
+    /**
+     * Queue work that is not batched with the sentences, under the same bound and overload policy
+     * @param task Run alone by a worker
+     * @param degradedTask Run at once on the caller's thread instead, under {@link OverloadPolicy#DEGRADE}
+     * @return Completes with the task's result, or exceptionally if it failed or was shed
+     */
+    public <T> CompletableFuture<T> submitTask(Supplier<T> task, Supplier<T> degradedTask) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        admit(new Request(null, () -> complete(result, task), () -> complete(result, degradedTask), result));
+        return result;
+    }
+
+    /**
+     * Queue a request, or handle it by the overload policy if the queue is full
+     */
+    private void admit(Request request) {
+        if (!running) {
+            request.result.completeExceptionally(new IllegalStateException("Scheduler is closed"));
+            return;
+        }
+        requests.increment();
+        if (queue.offer(request)) {
+            admissions.increment(QUEUED);
+        } else if (overloadPolicy == OverloadPolicy.BLOCK) {
+            admissions.increment(BLOCKED);
+            if (!putWhileRunning(request)) {
+                requests.decrement();
+                return;
+            }
+        } else {
+            requests.decrement();
+            if (overloadPolicy == OverloadPolicy.DEGRADE) {
+                admissions.increment(DEGRADED);
+                request.degraded.run();
+            } else {
+                admissions.increment(SHED);
+                request.result.completeExceptionally(
+                        new OverloadedException("Tagging queue is full (" + queueCapacity + " requests)"));
+            }
+            return;
+        }
+
+        if (!running && queue.remove(request)) {
+            // Closed meanwhile, and possibly no worker left to take it
+            requests.decrement();
+            request.result.completeExceptionally(new IllegalStateException("Scheduler is closed"));
+        }
+    }
+
+    /**
+     * Requests waiting for a worker
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    /**
+     * Requests that went through the batches
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Average number of requests per batch
+     */
+    public double getBatchingRatio() {
+        long batchCount = batches.sum();
+        return batchCount > 0 ? (double) requests.sum() / batchCount : 0;
+    }
+
+    /**
+     * Batches closed because they were full (full), because the wait ran out (waited), or at
+     * once because traffic was light (idle)
+     */
+    public DecisionCounters getBatchCloses() {
+        return batchCloses;
+    }
+
+    /**
+     * Requests queued at once (queued), after waiting for space (blocked), failed because the
+     * queue was full (shed), or tagged by the degraded tagger instead (degraded)
+     */
+    public DecisionCounters getAdmissions() {
+        return admissions;
+    }
+
+    /**
+     * Stop taking requests; the workers finish the queued ones first
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests in %d batches (%.2f per batch), queue depth %d of %d, closes %s, " +
+                        "admissions %s", getRequestCount(), getBatchCount(), getBatchingRatio(), getQueueDepth(),
+                queueCapacity, batchCloses.snapshot(), admissions.snapshot());
+    }
+
+    private void runWorker() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        boolean concurrent = false;
+        while (running || !queue.isEmpty()) {
+            Request first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            if (batch.size() < maxBatchSize && concurrent) {
+                collectUntil(batch, first.enqueuedNanos + maxWaitNanos);
+                batchCloses.increment(batch.size() < maxBatchSize ? WAITED : FULL);
+            } else {
+                batchCloses.increment(batch.size() < maxBatchSize ? IDLE : FULL);
+            }
+
+            concurrent = batch.size() > 1;
+            run(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Add arriving requests to a batch until it is full or the deadline passes
+     */
+    private void collectUntil(List<Request> batch, long deadline) {
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Request next;
+            try {
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    /**
+     * Wait for space in the queue, giving up if the scheduler is closed meanwhile
+     * @return Whether the request was queued; if not, it has been failed
+     */
+    private boolean putWhileRunning(Request request) {
+        try {
+            while (running) {
+                if (queue.offer(request, 10, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            request.result.completeExceptionally(new IllegalStateException("Scheduler is closed"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.result.completeExceptionally(e);
+        }
+        return false;
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, Supplier<T> work) {
+        try {
+            result.complete(work.get());
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void run(List<Request> batch) {
+        long start = System.nanoTime();
+        if (LatencyMetrics.isEnabled()) {
+            for (Request request : batch) {
+                QUEUE_WAIT.record(start - request.enqueuedNanos);
+            }
+        }
+        batches.increment();
+
+        // Tasks run alone; the sentences are tagged together
+        List<Request> sentenceRequests = new ArrayList<>(batch.size());
+        List<TaggedSentence> sentences = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            if (request.task != null) {
+                request.task.run();
+            } else {
+                sentenceRequests.add(request);
+                sentences.add(request.sentence);
+            }
+        }
+        if (!sentences.isEmpty()) {
+            try {
+                List<TaggedSentence> tagged = batchTagger.apply(sentences);
+                for (int i = 0; i < sentenceRequests.size(); i++) {
+                    sentenceRequests.get(i).sentenceResult().complete(tagged.get(i));
+                }
+            } catch (RuntimeException e) {
+                for (Request request : sentenceRequests) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+        }
+        BATCH_LATENCY.recordSince(LatencyMetrics.isEnabled() ? start : 0L);
+    }
+
+    /**
+     * A sentence to batch, or a task to run alone
+     */
+    private static final class Request {
+        final TaggedSentence sentence;
+        final Runnable task;
+        // Completes the result by the degraded path, on the caller's thread
+        final Runnable degraded;
+        final CompletableFuture<?> result;
+        final long enqueuedNanos = System.nanoTime();
+
+        Request(TaggedSentence sentence, Runnable task, Runnable degraded, CompletableFuture<?> result) {
+            this.sentence = sentence;
+            this.task = task;
+            this.degraded = degraded;
+            this.result = result;
+        }
+
+        @SuppressWarnings("unchecked")
+        CompletableFuture<TaggedSentence> sentenceResult() {
+            return (CompletableFuture<TaggedSentence>) result;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.extraterrestrial.intelligence.service;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.model.*;
+import com.extraterrestrial.intelligence.util.WordShapeUtil;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One trained set of the combined service's taggers. The service never retrains or replaces
+ * a generation's taggers, so a request that took a generation tags with the same models from
+ * its first word to its last. The taggers themselves are not frozen: calling e.g.
+ * {@link AbstractNGramTagger#updateChain} or {@code setFastPathLexicon} on those handed out by
+ * the getters changes them under every request in flight; publish a new generation instead.
+ */
+public final class ModelGeneration {
+
+    private static final AtomicLong NEXT_NUMBER = new AtomicLong(1);
+
+    private final long number;
+    private final int trainingSentences;
+    private final DefaultTagger defaultTagger;
+    private final UniGramTagger unigramTagger;
+    private final BiGramTagger bigramTagger;
+    private final TriGramTagger trigramTagger;
+    private final QuadGramTagger quadgramTagger;
+    private final EntityTagger entityTagger;
+    private final EnsembleVotingTable votingTable;
+
+    private ModelGeneration(int trainingSentences, DefaultTagger defaultTagger, UniGramTagger unigramTagger,
+                            BiGramTagger bigramTagger, TriGramTagger trigramTagger, QuadGramTagger quadgramTagger,
+                            EntityTagger entityTagger, EnsembleVotingTable votingTable) {
+        this.number = NEXT_NUMBER.getAndIncrement();
+        this.trainingSentences = trainingSentences;
+        this.defaultTagger = defaultTagger;
+        this.unigramTagger = unigramTagger;
+        this.bigramTagger = bigramTagger;
+        this.trigramTagger = trigramTagger;
+        this.quadgramTagger = quadgramTagger;
+        this.entityTagger = entityTagger;
+        this.votingTable = votingTable;
+    }
+
+    /**
+     * Train a new backoff chain, default to quadgram, the entity tagger every n-gram level labels
+     * its words with, and the ensemble's vote over the tags seen
+     */
+    public static ModelGeneration train(List<TaggedSentence> trainingSentences) {
+        DefaultTagger defaultTagger = new DefaultTagger();
+
+        UniGramTagger unigramTagger = new UniGramTagger(defaultTagger);
+        unigramTagger.train(trainingSentences);
+
+        BiGramTagger bigramTagger = new BiGramTagger(unigramTagger);
+        bigramTagger.train(trainingSentences);
+
+        TriGramTagger trigramTagger = new TriGramTagger(bigramTagger);
+        trigramTagger.train(trainingSentences);
+
+        QuadGramTagger quadgramTagger = new QuadGramTagger(trigramTagger);
+        quadgramTagger.train(trainingSentences);
+
+        EntityTagger entityTagger = new EntityTagger();
+        entityTagger.train(trainingSentences);
+        for (AbstractNGramTagger level : new AbstractNGramTagger[] {unigramTagger, bigramTagger, trigramTagger, quadgramTagger}) {
+            level.setEntityTagger(entityTagger);
+        }
+
+        Set<String> trainingTags = new LinkedHashSet<>();
+        for (TaggedSentence sentence : trainingSentences) {
+            for (TaggerWord word : sentence.getWords()) {
+                trainingTags.add(word.getTag());
+            }
+        }
+        EnsembleVotingTable votingTable = EnsembleVotingTable.compile(trainingTags,
+                WordShapeUtil.getClosedClassWords().values());
+
+        return new ModelGeneration(trainingSentences.size(), defaultTagger, unigramTagger, bigramTagger,
+                trigramTagger, quadgramTagger, entityTagger, votingTable);
+    }
+
+    /**
+     * Tag sentences through the whole chain, so the first requests served by this generation
+     * do not pay for class loading, lazy tables and JIT compilation
+     */
+    public void warmUp(List<TaggedSentence> sentences) {
+        for (TaggedSentence sentence : sentences) {
+            quadgramTagger.tagSentence(sentence);
+        }
+    }
+
+    /**
+     * Increasing number of this generation within the process
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    public int getTrainingSentences() {
+        return trainingSentences;
+    }
+
+    public DefaultTagger getDefaultTagger() {
+        return defaultTagger;
+    }
+
+    public UniGramTagger getUnigramTagger() {
+        return unigramTagger;
+    }
+
+    public BiGramTagger getBigramTagger() {
+        return bigramTagger;
+    }
+
+    public TriGramTagger getTrigramTagger() {
+        return trigramTagger;
+    }
+
+    public QuadGramTagger getQuadgramTagger() {
+        return quadgramTagger;
+    }
+
+    public EntityTagger getEntityTagger() {
+        return entityTagger;
+    }
+
+    /**
+     * The combined service's vote, compiled over this generation's tags
+     */
+    EnsembleVotingTable getVotingTable() {
+        return votingTable;
+    }
+
+    @Override
+    public String toString() {
+        return "generation " + number + " (" + trainingSentences + " training sentences)";
+    }
+}
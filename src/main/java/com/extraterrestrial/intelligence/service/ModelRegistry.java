@@ -0,0 +1,111 @@
+package com.extraterrestrial.intelligence.service;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.metrics.ModelSwapEvent;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Holds the model generation that serves requests and swaps in new ones.
+ *
+ * A request reads {@link #current()} once and keeps that generation to the end, so a swap
+ * never changes the models under a request in flight; the old generation is garbage once
+ * the last such request returns. New generations are built and warmed on a single loader
+ * thread, one at a time, and become current in one atomic step. Serving threads never wait
+ * for a load, and a load that fails leaves the current generation in place. Generations are
+ * numbered in the order they are built, and an older one never replaces a newer one, e.g.
+ * when {@link #publish} races a load.
+ */
+public class ModelRegistry implements AutoCloseable {
+
+    private final AtomicReference<ModelGeneration> current = new AtomicReference<>();
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "model-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The generation to serve a request with
+     * @throws IllegalStateException if no generation has been published yet
+     */
+    public ModelGeneration current() {
+        ModelGeneration generation = current.get();
+        if (generation == null) {
+            throw new IllegalStateException("No model generation has been loaded");
+        }
+        return generation;
+    }
+
+    public boolean hasCurrent() {
+        return current.get() != null;
+    }
+
+    /**
+     * Make a generation current at once, without warm-up, unless a newer one is current
+     * @return The generation current before, or null; if it is the newer of the two, the given
+     *         generation was not published
+     */
+    public ModelGeneration publish(ModelGeneration generation) {
+        return swap(generation, Collections.emptyList());
+    }
+
+    /**
+     * Build, warm up and publish a generation on the loader thread
+     * @param supplier Builds the generation, e.g. by training or from a saved model
+     * @param warmupSentences Tagged with the new generation before it is published
+     * @return Completes with the built generation, which is not published if a newer one became
+     *         current meanwhile, or exceptionally if the supplier failed
+     */
+    public CompletableFuture<ModelGeneration> loadAsync(Supplier<ModelGeneration> supplier,
+                                                        List<TaggedSentence> warmupSentences) {
+        return CompletableFuture.supplyAsync(() -> {
+            ModelSwapEvent swapEvent = new ModelSwapEvent();
+            swapEvent.begin();
+            ModelGeneration generation = supplier.get();
+            ModelGeneration previous = swap(generation, warmupSentences);
+
+            swapEvent.end();
+            if (isReplacedBy(previous, generation) && swapEvent.shouldCommit()) {
+                swapEvent.generation = generation.getNumber();
+                swapEvent.previousGeneration = previous != null ? previous.getNumber() : 0;
+                swapEvent.warmupSentences = warmupSentences.size();
+                swapEvent.commit();
+            }
+            return generation;
+        }, loader);
+    }
+
+    /**
+     * Train a new generation in the background and publish it
+     */
+    public CompletableFuture<ModelGeneration> retrainAsync(List<TaggedSentence> trainingSentences,
+                                                           List<TaggedSentence> warmupSentences) {
+        return loadAsync(() -> ModelGeneration.train(trainingSentences), warmupSentences);
+    }
+
+    /**
+     * Stop the loader thread; a load already running is finished first
+     */
+    @Override
+    public void close() {
+        loader.shutdown();
+    }
+
+    private ModelGeneration swap(ModelGeneration generation, List<TaggedSentence> warmupSentences) {
+        generation.warmUp(warmupSentences);
+        return current.getAndAccumulate(generation,
+                (previous, candidate) -> isReplacedBy(previous, candidate) ? candidate : previous);
+    }
+
+    private static boolean isReplacedBy(ModelGeneration previous, ModelGeneration candidate) {
+        return previous == null || candidate.getNumber() > previous.getNumber();
+    }
+}
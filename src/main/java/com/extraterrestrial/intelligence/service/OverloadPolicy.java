@@ -0,0 +1,35 @@
+package com.extraterrestrial.intelligence.service;
+
+import java.util.Locale;
+
+/**
+ * What a bounded tagging queue does with a request that arrives while it is full
+ */
+public enum OverloadPolicy {
+
+    /**
+     * Wait for space, pushing back on the caller
+     */
+    BLOCK,
+
+    /**
+     * Fail at once with an {@link OverloadedException}
+     */
+    REJECT,
+
+    /**
+     * Tag at once on the caller's thread with a cheaper model, trading accuracy for latency
+     */
+    DEGRADE;
+
+    /**
+     * The policy named by a command line option such as "reject", in any case
+     */
+    public static OverloadPolicy parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown overload policy: " + name + ", use block, reject or degrade");
+        }
+    }
+}
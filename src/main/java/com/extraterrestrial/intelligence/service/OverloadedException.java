@@ -0,0 +1,11 @@
+package com.extraterrestrial.intelligence.service;
+
+/**
+ * Thrown for a request shed because its tagging queue was full
+ */
+public class OverloadedException extends RuntimeException {
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+}
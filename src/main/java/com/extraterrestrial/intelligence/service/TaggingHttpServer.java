@@ -0,0 +1,438 @@
+package com.extraterrestrial.intelligence.service;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.metrics.LatencyHistogram;
+import com.extraterrestrial.intelligence.metrics.LatencyMetrics;
+import com.extraterrestrial.intelligence.model.SemanticModel;
+import com.extraterrestrial.intelligence.util.Json;
+import com.extraterrestrial.intelligence.util.Tokenizer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embedded HTTP front end of the combined tagger and the semantic model, on the JDK's
+ * built-in server.
+ *
+ * Endpoints:
+ * <ul>
+ *   <li>POST /tag with {"text": "..."}: the sentence's tokens, tags and, when the model was
+ *       trained with them, named entity labels as one JSON object; with ?budgetMs=N the
+ *       {@link DeadlineTagger} picks the chain level, reported as "level"</li>
+ *   <li>POST /tag/batch with one such object per line (NDJSON): one result line per input line,
+ *       streamed as each is tagged; a line that is malformed or fails to tag gets an error
+ *       line, and the whole request gets 503 while no model is loaded</li>
+ *   <li>GET /predict?text=...: next-word and phrase predictions of the semantic model</li>
+ *   <li>GET /health: the model generation being served</li>
+ * </ul>
+ *
+ * Requests run on a fixed pool of {@code -Dtagger.http.threads} threads (default twice the
+ * processors), since tagging is CPU-bound and more threads would only add switching. At most
+ * {@code -Dtagger.http.queue} requests wait for a thread; beyond that the connection is closed
+ * at once and counted as rejected.
+ * Every request tags with one model generation from the service's {@link ModelRegistry}.
+ * With a {@link MicroBatchScheduler}, /tag requests and the lines of /tag/batch are coalesced
+ * into batches, and budgeted requests go through the same queue; the scheduler's overload
+ * policy applies to all of them: a shed request gets 503 and a shed line an error line.
+ * /health then also reports the queue depth, batching ratio and admission counts.
+ */
+public class TaggingHttpServer implements AutoCloseable {
+
+    public static final String THREADS_PROPERTY = "tagger.http.threads";
+    public static final String QUEUE_PROPERTY = "tagger.http.queue";
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    // Lines of a /tag/batch request submitted to the scheduler ahead of the one being written
+    private static final int BATCH_LINES_IN_FLIGHT = 32;
+
+    static {
+        // Without TCP_NODELAY a client that writes headers and body separately waits out the
+        // delayed ACK on every request, about 40 ms. Read once, when the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private static final LatencyHistogram TAG_LATENCY = LatencyMetrics.histogram("TaggingHttpServer.tag");
+    private static final LatencyHistogram BATCH_LATENCY = LatencyMetrics.histogram("TaggingHttpServer.batch");
+    private static final LatencyHistogram PREDICT_LATENCY = LatencyMetrics.histogram("TaggingHttpServer.predict");
+
+    private final CombinedTaggerService taggerService;
+    private final SemanticModel semanticModel;
+    private final MicroBatchScheduler batchScheduler;
+    private final DeadlineTagger deadlineTagger;
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejectedConnections = new LongAdder();
+
+    /**
+     * Bind the server; it accepts requests once {@link #start()} is called
+     * @param port Port to listen on, or 0 for any free port
+     * @param semanticModel Model behind /predict, or null to disable it
+     */
+    public TaggingHttpServer(CombinedTaggerService taggerService, SemanticModel semanticModel, int port)
+            throws IOException {
+        this(taggerService, semanticModel, port, defaultThreads(), null);
+    }
+
+    /**
+     * @param threads Request threads, which also bounds how many /tag requests can share a batch
+     * @param batchScheduler Scheduler for /tag requests and /tag/batch lines, or null to tag each on its
+     *                       request thread
+     */
+    public TaggingHttpServer(CombinedTaggerService taggerService, SemanticModel semanticModel, int port,
+                             int threads, MicroBatchScheduler batchScheduler) throws IOException {
+        this.taggerService = taggerService;
+        this.semanticModel = semanticModel;
+        this.batchScheduler = batchScheduler;
+        this.deadlineTagger = new DeadlineTagger(taggerService);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Integer.getInteger(QUEUE_PROPERTY, DEFAULT_QUEUE_CAPACITY)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "tagging-http-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    // The server closes the connection of an exchange its executor rejects
+                    rejectedConnections.increment();
+                    throw new RejectedExecutionException("Request queue is full");
+                });
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/tag", handler("POST", this::tag));
+        server.createContext("/tag/batch", handler("POST", this::tagBatch));
+        server.createContext("/predict", handler("GET", this::predict));
+        server.createContext("/health", handler("GET", this::health));
+    }
+
+    /**
+     * Request threads from {@code -Dtagger.http.threads}, or twice the processors
+     */
+    public static int defaultThreads() {
+        return Integer.getInteger(THREADS_PROPERTY, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * The port the server listens on, useful after binding port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * The tagger behind /tag?budgetMs=, to calibrate before serving
+     */
+    public DeadlineTagger getDeadlineTagger() {
+        return deadlineTagger;
+    }
+
+    /**
+     * Connections closed unanswered because every thread was busy and the request queue full
+     */
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    /**
+     * Stop accepting requests, give running ones a second to finish, and stop the pool
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void tag(HttpExchange exchange) throws IOException {
+        long start = LatencyMetrics.start();
+        TaggedSentence sentence = parseSentence(readBody(exchange));
+        String budget = queryParameter(exchange, "budgetMs");
+        if (budget != null) {
+            long budgetNanos = budgetNanos(budget);
+            DeadlineTagger.Result result;
+            if (batchScheduler != null) {
+                // Admitted like any other request, with the time spent queued counted against the
+                // budget; degraded, it is tagged at once, at the level the budget allows
+                long received = System.nanoTime();
+                result = join(batchScheduler.submitTask(
+                        () -> deadlineTagger.tagSentence(sentence, budgetNanos - (System.nanoTime() - received)),
+                        () -> deadlineTagger.tagSentence(sentence, budgetNanos)));
+            } else {
+                result = deadlineTagger.tagSentence(sentence, budgetNanos);
+            }
+            send(exchange, 200, "application/json", toJson(result.getSentence(), result.getLevel()));
+            TAG_LATENCY.recordSince(start);
+            return;
+        }
+
+        TaggedSentence tagged;
+        if (batchScheduler != null) {
+            tagged = join(batchScheduler.submit(sentence));
+        } else {
+            tagged = taggerService.tagSentence(sentence);
+        }
+        send(exchange, 200, "application/json", toJson(tagged, null));
+        TAG_LATENCY.recordSince(start);
+    }
+
+    private void tagBatch(HttpExchange exchange) throws IOException {
+        long start = LatencyMetrics.start();
+        // Once the 200 is sent, a failure can only be reported line by line
+        if (!taggerService.getModelRegistry().hasCurrent()) {
+            send(exchange, 503, "application/json", errorJson("No model is loaded"));
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+             OutputStream out = exchange.getResponseBody()) {
+            // Lines submitted to the scheduler and not yet written, oldest first
+            Deque<CompletableFuture<TaggedSentence>> pending = new ArrayDeque<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                CompletableFuture<TaggedSentence> tagged;
+                try {
+                    TaggedSentence sentence = parseSentence(line);
+                    tagged = batchScheduler != null
+                            ? batchScheduler.submit(sentence)
+                            : CompletableFuture.completedFuture(taggerService.tagSentence(sentence));
+                } catch (RuntimeException e) {
+                    tagged = CompletableFuture.failedFuture(e);
+                }
+                pending.add(tagged);
+                if (pending.size() >= BATCH_LINES_IN_FLIGHT) {
+                    writeLine(out, pending.poll());
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeLine(out, pending.poll());
+            }
+        }
+        BATCH_LATENCY.recordSince(start);
+    }
+
+    /**
+     * Write one result line of /tag/batch, or an error line if the line failed or was shed
+     */
+    private static void writeLine(OutputStream out, CompletableFuture<TaggedSentence> tagged) throws IOException {
+        String result;
+        try {
+            result = toJson(join(tagged), null);
+        } catch (IllegalArgumentException | OverloadedException e) {
+            result = errorJson(e.getMessage());
+        } catch (RuntimeException e) {
+            result = errorJson(e.toString());
+        }
+        out.write((result + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Wait for a scheduled result, rethrowing the failure it completed with
+     */
+    private static <T> T join(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private void predict(HttpExchange exchange) throws IOException {
+        if (semanticModel == null) {
+            send(exchange, 404, "application/json", errorJson("No semantic model is loaded"));
+            return;
+        }
+        String text = queryParameter(exchange, "text");
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Missing query parameter: text");
+        }
+
+        long start = LatencyMetrics.start();
+        Map<String, Object> predictions = semanticModel.getPredictions(text);
+        StringBuilder json = new StringBuilder("{\"words\":{");
+        @SuppressWarnings("unchecked")
+        Map<String, String> words = (Map<String, String>) predictions.get("wordPredictions");
+        String separator = "";
+        for (Map.Entry<String, String> word : words.entrySet()) {
+            Json.appendQuoted(json.append(separator), word.getKey()).append(':');
+            Json.appendQuoted(json, word.getValue());
+            separator = ",";
+        }
+        json.append("},\"phrases\":[");
+        @SuppressWarnings("unchecked")
+        List<String> phrases = (List<String>) predictions.get("phrasePredictions");
+        separator = "";
+        for (String phrase : phrases) {
+            Json.appendQuoted(json.append(separator), phrase);
+            separator = ",";
+        }
+        json.append("]}");
+        send(exchange, 200, "application/json", json.toString());
+        PREDICT_LATENCY.recordSince(start);
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        ModelRegistry registry = taggerService.getModelRegistry();
+        if (!registry.hasCurrent()) {
+            send(exchange, 503, "application/json", "{\"status\":\"loading\"}");
+            return;
+        }
+        StringBuilder json = new StringBuilder("{\"status\":\"ok\",\"generation\":")
+                .append(registry.current().getNumber());
+        json.append(",\"rejectedConnections\":").append(rejectedConnections.sum());
+        if (batchScheduler != null) {
+            json.append(",\"queueDepth\":").append(batchScheduler.getQueueDepth())
+                    .append(",\"batchingRatio\":").append(Math.round(batchScheduler.getBatchingRatio() * 100) / 100.0)
+                    .append(",\"admissions\":{");
+            String separator = "";
+            for (Map.Entry<String, Long> admission : batchScheduler.getAdmissions().snapshot().entrySet()) {
+                Json.appendQuoted(json.append(separator), admission.getKey()).append(':').append(admission.getValue());
+                separator = ",";
+            }
+            json.append('}');
+        }
+        send(exchange, 200, "application/json", json.append('}').toString());
+    }
+
+    /**
+     * The text of a {"text": "..."} object, tokenized as the training data is
+     */
+    private static TaggedSentence parseSentence(String request) {
+        String text = Json.parseStringObject(request).get("text");
+        if (text == null) {
+            throw new IllegalArgumentException("Missing field: text");
+        }
+        return Tokenizer.forCurrentThread().tokenize(text).toSentence();
+    }
+
+    /**
+     * Milliseconds, fractions allowed, as nanoseconds
+     */
+    private static long budgetNanos(String budgetMs) {
+        double millis = Double.parseDouble(budgetMs);
+        if (!(millis > 0)) {
+            throw new IllegalArgumentException("budgetMs must be positive");
+        }
+        return (long) (millis * 1_000_000);
+    }
+
+    /**
+     * @param level Chain level that tagged the sentence, or null to leave it out
+     */
+    private static String toJson(TaggedSentence tagged, DeadlineTagger.Level level) {
+        StringBuilder json = new StringBuilder("{\"tokens\":[");
+        String separator = "";
+        for (TaggerWord word : tagged.getWords()) {
+            Json.appendQuoted(json.append(separator).append("{\"word\":"), word.getWord()).append(",\"tag\":");
+            Json.appendQuoted(json, word.getTag());
+            if (!word.getEntity().isEmpty()) {
+                Json.appendQuoted(json.append(",\"entity\":"), word.getEntity());
+            }
+            json.append('}');
+            separator = ",";
+        }
+        json.append(']');
+        if (level != null) {
+            Json.appendQuoted(json.append(",\"level\":"), level.label());
+        }
+        return json.append('}').toString();
+    }
+
+    private static String errorJson(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) throws UnsupportedEncodingException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0 && parameter.substring(0, equals).equals(name)) {
+                return URLDecoder.decode(parameter.substring(equals + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Check the method, and turn exceptions into 400 (bad request), 503 (overloaded) or 500 responses
+     */
+    private static HttpHandler handler(String method, HttpHandler handler) {
+        return exchange -> {
+            try {
+                if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    send(exchange, 405, "application/json", errorJson("Use " + method));
+                } else {
+                    handler.handle(exchange);
+                }
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, "application/json", errorJson(e.getMessage()));
+            } catch (OverloadedException e) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, "application/json", errorJson(e.getMessage()));
+            } catch (RuntimeException e) {
+                send(exchange, 500, "application/json", errorJson(e.toString()));
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+}
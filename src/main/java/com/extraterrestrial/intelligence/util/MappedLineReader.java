@@ -0,0 +1,97 @@
+package com.extraterrestrial.intelligence.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the UTF-8 lines of a file through memory-mapped windows, so large inputs are read
+ * by the page cache instead of being copied through stream buffers.
+ *
+ * A single mapping is limited to 2 GB, so the file is mapped a window at a time, each starting
+ * at the beginning of the line the previous one cut off. Line ends are \n or \r\n.
+ */
+public class MappedLineReader implements AutoCloseable {
+
+    static final int DEFAULT_WINDOW = 64 << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private byte[] line = new byte[256];
+
+    public MappedLineReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW);
+    }
+
+    MappedLineReader(Path path, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+    }
+
+    /**
+     * The next line without its line end, or null at the end of the file
+     */
+    public String readLine() throws IOException {
+        int start = window.position();
+        if (windowStart + start >= fileSize) {
+            return null;
+        }
+
+        int end = indexOfNewline(start);
+        while (end < 0) {
+            long windowEnd = windowStart + window.limit();
+            if (windowEnd >= fileSize) {
+                // Last line of the file, without a line end
+                end = window.limit();
+                break;
+            }
+            if (start == 0) {
+                // The line is longer than a whole window
+                windowSize = (int) Math.min((long) windowSize * 2, Integer.MAX_VALUE);
+            }
+            map(windowStart + start);
+            start = 0;
+            end = indexOfNewline(0);
+        }
+
+        int length = end - start;
+        if (length > 0 && window.get(end - 1) == '\r') {
+            length--;
+        }
+        if (line.length < length) {
+            line = new byte[Math.max(length, line.length * 2)];
+        }
+        window.get(line, 0, length);
+        window.position(Math.min(end + 1, window.limit()));
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int indexOfNewline(int from) {
+        int limit = window.limit();
+        for (int i = from; i < limit; i++) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, fileSize - position));
+    }
+}
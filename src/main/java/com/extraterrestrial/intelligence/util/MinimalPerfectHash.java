@@ -0,0 +1,271 @@
+package com.extraterrestrial.intelligence.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Minimal perfect hash over a frozen set of strings, in the style of CHD (compress, hash
+ * and displace).
+ *
+ * Keys are hashed to 64 bits and spread over buckets of about {@link #AVERAGE_BUCKET_SIZE}
+ * keys. Largest buckets first, each bucket gets the first pilot value that sends all its keys
+ * to free slots of a table with exactly one slot per key. A lookup reads one pilot and one
+ * fingerprint: the slot stores a 32-bit fingerprint of its key, so a string outside the set is
+ * rejected except with probability 2^-32.
+ *
+ * The slot numbers 0..size-1 index parallel value arrays kept by the caller.
+ */
+public final class MinimalPerfectHash {
+
+    public static final String ENABLED_PROPERTY = "tagger.perfectHash";
+
+    static final int AVERAGE_BUCKET_SIZE = 4;
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_PILOT = 1 << 20;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long seed;
+    private final int[] pilots;
+    private final int[] fingerprints;
+
+    private MinimalPerfectHash(long seed, int[] pilots, int[] fingerprints) {
+        this.seed = seed;
+        this.pilots = pilots;
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * Whether frozen lexicons should be compiled to perfect hashes, from {@code -Dtagger.perfectHash}
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Build a perfect hash for a set of distinct keys
+     */
+    public static MinimalPerfectHash build(Collection<String> keys) {
+        if (new HashSet<>(keys).size() != keys.size()) {
+            throw new IllegalArgumentException("Keys of a perfect hash must be distinct");
+        }
+
+        // A pilot search that gets stuck, or two keys sharing a 64-bit hash, retries with a new seed
+        for (long seed = GOLDEN_GAMMA; ; seed += GOLDEN_GAMMA) {
+            MinimalPerfectHash hash = tryBuild(keys, seed);
+            if (hash != null) {
+                return hash;
+            }
+        }
+    }
+
+    private static MinimalPerfectHash tryBuild(Collection<String> keys, long seed) {
+        int size = keys.size();
+        int bucketCount = Math.max(1, (size + AVERAGE_BUCKET_SIZE - 1) / AVERAGE_BUCKET_SIZE);
+
+        long[] hashes = new long[size];
+        Set<Long> distinct = new HashSet<>();
+        int k = 0;
+        for (String key : keys) {
+            hashes[k] = hash(key, seed);
+            if (!distinct.add(hashes[k])) {
+                return null;
+            }
+            k++;
+        }
+
+        // Group keys into buckets, then place the largest buckets first
+        List<List<Long>> buckets = new ArrayList<>(bucketCount);
+        for (int b = 0; b < bucketCount; b++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (long hash : hashes) {
+            buckets.get(bucketOf(hash, bucketCount)).add(hash);
+        }
+        Integer[] order = new Integer[bucketCount];
+        for (int b = 0; b < bucketCount; b++) {
+            order[b] = b;
+        }
+        Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        int[] pilots = new int[bucketCount];
+        int[] fingerprints = new int[size];
+        boolean[] taken = new boolean[size];
+        int[] slots = new int[0];
+
+        for (int b : order) {
+            List<Long> bucket = buckets.get(b);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            if (slots.length < bucket.size()) {
+                slots = new int[bucket.size()];
+            }
+
+            int pilot = findPilot(bucket, taken, slots);
+            if (pilot < 0) {
+                return null;
+            }
+            pilots[b] = pilot;
+            for (int i = 0; i < bucket.size(); i++) {
+                taken[slots[i]] = true;
+                fingerprints[slots[i]] = fingerprint(bucket.get(i));
+            }
+        }
+
+        return new MinimalPerfectHash(seed, pilots, fingerprints);
+    }
+
+    /**
+     * The first pilot that sends every key of a bucket to a distinct free slot
+     * @param slots Receives the slots of the bucket's keys
+     * @return The pilot, or -1 if none was found
+     */
+    private static int findPilot(List<Long> bucket, boolean[] taken, int[] slots) {
+        int size = taken.length;
+        search:
+        for (int pilot = 0; pilot < MAX_PILOT; pilot++) {
+            for (int i = 0; i < bucket.size(); i++) {
+                int slot = slotOf(bucket.get(i), pilot, size);
+                if (taken[slot]) {
+                    continue search;
+                }
+                for (int j = 0; j < i; j++) {
+                    if (slots[j] == slot) {
+                        continue search;
+                    }
+                }
+                slots[i] = slot;
+            }
+            return pilot;
+        }
+        return -1;
+    }
+
+    /**
+     * The slot of a key
+     * @return A number in 0..size-1, or -1 if the key is not in the set
+     */
+    public int indexOf(String key) {
+        return indexOfHash(hash(key, seed));
+    }
+
+    /**
+     * The slot of a key's lowercase form, without creating the lowercased string for ASCII words
+     * @return A number in 0..size-1, or -1 if the lowercased key is not in the set
+     */
+    public int indexOfLowerCase(String key) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c >= 0x80) {
+                // String.toLowerCase is not per-character for every script
+                return indexOf(key.toLowerCase());
+            }
+            h = mixChar(h, c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        return indexOfHash(finish(h, key.length()));
+    }
+
+    private int indexOfHash(long hash) {
+        if (fingerprints.length == 0) {
+            return -1;
+        }
+        int slot = slotOf(hash, pilots[bucketOf(hash, pilots.length)], fingerprints.length);
+        return fingerprints[slot] == fingerprint(hash) ? slot : -1;
+    }
+
+    /**
+     * Number of keys, which is also the number of slots
+     */
+    public int size() {
+        return fingerprints.length;
+    }
+
+    public int sizeInBytes() {
+        return (pilots.length + fingerprints.length) * Integer.BYTES;
+    }
+
+    /**
+     * Write the hash in a form {@link #readFrom(DataInput)} restores without rebuilding
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(seed);
+        out.writeInt(pilots.length);
+        for (int pilot : pilots) {
+            out.writeInt(pilot);
+        }
+        out.writeInt(fingerprints.length);
+        for (int fingerprint : fingerprints) {
+            out.writeInt(fingerprint);
+        }
+    }
+
+    public static MinimalPerfectHash readFrom(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported perfect hash format version: " + version);
+        }
+        long seed = in.readLong();
+        int[] pilots = new int[in.readInt()];
+        for (int i = 0; i < pilots.length; i++) {
+            pilots[i] = in.readInt();
+        }
+        int[] fingerprints = new int[in.readInt()];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = in.readInt();
+        }
+        return new MinimalPerfectHash(seed, pilots, fingerprints);
+    }
+
+    private static long hash(String key, long seed) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = mixChar(h, key.charAt(i));
+        }
+        return finish(h, key.length());
+    }
+
+    private static long mixChar(long h, char c) {
+        return (h ^ c) * 0x100000001b3L;
+    }
+
+    private static long finish(long h, int length) {
+        return mix(h ^ length);
+    }
+
+    // Bucket and slot use the high and low halves of differently mixed values, so the
+    // keys of one bucket still spread over the whole table
+    private static int bucketOf(long hash, int bucketCount) {
+        return (int) (((hash >>> 32) * bucketCount) >>> 32);
+    }
+
+    private static int slotOf(long hash, int pilot, int size) {
+        long h = mix(hash ^ mix(pilot * GOLDEN_GAMMA + GOLDEN_GAMMA));
+        return (int) (((h & 0xffffffffL) * size) >>> 32);
+    }
+
+    private static int fingerprint(long hash) {
+        return (int) mix(hash + GOLDEN_GAMMA);
+    }
+
+    /**
+     * MurmurHash3 fmix64
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,185 @@
+package com.extraterrestrial.intelligence.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Cuts a stream of running text into sentences as it is read, so documents of any size can be
+ * tagged without holding them in memory.
+ *
+ * A sentence ends at ".", "?" or "!" (optionally followed by closing quotes or brackets) when
+ * the next word starts with an upper-case letter, a digit or an opening quote, at a blank line,
+ * and at the end of the stream. A period that ends an abbreviation, such as the titles "Mr."
+ * and "Dr." or the initial in "J. Smith", only ends a sentence at a blank line or the end of
+ * the stream (see {@link Tokenizer#isAbbreviation}).
+ *
+ * Memory is bounded by the longest sentence: runs of whitespace are collapsed to one space as
+ * they are read, the only lookahead is the first character after the whitespace following a
+ * candidate boundary, and text that reaches the maximum length without a boundary is cut at
+ * its last space.
+ */
+public class SentenceSegmenter implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_SENTENCE = 4096;
+
+    private static final String CLOSING = "\"')]}’”";
+    private static final String OPENING = "\"'([{‘“";
+
+    private final Reader in;
+    private final char[] input = new char[8192];
+    private int inputPosition;
+    private int inputLimit;
+
+    // The sentence being read, with whitespace runs collapsed
+    private final char[] sentence;
+    private final CharBuffer sentenceChars;
+    private int length;
+    private int wordStart;
+
+    // A character read past a boundary, which starts the next sentence
+    private int pending = -1;
+
+    public SentenceSegmenter(Reader in) {
+        this(in, DEFAULT_MAX_SENTENCE);
+    }
+
+    /**
+     * @param maxSentence Longest sentence in characters; longer text is cut at its last space
+     */
+    public SentenceSegmenter(Reader in, int maxSentence) {
+        if (maxSentence < 2) {
+            throw new IllegalArgumentException("maxSentence must be at least 2, was " + maxSentence);
+        }
+        this.in = in;
+        this.sentence = new char[maxSentence];
+        this.sentenceChars = CharBuffer.wrap(sentence);
+    }
+
+    /**
+     * The next sentence, whitespace collapsed and trimmed, or null at the end of the stream
+     */
+    public String next() throws IOException {
+        int c = pending >= 0 ? pending : read();
+        pending = -1;
+        while (c >= 0 && Character.isWhitespace(c)) {
+            c = read();
+        }
+
+        while (c >= 0) {
+            if (!Character.isWhitespace(c)) {
+                if (length == sentence.length) {
+                    String cut = cutAtLastSpace();
+                    pending = c;
+                    return cut;
+                }
+                sentence[length++] = (char) c;
+                c = read();
+                continue;
+            }
+
+            // End of a word: skip the whitespace after it, counting line ends
+            boolean candidate = endsSentence();
+            int newlines = 0;
+            while (c >= 0 && Character.isWhitespace(c)) {
+                if (c == '\n') {
+                    newlines++;
+                }
+                c = read();
+            }
+            if (c < 0 || newlines > 1 || (candidate && startsSentence(c))) {
+                pending = c;
+                return take();
+            }
+            if (length == sentence.length) {
+                pending = c;
+                return take();
+            }
+            sentence[length++] = ' ';
+            wordStart = length;
+        }
+        return length > 0 ? take() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Whether the word just completed ends with sentence-final punctuation that is not the
+     * period of an abbreviation
+     */
+    private boolean endsSentence() {
+        int end = length;
+        while (end > wordStart && CLOSING.indexOf(sentence[end - 1]) >= 0) {
+            end--;
+        }
+        if (end == wordStart) {
+            return false;
+        }
+        char last = sentence[end - 1];
+        if (last == '?' || last == '!') {
+            return true;
+        }
+        if (last != '.') {
+            return false;
+        }
+        // "..." may end a sentence; a single period after an abbreviation does not
+        if (end - 1 > wordStart && sentence[end - 2] == '.') {
+            return true;
+        }
+        int start = wordStart;
+        while (start < end - 1 && OPENING.indexOf(sentence[start]) >= 0) {
+            start++;
+        }
+        return !Tokenizer.isAbbreviation(sentenceChars, start, end - 1);
+    }
+
+    private static boolean startsSentence(int c) {
+        return Character.isUpperCase(c) || Character.isDigit(c) || OPENING.indexOf(c) >= 0;
+    }
+
+    /**
+     * Return the text up to the last space of a full buffer and keep the rest, or the whole
+     * buffer if it holds a single word
+     */
+    private String cutAtLastSpace() {
+        int space = length - 1;
+        while (space > 0 && sentence[space] != ' ') {
+            space--;
+        }
+        if (space <= 0) {
+            return take();
+        }
+        String cut = new String(sentence, 0, space);
+        int rest = length - space - 1;
+        System.arraycopy(sentence, space + 1, sentence, 0, rest);
+        length = rest;
+        wordStart = 0;
+        return cut;
+    }
+
+    private String take() {
+        int last = length;
+        while (last > 0 && sentence[last - 1] == ' ') {
+            last--;
+        }
+        String text = new String(sentence, 0, last);
+        length = 0;
+        wordStart = 0;
+        return text;
+    }
+
+    private int read() throws IOException {
+        if (inputPosition == inputLimit) {
+            inputLimit = in.read(input, 0, input.length);
+            inputPosition = 0;
+            if (inputLimit <= 0) {
+                inputLimit = 0;
+                return -1;
+            }
+        }
+        return input[inputPosition++];
+    }
+}
@@ -0,0 +1,283 @@
+package com.extraterrestrial.intelligence.util;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits raw text into tokens the way the training data is tokenized, in one pass over the text.
+ *
+ * Tokens are recorded as start and end offsets in a reusable int buffer, so tokenizing creates
+ * no array and no strings; a token becomes a string, lower-cased or not, only when a caller
+ * asks for it. Punctuation is split off the ends of words, as are the clitics 's, n't, 're,
+ * 've, 'll, 'd and 'm. Abbreviations such as "Mr." and "U.S.", hyphenated words and numbers
+ * such as "1,000.5" stay whole.
+ *
+ * A tokenizer is reused call after call, so it is not thread-safe; keep one per thread, or
+ * use {@link #forCurrentThread()}.
+ */
+public final class Tokenizer {
+
+    // Split off the start of a word, one character at a time
+    private static final String LEADING = "\"([{$`";
+    // Split off the end of a word; a run of periods is one token
+    private static final String TRAILING = "\")]},;:?!.%";
+
+    // Words whose final period belongs to them, lower case without the period
+    private static final String[] ABBREVIATIONS = {
+            "mr", "mrs", "ms", "dr", "prof", "gen", "col", "lt", "sgt", "capt", "gov", "sen", "rep", "rev",
+            "st", "jr", "sr", "inc", "co", "corp", "ltd", "vs", "etc", "no", "jan", "feb", "mar", "apr",
+            "aug", "sept", "sep", "oct", "nov", "dec"
+    };
+
+    private static final ThreadLocal<Tokenizer> PER_THREAD = ThreadLocal.withInitial(Tokenizer::new);
+
+    private CharSequence text = "";
+    private int[] spans = new int[64];
+    private int size;
+
+    /**
+     * This thread's tokenizer, whose tokens last until the thread tokenizes again
+     */
+    public static Tokenizer forCurrentThread() {
+        return PER_THREAD.get();
+    }
+
+    /**
+     * Tokenize the text, replacing the tokens of the previous call
+     * @return This tokenizer, to read the tokens from
+     */
+    public Tokenizer tokenize(CharSequence text) {
+        this.text = text;
+        this.size = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                splitWord(start, i);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Number of tokens
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Offset of the token's first character in the text
+     */
+    public int start(int index) {
+        return spans[2 * index];
+    }
+
+    /**
+     * Offset just past the token's last character in the text
+     */
+    public int end(int index) {
+        return spans[2 * index + 1];
+    }
+
+    public String token(int index) {
+        return text.subSequence(start(index), end(index)).toString();
+    }
+
+    public String lowerCaseToken(int index) {
+        return appendLowerCase(index, new StringBuilder(end(index) - start(index))).toString();
+    }
+
+    /**
+     * Append the token in lower case, without creating a string for it
+     */
+    public StringBuilder appendLowerCase(int index, StringBuilder out) {
+        for (int i = start(index); i < end(index); i++) {
+            out.append(Character.toLowerCase(text.charAt(i)));
+        }
+        return out;
+    }
+
+    /**
+     * Tokens from (inclusive) to (exclusive), lower case and separated by single spaces, as the
+     * n-gram models key their contexts
+     */
+    public String joinLowerCase(int from, int to) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                joined.append(' ');
+            }
+            appendLowerCase(i, joined);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * All tokens in lower case
+     */
+    public List<String> lowerCaseTokens() {
+        List<String> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tokens.add(lowerCaseToken(i));
+        }
+        return tokens;
+    }
+
+    /**
+     * The tokens as an untagged sentence, ready for a tagger
+     */
+    public TaggedSentence toSentence() {
+        TaggedSentence sentence = new TaggedSentence();
+        for (int i = 0; i < size; i++) {
+            sentence.addWord(new TaggerWord(token(i), ""));
+        }
+        return sentence;
+    }
+
+    /**
+     * Split a whitespace-delimited word into leading punctuation, the word, a clitic and
+     * trailing punctuation
+     */
+    private void splitWord(int start, int end) {
+        while (end - start > 1 && LEADING.indexOf(text.charAt(start)) >= 0) {
+            add(start, start + 1);
+            start++;
+        }
+
+        int wordEnd = end;
+        while (wordEnd > start) {
+            char c = text.charAt(wordEnd - 1);
+            if (c == '.') {
+                int dots = wordEnd - 1;
+                while (dots > start && text.charAt(dots - 1) == '.') {
+                    dots--;
+                }
+                if (wordEnd - dots == 1 && keepsPeriod(start, dots)) {
+                    break;
+                }
+                wordEnd = dots;
+            } else if (TRAILING.indexOf(c) >= 0) {
+                wordEnd--;
+            } else {
+                break;
+            }
+        }
+
+        if (wordEnd > start) {
+            int clitic = cliticStart(start, wordEnd);
+            if (clitic > start) {
+                add(start, clitic);
+                add(clitic, wordEnd);
+            } else {
+                add(start, wordEnd);
+            }
+        }
+
+        int i = wordEnd;
+        while (i < end) {
+            int tokenEnd = i + 1;
+            if (text.charAt(i) == '.') {
+                while (tokenEnd < end && text.charAt(tokenEnd) == '.') {
+                    tokenEnd++;
+                }
+            }
+            add(i, tokenEnd);
+            i = tokenEnd;
+        }
+    }
+
+    /**
+     * Whether a word followed by a single period is an abbreviation ("U.S.", "Mr.", "J.")
+     * @param period Offset of the period, which ends the word
+     */
+    private boolean keepsPeriod(int start, int period) {
+        return isAbbreviation(text, start, period);
+    }
+
+    /**
+     * Whether the word between the offsets, without its final period, is an abbreviation: a
+     * title or other listed abbreviation ("Mr", "Prof", "etc"), an initial ("J") or a word with
+     * periods inside ("U.S")
+     */
+    public static boolean isAbbreviation(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return false;
+        }
+        if (length == 1 && Character.isLetter(text.charAt(start))) {
+            return true;
+        }
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '.') {
+                return true;
+            }
+        }
+        for (String abbreviation : ABBREVIATIONS) {
+            if (abbreviation.length() == length && equalsIgnoreCase(text, start, abbreviation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Offset where a clitic ending the word starts, or the word's start if it has none
+     */
+    private int cliticStart(int start, int end) {
+        int length = end - start;
+        if (length > 3 && isApostrophe(text.charAt(end - 2)) && equalsIgnoreCase(end - 3, "n")
+                && equalsIgnoreCase(end - 1, "t")) {
+            return end - 3;
+        }
+        if (length > 2 && isApostrophe(text.charAt(end - 2))
+                && (equalsIgnoreCase(end - 1, "s") || equalsIgnoreCase(end - 1, "d") || equalsIgnoreCase(end - 1, "m"))) {
+            return end - 2;
+        }
+        if (length > 3 && isApostrophe(text.charAt(end - 3))
+                && (equalsIgnoreCase(end - 2, "re") || equalsIgnoreCase(end - 2, "ve") || equalsIgnoreCase(end - 2, "ll"))) {
+            return end - 3;
+        }
+        return start;
+    }
+
+    private static boolean isApostrophe(char c) {
+        return c == '\'' || c == '’';
+    }
+
+    /**
+     * Whether the text at the offset matches a lower-case word, ignoring case
+     */
+    private boolean equalsIgnoreCase(int offset, String lowerCase) {
+        return equalsIgnoreCase(text, offset, lowerCase);
+    }
+
+    private static boolean equalsIgnoreCase(CharSequence text, int offset, String lowerCase) {
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if (Character.toLowerCase(text.charAt(offset + i)) != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(int start, int end) {
+        if (2 * size + 2 > spans.length) {
+            spans = Arrays.copyOf(spans, spans.length * 2);
+        }
+        spans[2 * size] = start;
+        spans[2 * size + 1] = end;
+        size++;
+    }
+}
@@ -1,7 +1,12 @@
 package com.extraterrestrial.intelligence.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Utility class for word shape features
@@ -11,12 +16,24 @@ public class WordShapeUtil {
     // Common English suffixes and their likely POS tags
     private static final Map<String, String> SUFFIX_TO_POS_MAP = new HashMap<>();
     
+    // The same suffixes and tags, longest suffix first, sorted once for guessPosFromSuffix
+    private static final String[] SUFFIXES_LONGEST_FIRST;
+    private static final String[] SUFFIX_TAGS_LONGEST_FIRST;
+    
     // Common closed-class words with their POS tags
     private static final Map<String, String> CLOSED_CLASS_WORDS = new HashMap<>();
     
+    // The POSIX punctuation class \p{Punct}
+    private static final String PUNCTUATION_CHARS = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+    
     // Common proper nouns that appear frequently
     private static final Set<String> COMMON_PROPER_NOUNS = new HashSet<>();
     
+    // Perfect hash forms of the two lexicons, compiled with -Dtagger.perfectHash; null otherwise
+    private static final MinimalPerfectHash CLOSED_CLASS_HASH;
+    private static final String[] CLOSED_CLASS_TAGS_BY_SLOT;
+    private static final MinimalPerfectHash COMMON_PROPER_NOUN_HASH;
+    
     static {
         // Precompiled first names list
         addCommonProperNouns();
@@ -117,6 +134,29 @@ public class WordShapeUtil {
         SUFFIX_TO_POS_MAP.put("ward", "RB");  // In the direction of
         SUFFIX_TO_POS_MAP.put("wards", "RB"); // In the direction of
         SUFFIX_TO_POS_MAP.put("wise", "RB");  // In the manner of
+        
+        // Sort suffixes by length (longest first) to prioritize longer matches
+        List<Map.Entry<String, String>> suffixEntries = new ArrayList<>(SUFFIX_TO_POS_MAP.entrySet());
+        suffixEntries.sort((a, b) -> Integer.compare(b.getKey().length(), a.getKey().length()));
+        SUFFIXES_LONGEST_FIRST = new String[suffixEntries.size()];
+        SUFFIX_TAGS_LONGEST_FIRST = new String[suffixEntries.size()];
+        for (int i = 0; i < suffixEntries.size(); i++) {
+            SUFFIXES_LONGEST_FIRST[i] = suffixEntries.get(i).getKey();
+            SUFFIX_TAGS_LONGEST_FIRST[i] = suffixEntries.get(i).getValue();
+        }
+        
+        if (MinimalPerfectHash.isEnabled()) {
+            CLOSED_CLASS_HASH = MinimalPerfectHash.build(CLOSED_CLASS_WORDS.keySet());
+            CLOSED_CLASS_TAGS_BY_SLOT = new String[CLOSED_CLASS_HASH.size()];
+            for (Map.Entry<String, String> entry : CLOSED_CLASS_WORDS.entrySet()) {
+                CLOSED_CLASS_TAGS_BY_SLOT[CLOSED_CLASS_HASH.indexOf(entry.getKey())] = entry.getValue();
+            }
+            COMMON_PROPER_NOUN_HASH = MinimalPerfectHash.build(COMMON_PROPER_NOUNS);
+        } else {
+            CLOSED_CLASS_HASH = null;
+            CLOSED_CLASS_TAGS_BY_SLOT = null;
+            COMMON_PROPER_NOUN_HASH = null;
+        }
     }
     
     /**
@@ -319,7 +359,7 @@ public class WordShapeUtil {
         }
         
         // Check for mixed case with numbers (often usernames, IDs, codes)
-        if (word.matches(".*\\d+.*") && !word.matches("\\d+.*")) {
+        if (!isDigit(word.charAt(0)) && containsDigit(word)) {
             return "ALPHANUMERIC";
         }
         
@@ -360,28 +400,86 @@ public class WordShapeUtil {
      * Check if a word uses camelCase or PascalCase
      */
     public static boolean isCamelCase(String word) {
-        return word.matches("[a-zA-Z]*[a-z]+[A-Z]+[a-zA-Z]*");
+        // Only ASCII letters, with some lowercase letter directly followed by an uppercase one
+        boolean lowerThenUpper = false;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (!isAsciiLetter(c)) {
+                return false;
+            }
+            if (i > 0 && c >= 'A' && c <= 'Z' && word.charAt(i - 1) >= 'a' && word.charAt(i - 1) <= 'z') {
+                lowerThenUpper = true;
+            }
+        }
+        return lowerThenUpper;
     }
     
     /**
      * Check if a word consists entirely of punctuation
      */
     public static boolean isPunctuation(String word) {
-        return word.matches("[\\p{Punct}]+");
+        if (word.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (PUNCTUATION_CHARS.indexOf(word.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
      * Check if a word is numeric (integer or decimal)
      */
     public static boolean isNumeric(String word) {
-        return word.matches("\\d+") || word.matches("\\d+[.,]\\d+");
+        // Digits, optionally with a single '.' or ',' that has digits on both sides
+        int separator = -1;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '.' || c == ',') {
+                if (separator >= 0) {
+                    return false;
+                }
+                separator = i;
+            } else if (!isDigit(c)) {
+                return false;
+            }
+        }
+        return word.length() > 0 && separator != 0 && separator != word.length() - 1;
     }
     
     /**
      * Check if a word is all capital letters
      */
     public static boolean isAllCaps(String word) {
-        return word.matches("[A-Z]+");
+        if (word.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+    
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+    
+    private static boolean containsDigit(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (isDigit(word.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -400,7 +498,11 @@ public class WordShapeUtil {
      * Check if word is a common proper noun
      */
     public static boolean isCommonProperNoun(String word) {
-        return word != null && COMMON_PROPER_NOUNS.contains(word);
+        if (word == null) return false;
+        if (COMMON_PROPER_NOUN_HASH != null) {
+            return COMMON_PROPER_NOUN_HASH.indexOf(word) >= 0;
+        }
+        return COMMON_PROPER_NOUNS.contains(word);
     }
     
     /**
@@ -408,9 +510,20 @@ public class WordShapeUtil {
      */
     public static String getClosedClassTag(String word) {
         if (word == null || word.isEmpty()) return null;
+        if (CLOSED_CLASS_HASH != null) {
+            int slot = CLOSED_CLASS_HASH.indexOfLowerCase(word);
+            return slot >= 0 ? CLOSED_CLASS_TAGS_BY_SLOT[slot] : null;
+        }
         return CLOSED_CLASS_WORDS.get(word.toLowerCase());
     }
     
+    /**
+     * All closed class words (lowercased) and their tags
+     */
+    public static Map<String, String> getClosedClassWords() {
+        return Collections.unmodifiableMap(CLOSED_CLASS_WORDS);
+    }
+    
     /**
      * Guess the POS tag of a word based on various features
      */
@@ -450,15 +563,11 @@ public class WordShapeUtil {
             return closedClassTag;
         }
         
-        // Sort suffixes by length (longest first) to prioritize longer matches
-        List<Map.Entry<String, String>> suffixEntries = new ArrayList<>(SUFFIX_TO_POS_MAP.entrySet());
-        suffixEntries.sort((a, b) -> Integer.compare(b.getKey().length(), a.getKey().length()));
-        
         // Try all suffixes, prioritizing longer ones
-        for (Map.Entry<String, String> entry : suffixEntries) {
-            String suffix = entry.getKey();
+        for (int i = 0; i < SUFFIXES_LONGEST_FIRST.length; i++) {
+            String suffix = SUFFIXES_LONGEST_FIRST[i];
             if (lowerWord.endsWith(suffix) && lowerWord.length() > suffix.length()) {
-                return entry.getValue();
+                return SUFFIX_TAGS_LONGEST_FIRST[i];
             }
         }
         
@@ -0,0 +1,43 @@
+package com.extraterrestrial.intelligence;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import com.extraterrestrial.intelligence.service.CombinedTaggerService;
+import com.extraterrestrial.intelligence.service.DeadlineTagger;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingTaggerTest {
+
+    @Test
+    void testTagsInParallelInInputOrder() throws Exception {
+        CombinedTaggerService taggerService = new CombinedTaggerService(Collections::emptyList);
+        taggerService.trainTaggers(Collections.singletonList(new TaggedSentence(Arrays.asList(
+                new TaggerWord("the", "DT"), new TaggerWord("cat", "NN"), new TaggerWord("sat", "VBD")))));
+        StreamingTagger streamingTagger = new StreamingTagger(taggerService, DeadlineTagger.Level.UNIGRAM, false);
+
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            String gold = i % 2 == 0 ? "NN" : "VB";
+            input.append("cat\t").append(gold).append("\nsat\tVBD\n\n");
+            expected.append("cat\t").append(gold).append("\tNN\t").append(i % 2 == 0 ? "MATCH" : "MISMATCH")
+                    .append("\nsat\tVBD\tVBD\tMATCH\n");
+        }
+
+        StringWriter output = new StringWriter();
+        StreamingTagger.SentenceReader reader = StreamingTagger.SentenceReader.forFormat("tsv",
+                StreamingTagger.LineSource.of(new BufferedReader(new StringReader(input.toString()))));
+        streamingTagger.run(reader, output, 3, 2);
+
+        assertEquals(expected.toString(), output.toString());
+        assertTrue(streamingTagger.summary(1_000_000_000L).endsWith("accuracy 75.00%"));
+    }
+}
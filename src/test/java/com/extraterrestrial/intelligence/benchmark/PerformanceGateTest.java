@@ -0,0 +1,30 @@
+package com.extraterrestrial.intelligence.benchmark;
+
+import com.extraterrestrial.intelligence.PerformanceGate;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Performance regression gate, only run with the "perf" Maven profile (mvn test -Pperf)
+ */
+class PerformanceGateTest {
+
+    @Test
+    void testNoRegressionAgainstBaseline() throws Exception {
+        double tolerance = Double.parseDouble(
+                System.getProperty("perf.tolerance", String.valueOf(PerformanceGate.DEFAULT_TOLERANCE)));
+
+        List<String> regressions = PerformanceGate.run(
+                Paths.get(PerformanceGate.BASELINE_PATH),
+                Paths.get(PerformanceGate.RESULTS_PATH),
+                BenchmarkCorpus.DEFAULT_CORPUS_PATH,
+                tolerance,
+                false);
+
+        assertTrue(regressions.isEmpty(), "Taggers regressed: " + regressions);
+    }
+}
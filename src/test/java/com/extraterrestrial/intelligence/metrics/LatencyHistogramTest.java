@@ -0,0 +1,42 @@
+package com.extraterrestrial.intelligence.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketBoundsContainValue() {
+        // Every value must fall inside the bounds of the bucket it is counted in
+        long[] values = {0, 1, 3, 4, 7, 8, 9, 15, 16, 1000, 123456789L, Long.MAX_VALUE / 3};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index) <= value, "lower bound for " + value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value, "upper bound for " + value);
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000L, snapshot.getMax());
+
+        // Log buckets report within 25% above the true value
+        assertTrue(snapshot.getP50() >= 500_000L && snapshot.getP50() <= 625_000L);
+        assertTrue(snapshot.getP99() >= 990_000L && snapshot.getP99() <= 1_000_000L);
+    }
+
+    @Test
+    void testDisabledStartRecordsNothing() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        histogram.recordSince(0L);
+        assertEquals(0, histogram.getCount());
+    }
+}
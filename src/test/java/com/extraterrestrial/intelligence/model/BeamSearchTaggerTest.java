@@ -0,0 +1,44 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.extraterrestrial.intelligence.model.TestSentences.sentence;
+import static com.extraterrestrial.intelligence.model.TestSentences.words;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BeamSearchTaggerTest {
+
+    @Test
+    void testWideBeamMatchesViterbi() {
+        UniGramTagger unigramTagger = new UniGramTagger(new DefaultTagger("UNK"));
+        BiGramTagger bigramTagger = new BiGramTagger(unigramTagger);
+
+        List<TaggedSentence> trainingSentences = new ArrayList<>();
+        trainingSentences.add(sentence("the/DT can/NN is/VBZ empty/JJ"));
+        trainingSentences.add(sentence("we/PRP can/MD go/VB"));
+        trainingSentences.add(sentence("they/PRP can/MD see/VB the/DT can/NN"));
+        unigramTagger.train(trainingSentences);
+        bigramTagger.train(trainingSentences);
+
+        ViterbiTagger viterbi = new ViterbiTagger(unigramTagger, bigramTagger);
+        BeamSearchTagger beam = new BeamSearchTagger(unigramTagger, bigramTagger, 8);
+        viterbi.buildTables();
+        beam.buildTables();
+
+        for (String text : new String[]{"the can is empty", "we can see the can", "can"}) {
+            TaggedSentence sentence = words(text);
+            assertEquals(viterbi.tagSentence(sentence).toString(), beam.tagSentence(sentence).toString());
+        }
+    }
+
+    @Test
+    void testRejectsZeroWidth() {
+        UniGramTagger unigramTagger = new UniGramTagger(new DefaultTagger());
+        assertThrows(IllegalArgumentException.class,
+                () -> new BeamSearchTagger(unigramTagger, new BiGramTagger(unigramTagger), 0));
+    }
+}
@@ -0,0 +1,168 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.extraterrestrial.intelligence.model.TestSentences.sentence;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentUpdateStressTest {
+
+    private static final int READERS = 4;
+    private static final int UPDATERS = 4;
+    private static final int UPDATES_PER_THREAD = 50_000;
+    private static final int CONTEXTS = 2_000;
+
+    @Test
+    void testTableUpdatesAreNeitherLostNorTorn() throws InterruptedException {
+        ContextTable.Builder builder = new ContextTable.Builder();
+        for (int i = 0; i < CONTEXTS; i++) {
+            builder.add(key(i), "NN");
+        }
+        ContextTable table = builder.build(ContextTable.DEFAULT_FILTER_BITS_PER_KEY);
+
+        // Each updater adds to the trained contexts and as many new ones, so segments grow meanwhile
+        AtomicBoolean updating = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        AtomicLong lookups = new AtomicLong();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(new Thread(() -> {
+                int[] lastTotals = new int[2 * CONTEXTS];
+                long count = 0;
+                while (updating.get() && failure.get() == null) {
+                    int context = ThreadLocalRandom.current().nextInt(2 * CONTEXTS);
+                    TagDistribution distribution = table.get(key(context));
+                    count++;
+                    if (distribution == null) {
+                        continue;
+                    }
+                    String error = checkConsistent(distribution);
+                    if (error == null && distribution.total() < lastTotals[context]) {
+                        error = "total of context " + context + " went back to " + distribution.total();
+                    }
+                    if (error != null) {
+                        failure.compareAndSet(null, error);
+                    }
+                    lastTotals[context] = distribution.total();
+                }
+                lookups.addAndGet(count);
+            }));
+        }
+
+        List<Thread> updaters = new ArrayList<>();
+        for (int u = 0; u < UPDATERS; u++) {
+            updaters.add(new Thread(() -> {
+                for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                    table.add(key(i % (2 * CONTEXTS)), i % 3 == 0 ? "VB" : "NN");
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        readers.forEach(Thread::start);
+        updaters.forEach(Thread::start);
+        for (Thread updater : updaters) {
+            updater.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        updating.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get(), failure.get());
+        assertEquals(2 * CONTEXTS, table.size());
+        long total = 0;
+        for (int i = 0; i < 2 * CONTEXTS; i++) {
+            TagDistribution distribution = table.get(key(i));
+            assertNull(checkConsistent(distribution));
+            total += distribution.total();
+        }
+        assertEquals(CONTEXTS + (long) UPDATERS * UPDATES_PER_THREAD, total, "lost counts");
+
+        System.out.printf("%d updaters: %.0f updates/s, %d readers: %.0f lookups/s%n",
+                UPDATERS, UPDATERS * UPDATES_PER_THREAD / seconds, READERS, lookups.get() / seconds);
+    }
+
+    @Test
+    void testChainUpdatesWhileTagging() throws InterruptedException {
+        UniGramTagger unigram = new UniGramTagger(new DefaultTagger("NN"));
+        BiGramTagger bigram = new BiGramTagger(unigram);
+        List<TaggedSentence> training = Collections.singletonList(sentence("the/DT", "run/NN"));
+        unigram.train(training);
+        bigram.train(training);
+
+        AtomicBoolean updating = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            threads.add(new Thread(() -> {
+                TaggedSentence test = sentence("the/", "run/", "fast/");
+                try {
+                    while (updating.get()) {
+                        bigram.tagSentence(test);
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        List<Thread> updaters = new ArrayList<>();
+        for (int u = 0; u < UPDATERS; u++) {
+            updaters.add(new Thread(() -> {
+                for (int i = 0; i < UPDATES_PER_THREAD / 10; i++) {
+                    AbstractNGramTagger.updateChain(bigram, Collections.singletonList(
+                            sentence("the/DT", i % 2 == 0 ? "run/VB" : "run/NN")));
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        updaters.forEach(Thread::start);
+        for (Thread updater : updaters) {
+            updater.join();
+        }
+        updating.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        int updates = UPDATERS * UPDATES_PER_THREAD / 10;
+        Map<String, Integer> runTags = unigram.getWordTagFreq().get("run");
+        assertEquals(1 + updates / 2, runTags.get("NN"));
+        assertEquals(updates / 2, runTags.get("VB"));
+        assertEquals(1 + updates, bigram.getTagTransitionFreq().get("DT").values().stream()
+                .mapToInt(Integer::intValue).sum());
+    }
+
+    private static ContextKeyBuilder key(int context) {
+        return ContextKeyBuilder.forCurrentThread().reset("TEST").lowerCase("context" + context);
+    }
+
+    private static String checkConsistent(TagDistribution distribution) {
+        int sum = 0;
+        int max = 0;
+        for (int i = 0; i < distribution.size(); i++) {
+            sum += distribution.count(i);
+            max = Math.max(max, distribution.count(i));
+        }
+        if (sum != distribution.total()) {
+            return "total " + distribution.total() + " but counts sum to " + sum;
+        }
+        if (distribution.bestCount() != max || distribution.countOf(distribution.bestTag()) != max) {
+            return "best tag " + distribution.bestTag() + " is not the most frequent of " + distribution;
+        }
+        return null;
+    }
+}
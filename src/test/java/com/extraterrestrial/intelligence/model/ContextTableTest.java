@@ -0,0 +1,68 @@
+package com.extraterrestrial.intelligence.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextTableTest {
+
+    @Test
+    void testFilterNeverHidesSeenContexts() {
+        ContextTable.Builder builder = new ContextTable.Builder();
+        ContextKeyBuilder key = new ContextKeyBuilder();
+        for (int i = 0; i < 5000; i++) {
+            builder.add(key.reset("TEST").lowerCase("word" + i), i % 3 == 0 ? "NN" : "VB");
+        }
+        ContextTable table = builder.build(ContextTable.DEFAULT_FILTER_BITS_PER_KEY);
+
+        for (int i = 0; i < 5000; i++) {
+            TagDistribution distribution = table.get(key.reset("TEST").lowerCase("word" + i));
+            assertNotNull(distribution);
+            assertEquals(i % 3 == 0 ? "NN" : "VB", distribution.bestTag());
+        }
+        for (int i = 0; i < 5000; i++) {
+            assertNull(table.get(key.reset("TEST").lowerCase("unseen" + i)));
+        }
+
+        Map<String, Long> lookups = table.getFilterCounters().snapshot();
+        assertEquals(5000L, lookups.get("hit"));
+        assertEquals(5000L, lookups.get("filtered") + lookups.get("false_positive"));
+        assertTrue(lookups.get("false_positive") < 250, "false positives: " + lookups.get("false_positive"));
+    }
+
+    @Test
+    void testRetainKeepsFlaggedContexts() {
+        ContextTable.Builder builder = new ContextTable.Builder();
+        ContextKeyBuilder key = new ContextKeyBuilder();
+        for (int i = 0; i < 100; i++) {
+            for (int n = 0; n <= i % 2; n++) {
+                builder.add(key.reset("TEST").lowerCase("word" + i), "NN");
+            }
+        }
+        ContextTable table = builder.build(ContextTable.DEFAULT_FILTER_BITS_PER_KEY);
+
+        // Keep the contexts seen twice
+        ContextTable retained = table.retain(distribution -> distribution.total() == 2);
+
+        assertEquals(50, retained.size());
+        assertTrue(retained.hasFilter());
+        assertTrue(retained.estimatedBytes() < table.estimatedBytes());
+        for (int i = 0; i < 100; i++) {
+            TagDistribution distribution = retained.get(key.reset("TEST").lowerCase("word" + i));
+            if (i % 2 == 1) {
+                assertEquals(2, distribution.total());
+            } else {
+                assertNull(distribution);
+            }
+        }
+    }
+
+    @Test
+    void testNoFilterByDefault() {
+        ContextTable table = new ContextTable.Builder().build();
+        assertFalse(table.hasFilter());
+        assertNull(table.getFilterCounters());
+    }
+}
@@ -0,0 +1,35 @@
+package com.extraterrestrial.intelligence.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountQuantizerTest {
+
+    @Test
+    void testSmallCountsAreExact() {
+        for (int bits : new int[]{8, 16}) {
+            CountQuantizer quantizer = CountQuantizer.forBits(bits);
+            for (int count = 0; count < quantizer.getExactLimit(); count++) {
+                assertEquals(count, quantizer.decode(quantizer.encode(count)));
+            }
+        }
+    }
+
+    @Test
+    void testLargeCountsStayClose() {
+        CountQuantizer quantizer = CountQuantizer.forBits(8);
+        int previousCode = 0;
+        for (int count = 1; count > 0 && count < Integer.MAX_VALUE / 2; count = count * 3 / 2 + 1) {
+            int code = quantizer.encode(count);
+            assertTrue(code < 256 && code >= previousCode, "codes must be monotonic");
+            assertEquals(count, quantizer.decode(code), count * 0.07);
+            previousCode = code;
+        }
+    }
+
+    @Test
+    void testRejectsOtherWidths() {
+        assertThrows(IllegalArgumentException.class, () -> CountQuantizer.forBits(12));
+    }
+}
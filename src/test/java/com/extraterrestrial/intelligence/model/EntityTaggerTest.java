@@ -0,0 +1,84 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.extraterrestrial.intelligence.model.TestSentences.sentence;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityTaggerTest {
+
+    private static final List<TaggedSentence> TRAINING = Arrays.asList(
+            sentence("John/NNP/B-per", "Smith/NNP/I-per", "visited/VBD/O", "Paris/NNP/B-geo"),
+            sentence("Mary/NNP/B-per", "Jones/NNP/I-per", "left/VBD/O", "London/NNP/B-geo"),
+            sentence("the/DT/O", "cat/NN/O", "sat/VBD/O"));
+
+    @Test
+    void testChainLabelsEntitiesInTheTaggingPass() {
+        DefaultTagger defaultTagger = new DefaultTagger();
+        UniGramTagger unigramTagger = new UniGramTagger(defaultTagger);
+        unigramTagger.train(TRAINING);
+        BiGramTagger bigramTagger = new BiGramTagger(unigramTagger);
+        bigramTagger.train(TRAINING);
+        EntityTagger entityTagger = new EntityTagger();
+        entityTagger.train(TRAINING);
+        bigramTagger.setEntityTagger(entityTagger);
+
+        TaggedSentence tagged = bigramTagger.tagSentence(sentence("Mary/", "Smith/", "visited/", "London/"));
+        assertEquals(Arrays.asList("B-per", "I-per", "O", "B-geo"), entities(tagged));
+        assertEquals("VBD", tagged.getWords().get(2).getTag());
+        assertEquals(100.0, EntityTagger.accuracy(
+                Collections.singletonList(sentence("Mary/NNP/B-per", "Smith/NNP/I-per", "visited/VBD/O", "London/NNP/B-geo")),
+                Collections.singletonList(tagged)), 1e-9);
+    }
+
+    @Test
+    void testLabelsFollowTheTagsLeftByPostprocessing() {
+        List<TaggedSentence> training = Arrays.asList(
+                sentence("the/DT/O", "runs/VBZ/O", "././O"),
+                sentence("the/DT/O", "runs/VBZ/O", "far/RB/O"));
+        UniGramTagger unigramTagger = new UniGramTagger(new DefaultTagger());
+        unigramTagger.train(training);
+        BiGramTagger bigramTagger = new BiGramTagger(unigramTagger);
+        bigramTagger.train(training);
+        TriGramTagger trigramTagger = new TriGramTagger(bigramTagger);
+        trigramTagger.train(training);
+        QuadGramTagger quadgramTagger = new QuadGramTagger(trigramTagger);
+        quadgramTagger.train(training);
+        // As a verb "runs" is outside any entity, as a noun it names one
+        EntityTagger entityTagger = new EntityTagger();
+        entityTagger.train(Arrays.asList(sentence("he/PRP/O", "runs/VBZ/O"), sentence("Big/NNP/B-org", "runs/NN/I-org")));
+        quadgramTagger.setEntityTagger(entityTagger);
+
+        TaggedSentence tagged = quadgramTagger.tagSentence(sentence("the/", "runs/"));
+        // The determiner rule retags "runs" as a noun, and its label comes from that tag
+        assertEquals("NN", tagged.getWords().get(1).getTag());
+        assertEquals("B-org", tagged.getWords().get(1).getEntity());
+    }
+
+    @Test
+    void testInsideLabelNeedsAnOpenSpan() {
+        EntityTagger entityTagger = new EntityTagger();
+        assertFalse(entityTagger.isTrained());
+        assertEquals("", entityTagger.predict("Smith", "CAP", "NNP", ""));
+
+        entityTagger.train(TRAINING);
+        assertTrue(entityTagger.isTrained());
+        // "Smith" was only seen inside a person's name; without one open it starts a new span
+        assertEquals("B-per", entityTagger.predict("Smith", "CAP", "NNP", "O"));
+        assertEquals("I-per", entityTagger.predict("Smith", "CAP", "NNP", "B-per"));
+        assertEquals("O", entityTagger.predict("unheard", "WORD", "JJ", "O"));
+    }
+
+    private static List<String> entities(TaggedSentence sentence) {
+        String[] entities = new String[sentence.size()];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = sentence.getWords().get(i).getEntity();
+        }
+        return Arrays.asList(entities);
+    }
+}
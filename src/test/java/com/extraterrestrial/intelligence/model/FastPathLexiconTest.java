@@ -0,0 +1,76 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.repository.CSVDatasetRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.extraterrestrial.intelligence.model.TestSentences.sentence;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastPathLexiconTest {
+
+    @Test
+    void testHeldOutOutputIsUnchanged() {
+        // Every fifth sentence is held out of training
+        List<TaggedSentence> training = new ArrayList<>();
+        List<TaggedSentence> heldOut = new ArrayList<>();
+        List<TaggedSentence> sentences = new CSVDatasetRepository().loadSentences();
+        for (int i = 0; i < sentences.size(); i++) {
+            (i % 5 == 4 ? heldOut : training).add(sentences.get(i));
+        }
+        UniGramTagger unigramTagger = new UniGramTagger(new DefaultTagger());
+        unigramTagger.train(training);
+        BiGramTagger bigramTagger = new BiGramTagger(unigramTagger);
+        bigramTagger.train(training);
+        TriGramTagger trigramTagger = new TriGramTagger(bigramTagger);
+        trigramTagger.train(training);
+        QuadGramTagger quadgramTagger = new QuadGramTagger(trigramTagger);
+        quadgramTagger.train(training);
+
+        for (AbstractNGramTagger tagger : Arrays.asList(bigramTagger, trigramTagger, quadgramTagger)) {
+            List<String> chain = new ArrayList<>();
+            for (TaggedSentence sentence : heldOut) {
+                chain.add(tagger.tagSentence(sentence).toString());
+            }
+            FastPathLexicon lexicon = FastPathLexicon.build(unigramTagger, tagger, training);
+            tagger.setFastPathLexicon(lexicon);
+            for (int i = 0; i < heldOut.size(); i++) {
+                assertEquals(chain.get(i), tagger.tagSentence(heldOut.get(i)).toString(),
+                        tagger.getClass().getSimpleName());
+            }
+            tagger.setFastPathLexicon(null);
+            assertTrue(lexicon.getCounters().snapshot().get("hit") > 0);
+        }
+    }
+
+    @Test
+    void testUpdatesDropTheLexicon() {
+        List<TaggedSentence> training = Arrays.asList(
+                sentence("he/PRP", "ran/VBD", "quickly/RB", "./."),
+                sentence("quickly/RB", "she/PRP", "left/VBD", "./."));
+        UniGramTagger unigramTagger = new UniGramTagger(new DefaultTagger());
+        unigramTagger.train(training);
+        BiGramTagger bigramTagger = new BiGramTagger(unigramTagger);
+        bigramTagger.train(training);
+        FastPathLexicon lexicon = FastPathLexicon.build(unigramTagger, bigramTagger, training);
+        assertEquals("RB", lexicon.lookup("quickly", 0));
+        bigramTagger.setFastPathLexicon(lexicon);
+        assertSame(lexicon, bigramTagger.getFastPathLexicon());
+
+        // The word turns into an adjective in the updated counts, which the lexicon never saw
+        TaggedSentence adjective = sentence("quickly/JJ");
+        AbstractNGramTagger.updateChain(bigramTagger, Collections.nCopies(5, adjective));
+        assertNull(bigramTagger.getFastPathLexicon());
+        assertEquals("JJ", bigramTagger.tagSentence(sentence("quickly/")).getWords().get(0).getTag());
+
+        // Updating only a lower level of the chain drops it as well
+        bigramTagger.setFastPathLexicon(lexicon);
+        unigramTagger.update(adjective);
+        assertNull(bigramTagger.getFastPathLexicon());
+    }
+}
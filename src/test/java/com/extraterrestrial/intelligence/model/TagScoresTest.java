@@ -0,0 +1,103 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.extraterrestrial.intelligence.model.TestSentences.sentence;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagScoresTest {
+
+    @Test
+    void testInterpolatesLevelsFromTheLowestUp() {
+        TagScores scores = new TagScores(2);
+        scores.reset(1);
+        TagDistribution[] levels = scores.levelBuffer(2);
+        // Higher level: NN 3, VB 1 (weight 4/6); lower level: VB 2 (weight 2/3)
+        levels[0] = TagDistribution.of(counts("NN", 3, "VB", 1));
+        levels[1] = TagDistribution.of(counts("VB", 2));
+        scores.score(0, levels, 2, "JJ");
+
+        // JJ keeps what both levels leave, 1/3 * 1/3, and falls out of the best two
+        double vb = 2.0 / 6 * (2.0 / 3) + 4.0 / 6 * 0.25;
+        double nn = 4.0 / 6 * 0.75;
+        assertEquals(2, scores.candidates(0));
+        assertEquals("NN", scores.tag(0, 0));
+        assertEquals(nn, scores.score(0, 0), 1e-6);
+        assertEquals("VB", scores.tag(0, 1));
+        assertEquals(vb, scores.score(0, 1), 1e-6);
+        assertEquals(0f, scores.scoreOf(0, "JJ"));
+        assertEquals(1.0 / 3 * 1.0 / 3, 1 - nn - vb, 1e-6);
+    }
+
+    @Test
+    void testTagSentenceScoresEveryWord() {
+        List<TaggedSentence> training = Arrays.asList(
+                sentence("the/DT", "run/NN", "ended/VBD", "./."),
+                sentence("they/PRP", "run/VBP", "fast/RB", "./."),
+                sentence("the/DT", "run/NN", "was/VBD", "long/JJ", "./."));
+        UniGramTagger unigramTagger = new UniGramTagger(new DefaultTagger());
+        unigramTagger.train(training);
+        BiGramTagger bigramTagger = new BiGramTagger(unigramTagger);
+        bigramTagger.train(training);
+
+        TagScores scores = new TagScores(3);
+        TaggedSentence tagged = bigramTagger.tagSentence(sentence("the/", "run/", "./"), scores);
+        assertEquals(bigramTagger.tagSentence(sentence("the/", "run/", "./")).toString(), tagged.toString(),
+                "scoring must not change the tags");
+        assertEquals(3, scores.size());
+        for (int i = 0; i < scores.size(); i++) {
+            float sum = 0;
+            for (int rank = 0; rank < scores.candidates(i); rank++) {
+                assertTrue(rank == 0 || scores.score(i, rank) <= scores.score(i, rank - 1));
+                sum += scores.score(i, rank);
+            }
+            assertTrue(sum <= 1.0001f);
+            assertTrue(scores.scoreOf(i, tagged.getWords().get(i).getTag()) > 0);
+        }
+        // "run" was seen as a noun and a verb, so both are candidates
+        assertTrue(scores.scoreOf(1, "NN") > 0 && scores.scoreOf(1, "VBP") > 0, scores.toString());
+        // Punctuation is tagged by rule
+        assertEquals(1f, scores.score(2, 0));
+
+        // The buffer is reused for a shorter sentence
+        bigramTagger.tagSentence(sentence("fast/"), scores);
+        assertEquals(1, scores.size());
+    }
+
+    @Test
+    void testWordsRetaggedByPostprocessingAreScoredWithTheirFinalTag() {
+        List<TaggedSentence> training = Arrays.asList(
+                sentence("the/DT", "runs/VBZ", "./."),
+                sentence("the/DT", "runs/VBZ", "far/RB", "./."),
+                sentence("a/DT", "runs/VBZ", "./."));
+        UniGramTagger unigramTagger = new UniGramTagger(new DefaultTagger());
+        unigramTagger.train(training);
+        BiGramTagger bigramTagger = new BiGramTagger(unigramTagger);
+        bigramTagger.train(training);
+        TriGramTagger trigramTagger = new TriGramTagger(bigramTagger);
+        trigramTagger.train(training);
+        QuadGramTagger quadgramTagger = new QuadGramTagger(trigramTagger);
+        quadgramTagger.train(training);
+
+        TagScores scores = new TagScores(3);
+        TaggedSentence tagged = quadgramTagger.tagSentence(sentence("the/", "runs/"), scores);
+        // A determiner is followed by a noun, whatever the counts say
+        assertEquals("NN", tagged.getWords().get(1).getTag());
+        assertTrue(scores.scoreOf(1, "NN") > 0, scores.toString());
+        assertTrue(scores.scoreOf(1, "VBZ") > 0, scores.toString());
+    }
+
+    private static Map<String, Integer> counts(Object... tagCounts) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < tagCounts.length; i += 2) {
+            counts.put((String) tagCounts[i], (Integer) tagCounts[i + 1]);
+        }
+        return counts;
+    }
+}
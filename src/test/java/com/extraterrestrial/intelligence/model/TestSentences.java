@@ -0,0 +1,39 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+
+/**
+ * Sentence fixtures shared by the tagger tests
+ */
+final class TestSentences {
+
+    private TestSentences() {
+    }
+
+    /**
+     * A sentence of tokens written word/tag or word/tag/entity, one per argument or several
+     * separated by spaces. An empty tag, as in "the/", leaves the word untagged.
+     */
+    static TaggedSentence sentence(String... tokens) {
+        TaggedSentence sentence = new TaggedSentence();
+        for (String argument : tokens) {
+            for (String token : argument.split(" ")) {
+                String[] parts = token.split("/", -1);
+                sentence.addWord(new TaggerWord(parts[0], parts[1], parts.length > 2 ? parts[2] : ""));
+            }
+        }
+        return sentence;
+    }
+
+    /**
+     * An untagged sentence of the space-separated words of a text
+     */
+    static TaggedSentence words(String text) {
+        TaggedSentence sentence = new TaggedSentence();
+        for (String word : text.split(" ")) {
+            sentence.addWord(new TaggerWord(word, ""));
+        }
+        return sentence;
+    }
+}
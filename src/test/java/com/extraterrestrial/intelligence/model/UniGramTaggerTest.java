@@ -122,4 +122,20 @@ class UniGramTaggerTest {
         assertEquals("DT", tagger.predict(words, 0)); // "THE" should match "The"
         assertEquals("NN", tagger.predict(words, 1)); // "DOG" should match "dog"
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testUpdateMovesMostFrequentTag() {
+        List<TaggerWord> words = Arrays.asList(new TaggerWord("chased", ""));
+        assertEquals("VBD", tagger.predict(words, 0));
+        
+        // Ten corrections outweigh the single training occurrence
+        for (int i = 0; i < 10; i++) {
+            tagger.update(new TaggedSentence(Arrays.asList(new TaggerWord("chased", "VBN"))));
+        }
+        assertEquals("VBN", tagger.predict(words, 0));
+        
+        // New words are learned without retraining
+        tagger.update(new TaggedSentence(Arrays.asList(new TaggerWord("zebra", "NN"))));
+        assertEquals("NN", tagger.predict(Arrays.asList(new TaggerWord("zebra", "")), 0));
+    }
+}
@@ -0,0 +1,60 @@
+package com.extraterrestrial.intelligence.model;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.extraterrestrial.intelligence.model.TestSentences.sentence;
+import static com.extraterrestrial.intelligence.model.TestSentences.words;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViterbiTaggerTest {
+
+    private ViterbiTagger tagger;
+
+    @BeforeEach
+    void setUp() {
+        tagger = new ViterbiTagger(new UniGramTagger(new DefaultTagger("UNK")),
+                new BiGramTagger(new UniGramTagger(new DefaultTagger("UNK"))));
+
+        // "can" is a noun after a determiner and a modal after a pronoun
+        List<TaggedSentence> trainingSentences = new ArrayList<>();
+        trainingSentences.add(sentence("the/DT can/NN is/VBZ empty/JJ"));
+        trainingSentences.add(sentence("a/DT can/NN fell/VBD"));
+        trainingSentences.add(sentence("we/PRP can/MD go/VB"));
+        trainingSentences.add(sentence("they/PRP can/MD see/VB the/DT dog/NN"));
+        trainingSentences.add(sentence("you/PRP can/MD run/VB"));
+        tagger.train(trainingSentences);
+    }
+
+    @Test
+    void testTransitionsResolveAmbiguousWord() {
+        assertEquals("DT NN VBZ JJ", tags(tagger.tagSentence(words("the can is empty"))));
+        assertEquals("PRP MD VB", tags(tagger.tagSentence(words("they can go"))));
+    }
+
+    @Test
+    void testUnknownWordUsesGuessedTag() {
+        // "zorble" was never seen, so it gets the default tagger's shape guess
+        TaggedSentence sentence = words("the zorble");
+        String guessed = new DefaultTagger("UNK").predict(sentence.getWords(), 1);
+        assertEquals("DT " + guessed, tags(tagger.tagSentence(sentence)));
+    }
+
+    @Test
+    void testEmptySentence() {
+        assertEquals(0, tagger.tagSentence(new TaggedSentence()).size());
+    }
+
+    private static String tags(TaggedSentence sentence) {
+        StringBuilder sb = new StringBuilder();
+        for (TaggerWord word : sentence.getWords()) {
+            sb.append(word.getTag()).append(" ");
+        }
+        return sb.toString().trim();
+    }
+}
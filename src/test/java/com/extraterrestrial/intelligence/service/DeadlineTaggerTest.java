@@ -0,0 +1,43 @@
+package com.extraterrestrial.intelligence.service;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTaggerTest {
+
+    private static final List<TaggedSentence> SENTENCES = Collections.singletonList(new TaggedSentence(Arrays.asList(
+            new TaggerWord("the", "DT"), new TaggerWord("cat", "NN"), new TaggerWord("sat", "VBD"))));
+
+    @Test
+    void testLevelFollowsBudget() {
+        CombinedTaggerService taggerService = new CombinedTaggerService(Collections::emptyList);
+        taggerService.trainTaggers(SENTENCES);
+        DeadlineTagger deadlineTagger = new DeadlineTagger(taggerService);
+
+        // Unmeasured levels count as affordable
+        DeadlineTagger.Result first = deadlineTagger.tagSentence(SENTENCES.get(0), 1);
+        assertEquals(DeadlineTagger.Level.COMBINED, first.getLevel());
+        assertEquals("NN", first.getSentence().getWords().get(1).getTag());
+
+        deadlineTagger.calibrate(SENTENCES);
+        for (DeadlineTagger.Level level : DeadlineTagger.Level.values()) {
+            assertTrue(deadlineTagger.estimateNanos(level, 3) > 0);
+        }
+        assertEquals(DeadlineTagger.Level.COMBINED,
+                deadlineTagger.tagSentence(SENTENCES.get(0), Long.MAX_VALUE).getLevel());
+
+        // Nothing fits a nanosecond, so the shallowest level answers and the budget is missed
+        DeadlineTagger.Result hurried = deadlineTagger.tagSentence(SENTENCES.get(0), 1);
+        assertEquals(DeadlineTagger.Level.DEFAULT, hurried.getLevel());
+        assertFalse(hurried.isWithinBudget());
+        assertEquals(2, deadlineTagger.getMissedBudgets());
+        assertEquals(2L, deadlineTagger.getLevelCounts().snapshot().get("combined"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.extraterrestrial.intelligence.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnsembleVotingTableTest {
+
+    private static final List<String> TAGS = Arrays.asList(
+            "NN", "NNS", "NNP", "JJ", "VB", "VBD", "VBZ", "RB", "DT", "IN", "PRP", "CC", "TO", "MD");
+
+    @Test
+    void testWeightsAndContextBoosts() {
+        EnsembleVotingTable table = EnsembleVotingTable.compile(TAGS, Collections.emptyList());
+        // Bigram 3 beats unigram 2; the trigram and quadgram only count from the third word
+        assertEquals("VB", table.vote(1, "NN", "VB", "NN", "NN", "PRP", null));
+        assertEquals("NN", table.vote(2, "NN", "VB", "NN", "NN", "PRP", null));
+        // The bigram's weight replaces the unigram's rather than adding to it
+        assertEquals("JJ", table.vote(2, "NN", "NN", "JJ", "JJ", "PRP", "JJ"));
+        // After a determiner, a noun or adjective bigram gets 2 more
+        assertEquals("JJ", table.vote(2, "RB", "JJ", "RB", "RB", "DT", null));
+        assertEquals("RB", table.vote(2, "RB", "VB", "RB", "RB", "DT", null));
+    }
+
+    @Test
+    void testMatchesTheVoteOverAMap() {
+        EnsembleVotingTable table = EnsembleVotingTable.compile(TAGS, Collections.singletonList("WDT"));
+        Random random = new Random(7);
+        for (int k = 0; k < 100_000; k++) {
+            // Few distinct tags per vote so ties are common; some outside the table
+            String[] pool = new String[4];
+            for (int j = 0; j < pool.length; j++) {
+                pool[j] = random.nextInt(50) == 0 ? "UNSEEN" : TAGS.get(random.nextInt(TAGS.size()));
+            }
+            int position = random.nextInt(4);
+            String previous = position > 0 ? (random.nextBoolean() ? "DT" : pool[random.nextInt(4)]) : null;
+            String suffix = random.nextInt(3) == 0 ? null : pool[random.nextInt(4)];
+            String unigram = pool[random.nextInt(4)];
+            String bigram = pool[random.nextInt(4)];
+            String trigram = pool[random.nextInt(4)];
+            String quadgram = pool[random.nextInt(4)];
+            assertEquals(EnsembleVotingTable.voteWithMap(position, unigram, bigram, trigram, quadgram, previous, suffix),
+                    table.vote(position, unigram, bigram, trigram, quadgram, previous, suffix));
+        }
+    }
+}
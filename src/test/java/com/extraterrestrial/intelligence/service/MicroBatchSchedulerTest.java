@@ -0,0 +1,153 @@
+package com.extraterrestrial.intelligence.service;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroBatchSchedulerTest {
+
+    @Test
+    void testCoalescesQueuedRequests() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        try (MicroBatchScheduler scheduler = new MicroBatchScheduler(sentences -> {
+            batchSizes.add(sentences.size());
+            firstBatchStarted.countDown();
+            awaitQuietly(release);
+            return upperCase(sentences);
+        }, 4, 1000, 1)) {
+            List<CompletableFuture<TaggedSentence>> results = new ArrayList<>();
+            results.add(scheduler.submit(sentence("w0")));
+            assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+
+            // These queue up behind the blocked batch and are taken four at a time
+            for (int i = 1; i < 10; i++) {
+                results.add(scheduler.submit(sentence("w" + i)));
+            }
+            assertEquals(9, scheduler.getQueueDepth());
+            release.countDown();
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("W" + i, results.get(i).get(10, TimeUnit.SECONDS).getWords().get(0).getTag());
+            }
+            assertEquals(List.of(1, 4, 4, 1), batchSizes);
+            assertEquals(10, scheduler.getRequestCount());
+            assertEquals(2.5, scheduler.getBatchingRatio(), 1e-9);
+            assertEquals(2L, scheduler.getBatchCloses().snapshot().get("full"));
+        }
+    }
+
+    @Test
+    void testFailedBatchFailsItsRequests() {
+        try (MicroBatchScheduler scheduler = new MicroBatchScheduler(sentences -> {
+            throw new IllegalStateException("no model");
+        }, 4, 100, 1)) {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> scheduler.submit(sentence("w")).get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    void testFullQueueShedsOrDegrades() throws Exception {
+        for (OverloadPolicy policy : new OverloadPolicy[] {OverloadPolicy.REJECT, OverloadPolicy.DEGRADE}) {
+            CountDownLatch firstBatchStarted = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+
+            try (MicroBatchScheduler scheduler = new MicroBatchScheduler(sentences -> {
+                firstBatchStarted.countDown();
+                awaitQuietly(release);
+                return upperCase(sentences);
+            }, 1, 0, 1, 2, policy, sentence -> upperCase(List.of(sentence)).get(0))) {
+                CompletableFuture<TaggedSentence> running = scheduler.submit(sentence("a"));
+                assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+                CompletableFuture<TaggedSentence> queued = scheduler.submit(sentence("b"));
+                scheduler.submit(sentence("c"));
+
+                // The worker is busy and the queue holds two, so this one is over capacity
+                CompletableFuture<TaggedSentence> overflow = scheduler.submit(sentence("d"));
+                if (policy == OverloadPolicy.REJECT) {
+                    ExecutionException e = assertThrows(ExecutionException.class, overflow::get);
+                    assertTrue(e.getCause() instanceof OverloadedException);
+                } else {
+                    assertEquals("D", overflow.getNow(null).getWords().get(0).getTag());
+                }
+                release.countDown();
+
+                assertEquals("A", running.get(10, TimeUnit.SECONDS).getWords().get(0).getTag());
+                assertEquals("B", queued.get(10, TimeUnit.SECONDS).getWords().get(0).getTag());
+                Map<String, Long> admissions = scheduler.getAdmissions().snapshot();
+                assertEquals(3L, admissions.get("queued"));
+                assertEquals(policy == OverloadPolicy.REJECT ? 1L : 0L, admissions.get("shed"));
+                assertEquals(policy == OverloadPolicy.DEGRADE ? 1L : 0L, admissions.get("degraded"));
+                assertEquals(3, scheduler.getRequestCount());
+            }
+        }
+    }
+
+    @Test
+    void testTasksShareTheQueueAndPolicy() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        try (MicroBatchScheduler scheduler = new MicroBatchScheduler(sentences -> {
+            batchSizes.add(sentences.size());
+            firstBatchStarted.countDown();
+            awaitQuietly(release);
+            return upperCase(sentences);
+        }, 4, 0, 1, 2, OverloadPolicy.REJECT, null)) {
+            scheduler.submit(sentence("a"));
+            assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+            CompletableFuture<TaggedSentence> queued = scheduler.submit(sentence("b"));
+            CompletableFuture<String> task = scheduler.submitTask(() -> "task", () -> "degraded");
+
+            // The queue holds the sentence and the task, so another task is shed
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> scheduler.submitTask(() -> "late", () -> "degraded").get());
+            assertTrue(e.getCause() instanceof OverloadedException);
+            release.countDown();
+
+            assertEquals("task", task.get(10, TimeUnit.SECONDS));
+            assertEquals("B", queued.get(10, TimeUnit.SECONDS).getWords().get(0).getTag());
+            // The task ran alone, outside the second batch
+            assertEquals(List.of(1, 1), batchSizes);
+            assertEquals(1L, scheduler.getAdmissions().snapshot().get("shed"));
+        }
+    }
+
+    private static TaggedSentence sentence(String word) {
+        return new TaggedSentence(Collections.singletonList(new TaggerWord(word, "")));
+    }
+
+    // Tags every word with itself in upper case
+    private static List<TaggedSentence> upperCase(List<TaggedSentence> sentences) {
+        List<TaggedSentence> tagged = new ArrayList<>();
+        for (TaggedSentence sentence : sentences) {
+            String word = sentence.getWords().get(0).getWord();
+            tagged.add(new TaggedSentence(Collections.singletonList(new TaggerWord(word, word.toUpperCase()))));
+        }
+        return tagged;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
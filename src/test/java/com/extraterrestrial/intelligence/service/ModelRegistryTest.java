@@ -0,0 +1,91 @@
+package com.extraterrestrial.intelligence.service;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelRegistryTest {
+
+    private static final List<TaggedSentence> FIRST = Collections.singletonList(new TaggedSentence(Arrays.asList(
+            new TaggerWord("the", "DT"), new TaggerWord("run", "NN"))));
+    private static final List<TaggedSentence> SECOND = Collections.singletonList(new TaggedSentence(Arrays.asList(
+            new TaggerWord("they", "PRP"), new TaggerWord("run", "VBP"))));
+
+    @Test
+    void testServesOldGenerationUntilNewOneIsWarm() throws Exception {
+        try (ModelRegistry registry = new ModelRegistry()) {
+            assertFalse(registry.hasCurrent());
+            ModelGeneration first = ModelGeneration.train(FIRST);
+            assertNull(registry.publish(first));
+
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<ModelGeneration> swap = registry.loadAsync(() -> {
+                loading.countDown();
+                awaitQuietly(release);
+                return ModelGeneration.train(SECOND);
+            }, SECOND);
+
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            ModelGeneration inFlight = registry.current();
+            assertSame(first, inFlight);
+            release.countDown();
+
+            ModelGeneration second = swap.get(10, TimeUnit.SECONDS);
+            assertSame(second, registry.current());
+            assertTrue(second.getNumber() > first.getNumber());
+
+            // A request that took the old generation still tags with the old counts
+            assertEquals("NN", inFlight.getUnigramTagger().predict(FIRST.get(0).getWords(), 1));
+            assertEquals("VBP", second.getUnigramTagger().predict(SECOND.get(0).getWords(), 1));
+        }
+    }
+
+    @Test
+    void testFailedLoadKeepsCurrentGeneration() {
+        try (ModelRegistry registry = new ModelRegistry()) {
+            ModelGeneration first = ModelGeneration.train(FIRST);
+            registry.publish(first);
+
+            CompletableFuture<ModelGeneration> swap = registry.loadAsync(() -> {
+                throw new IllegalStateException("corrupt model");
+            }, FIRST);
+
+            assertThrows(ExecutionException.class, swap::get);
+            assertSame(first, registry.current());
+        }
+    }
+
+    @Test
+    void testOlderGenerationNeverReplacesANewerOne() throws Exception {
+        try (ModelRegistry registry = new ModelRegistry()) {
+            ModelGeneration older = ModelGeneration.train(FIRST);
+            ModelGeneration newer = ModelGeneration.train(SECOND);
+            registry.publish(newer);
+
+            // E.g. a publish that finished training first, but lost the race to a load
+            assertSame(newer, registry.publish(older));
+            assertSame(newer, registry.current());
+            assertSame(older, registry.loadAsync(() -> older, FIRST).get(10, TimeUnit.SECONDS));
+            assertSame(newer, registry.current());
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.extraterrestrial.intelligence.service;
+
+import com.extraterrestrial.intelligence.data.TaggedSentence;
+import com.extraterrestrial.intelligence.data.TaggerWord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaggingHttpServerTest {
+
+    private TaggingHttpServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        CombinedTaggerService taggerService = new CombinedTaggerService(Collections::emptyList);
+        taggerService.trainTaggers(Collections.singletonList(new TaggedSentence(Arrays.asList(
+                new TaggerWord("the", "DT"), new TaggerWord("cat", "NN"), new TaggerWord("sat", "VBD")))));
+        server = new TaggingHttpServer(taggerService, null, 0, 2, null);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testTag() throws Exception {
+        HttpResponse<String> response = post("/tag", "{\"text\": \"the cat sat\"}");
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"tokens\":[{\"word\":\"the\",\"tag\":\"DT\"},{\"word\":\"cat\",\"tag\":\"NN\"}," +
+                "{\"word\":\"sat\",\"tag\":\"VBD\"}]}", response.body());
+    }
+
+    @Test
+    void testTagWithinBudgetReportsLevel() throws Exception {
+        HttpResponse<String> response = post("/tag?budgetMs=1000", "{\"text\": \"the cat sat\"}");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().endsWith("],\"level\":\"combined\"}"), response.body());
+        assertEquals(400, post("/tag?budgetMs=-1", "{\"text\": \"the cat sat\"}").statusCode());
+    }
+
+    @Test
+    void testBatchAnswersEveryLine() throws Exception {
+        HttpResponse<String> response = post("/tag/batch", "{\"text\":\"the cat\"}\n{\"txt\":\"sat\"}\n{\"text\":\"sat\"}\n");
+        assertEquals(200, response.statusCode());
+        String[] lines = response.body().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"tokens\":"));
+        assertEquals("{\"error\":\"Missing field: text\"}", lines[1]);
+        assertEquals("{\"tokens\":[{\"word\":\"sat\",\"tag\":\"VBD\"}]}", lines[2]);
+    }
+
+    @Test
+    void testBatchWithoutModelFailsBeforeStreaming() throws Exception {
+        try (TaggingHttpServer loading = new TaggingHttpServer(
+                new CombinedTaggerService(Collections::emptyList), null, 0, 1, null)) {
+            loading.start();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + loading.getPort() + "/tag/batch"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"text\":\"the cat\"}\n")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(503, response.statusCode());
+            assertEquals("{\"error\":\"No model is loaded\"}", response.body());
+        }
+    }
+
+    @Test
+    void testBatchLinesAndBudgetsAreAdmittedByTheScheduler() throws Exception {
+        CombinedTaggerService taggerService = new CombinedTaggerService(Collections::emptyList);
+        taggerService.trainTaggers(Collections.singletonList(new TaggedSentence(Arrays.asList(
+                new TaggerWord("the", "DT"), new TaggerWord("cat", "NN"), new TaggerWord("sat", "VBD")))));
+        try (MicroBatchScheduler scheduler = MicroBatchScheduler.forService(taggerService, 8, 0, 16, OverloadPolicy.REJECT);
+             TaggingHttpServer scheduled = new TaggingHttpServer(taggerService, null, 0, 2, scheduler)) {
+            scheduled.start();
+            String base = "http://localhost:" + scheduled.getPort();
+            HttpResponse<String> batch = client.send(HttpRequest.newBuilder(URI.create(base + "/tag/batch"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"text\":\"the cat\"}\n{\"text\":\"sat\"}\n")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals("{\"tokens\":[{\"word\":\"sat\",\"tag\":\"VBD\"}]}", batch.body().split("\n")[1]);
+            HttpResponse<String> budgeted = client.send(HttpRequest.newBuilder(URI.create(base + "/tag?budgetMs=1000"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"text\":\"the cat\"}")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertTrue(budgeted.body().contains("\"level\":"), budgeted.body());
+            assertEquals(3L, scheduler.getAdmissions().snapshot().get("queued"));
+        }
+    }
+
+    @Test
+    void testErrors() throws Exception {
+        assertEquals(400, post("/tag", "{\"text\": ").statusCode());
+        assertEquals(405, get("/tag").statusCode());
+        assertEquals(404, get("/predict?text=the").statusCode());
+        assertEquals(200, get("/health").statusCode());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
@@ -0,0 +1,32 @@
+package com.extraterrestrial.intelligence.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLineReaderTest {
+
+    @Test
+    void testLinesAcrossWindows(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("lines.txt");
+        String longLine = "x".repeat(40);
+        Files.write(file, ("first\r\nsecond line\n\nünïcode\n" + longLine + "\nlast").getBytes(StandardCharsets.UTF_8));
+
+        // Windows of 8 bytes cut most lines, and the long line needs the window to grow
+        List<String> lines = new ArrayList<>();
+        try (MappedLineReader reader = new MappedLineReader(file, 8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        assertEquals(List.of("first", "second line", "", "ünïcode", longLine, "last"), lines);
+    }
+}
@@ -0,0 +1,63 @@
+package com.extraterrestrial.intelligence.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinimalPerfectHashTest {
+
+    @Test
+    void testMapsKeysOneToOne() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            keys.add("word" + i);
+        }
+        MinimalPerfectHash hash = MinimalPerfectHash.build(keys);
+
+        assertEquals(keys.size(), hash.size());
+        Set<Integer> slots = new HashSet<>();
+        for (String key : keys) {
+            int slot = hash.indexOf(key);
+            assertTrue(slot >= 0 && slot < keys.size());
+            assertTrue(slots.add(slot), "slot used twice: " + slot);
+        }
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(-1, hash.indexOf("other" + i));
+        }
+    }
+
+    @Test
+    void testLowerCaseLookup() {
+        MinimalPerfectHash hash = MinimalPerfectHash.build(List.of("the", "\u00fcber", "of"));
+
+        assertEquals(hash.indexOf("the"), hash.indexOfLowerCase("The"));
+        assertEquals(hash.indexOf("\u00fcber"), hash.indexOfLowerCase("\u00dcBER"));
+        assertEquals(-1, hash.indexOfLowerCase("Then"));
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        List<String> keys = List.of("London", "Paris", "NASA", "John");
+        MinimalPerfectHash hash = MinimalPerfectHash.build(keys);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        hash.writeTo(new DataOutputStream(bytes));
+        MinimalPerfectHash restored = MinimalPerfectHash.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        for (String key : keys) {
+            assertEquals(hash.indexOf(key), restored.indexOf(key));
+        }
+        assertEquals(-1, restored.indexOf("london"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.extraterrestrial.intelligence.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SentenceSegmenterTest {
+
+    @Test
+    void testSplitsAtSentenceEnds() throws IOException {
+        assertEquals(List.of(
+                "Mr. Smith met Dr. J. Jones in the U.S. capital.",
+                "Did they agree?",
+                "\"Yes!\"",
+                "Talks resume in 2024... or later."),
+                segment("Mr. Smith met Dr. J. Jones in the U.S. capital.  Did they\n agree? \"Yes!\" "
+                        + "Talks resume in 2024... or later.", 4096));
+    }
+
+    @Test
+    void testLowerCaseContinuesAndBlankLineEnds() throws IOException {
+        assertEquals(List.of("It costs 5.5 dollars, i.e. not much", "New paragraph"),
+                segment("It costs 5.5 dollars, i.e. not much\n\nNew paragraph", 4096));
+    }
+
+    @Test
+    void testLongTextIsCutAtLastSpace() throws IOException {
+        assertEquals(List.of("one two", "three four", "five"), segment("one two three four five", 12));
+    }
+
+    @Test
+    void testReadsArbitrarilyLongStreamsIncrementally() throws IOException {
+        // Two million sentences generated on the fly, never held as one string
+        int count = 2_000_000;
+        Reader document = new Reader() {
+            private final char[] sentence = "The cat sat on the mat. ".toCharArray();
+            private long position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                long total = (long) count * sentence.length;
+                if (position == total) {
+                    return -1;
+                }
+                int n = (int) Math.min(length, total - position);
+                for (int i = 0; i < n; i++) {
+                    buffer[offset + i] = sentence[(int) (position++ % sentence.length)];
+                }
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        int sentences = 0;
+        try (SentenceSegmenter segmenter = new SentenceSegmenter(document, 64)) {
+            String text;
+            while ((text = segmenter.next()) != null) {
+                assertEquals("The cat sat on the mat.", text);
+                sentences++;
+            }
+        }
+        assertEquals(count, sentences);
+    }
+
+    private static List<String> segment(String text, int maxSentence) throws IOException {
+        List<String> sentences = new ArrayList<>();
+        try (SentenceSegmenter segmenter = new SentenceSegmenter(new StringReader(text), maxSentence)) {
+            String sentence;
+            while ((sentence = segmenter.next()) != null) {
+                sentences.add(sentence);
+            }
+        }
+        return sentences;
+    }
+}
@@ -0,0 +1,48 @@
+package com.extraterrestrial.intelligence.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenizerTest {
+
+    @Test
+    void testSplitsLikeTrainingData() {
+        assertEquals(List.of("Mr.", "Smith", "'s", "car", "is", "n't", "in", "the", "U.S.", "today", "."),
+                tokens("Mr. Smith's car isn't in the U.S. today."));
+        assertEquals(List.of("\"", "Hello", ",", "\"", "they", "said", "(", "quietly", ")", "..."),
+                tokens("\"Hello,\" they said (quietly)..."));
+        assertEquals(List.of("$", "1,000.50", "or", "5", "%", "of", "the", "U.S.-led", "cease-fire", "?"),
+                tokens("  $1,000.50 or 5% of\tthe U.S.-led cease-fire?\n"));
+        assertEquals(List.of("Shi'ite", "we", "'re", "J.", "Doe"), tokens("Shi'ite we're J. Doe"));
+        assertTrue(tokens(" \t ").isEmpty());
+    }
+
+    @Test
+    void testSpansAndLowerCase() {
+        Tokenizer tokenizer = new Tokenizer().tokenize("The Cat SAT.");
+        assertEquals(4, tokenizer.size());
+        assertEquals(4, tokenizer.start(1));
+        assertEquals(7, tokenizer.end(1));
+        assertEquals("cat sat .", tokenizer.joinLowerCase(1, 4));
+        assertEquals("The", tokenizer.token(0));
+        assertEquals("The", tokenizer.toSentence().getWords().get(0).getWord());
+        assertEquals("", tokenizer.toSentence().getWords().get(0).getTag());
+
+        // Reuse replaces the previous tokens
+        assertEquals("dogs", tokenizer.tokenize("Dogs").lowerCaseToken(0));
+        assertEquals(1, tokenizer.size());
+    }
+
+    private static List<String> tokens(String text) {
+        Tokenizer tokenizer = new Tokenizer().tokenize(text);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < tokenizer.size(); i++) {
+            tokens.add(tokenizer.token(i));
+        }
+        return tokens;
+    }
+}